@@ -0,0 +1,59 @@
+package benchmarks;
+
+import managers.TaskManager;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Генераторы наборов данных для бенчмарков. Все наборы детерминированы: задачи со временем
+ * идут подряд без пересечений, каждая пятая задача — эпик с четырьмя подзадачами.
+ */
+final class BenchmarkData {
+    static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+    static final Duration SLOT = Duration.ofMinutes(10);
+
+    private BenchmarkData() {
+    }
+
+    static LocalDateTime slot(long index) {
+        return BASE_TIME.plusMinutes(SLOT.toMinutes() * index);
+    }
+
+    static Task task(long index, boolean timed) {
+        return timed
+                ? new Task("Задача " + index, "Описание " + index, TaskStatus.NEW, SLOT, slot(index))
+                : new Task("Задача " + index, "Описание " + index);
+    }
+
+    static Subtask subtask(long index, int epicId, boolean timed) {
+        Subtask subtask = timed
+                ? new Subtask("Подзадача " + index, "Описание " + index, epicId, SLOT, slot(index))
+                : new Subtask("Подзадача " + index, "Описание " + index, epicId);
+        subtask.setTaskStatus(TaskStatus.values()[(int) (index % TaskStatus.values().length)]);
+        return subtask;
+    }
+
+    /**
+     * Заполняет менеджер size записями и возвращает номер следующего свободного слота времени.
+     */
+    static long populate(TaskManager manager, int size, boolean timed) {
+        long index = 0;
+        while (index < size) {
+            if (index % 5 == 0 && index + 5 <= size) {
+                Epic epic = manager.generateEpic(new Epic("Эпик " + index, "Описание " + index));
+                index++;
+                for (int i = 0; i < 4; i++) {
+                    manager.generateSubtask(subtask(index++, epic.getId(), timed));
+                }
+            } else {
+                manager.generateTask(task(index++, timed));
+            }
+        }
+        return index;
+    }
+}
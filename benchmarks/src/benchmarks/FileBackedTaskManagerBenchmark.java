@@ -0,0 +1,70 @@
+package benchmarks;
+
+import managers.BinaryFileBackedTaskManager;
+import managers.FileBackedTaskManager;
+import managers.FlushPolicy;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class FileBackedTaskManagerBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"CSV", "BINARY"})
+    public String format;
+
+    private File file;
+    private FileBackedTaskManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("bench_", "BINARY".equals(format) ? ".bin" : ".csv");
+        FlushPolicy setupPolicy = FlushPolicy.batched(Duration.ofDays(1), Integer.MAX_VALUE);
+        FileBackedTaskManager writer = open(file, setupPolicy);
+        BenchmarkData.populate(writer, rows, true);
+        writer.close();
+        manager = open(file, FlushPolicy.IMMEDIATE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+        new File(file.getPath() + ".bak").delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    private FileBackedTaskManager open(File target, FlushPolicy policy) {
+        return "BINARY".equals(format)
+                ? new BinaryFileBackedTaskManager(target, policy)
+                : new FileBackedTaskManager(target, policy);
+    }
+
+    @Benchmark
+    public void save() {
+        manager.forceSaveForTests();
+    }
+
+    @Benchmark
+    public FileBackedTaskManager load() {
+        return open(file, FlushPolicy.IMMEDIATE);
+    }
+
+    // Загрузка CSV в одном потоке, для сравнения с load; двоичный снимок всегда читается так
+    @Benchmark
+    public FileBackedTaskManager loadSingleThreaded() {
+        return "BINARY".equals(format)
+                ? open(file, FlushPolicy.IMMEDIATE)
+                : new FileBackedTaskManager(file, FlushPolicy.IMMEDIATE, null);
+    }
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+import history.InMemoryHistoryManager;
+import org.openjdk.jmh.annotations.*;
+import tasks.Task;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryManagerBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private InMemoryHistoryManager historyManager;
+    private Task[] viewed;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        historyManager = new InMemoryHistoryManager(size);
+        viewed = new Task[size];
+        for (int i = 0; i < size; i++) {
+            viewed[i] = BenchmarkData.task(i, false);
+            viewed[i].setId(i + 1);
+            historyManager.add(viewed[i]);
+        }
+    }
+
+    @Benchmark
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Benchmark
+    public List<Task> getRecent() {
+        return historyManager.getRecent(20);
+    }
+
+    @Benchmark
+    public void addChurn() {
+        // Повторный просмотр уже известной задачи: запись переносится в конец истории
+        historyManager.add(viewed[cursor]);
+        cursor = (cursor + 7919) % size;
+    }
+}
@@ -0,0 +1,132 @@
+package benchmarks;
+
+import http.HttpTaskServer;
+import managers.Managers;
+import managers.TaskManager;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузка на HttpTaskServer через постоянные соединения: каждое соединение в своём виртуальном
+ * потоке шлёт пачку из depth запросов GET одним сегментом (pipelining) и читает ответы по
+ * Content-Length. Печатает устоявшуюся пропускную способность и среднюю задержку пачки.
+ * Аргументы: соединения, глубина конвейера, секунды замера, число записей на доске;
+ * по умолчанию 64 8 10 1000. Сервер запускается в этом же процессе на свободном порту.
+ * Это не JMH-бенчмарк: запускается обычным main.
+ */
+public class HttpLoadGenerator {
+    private static final int WARMUP_SECONDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+        HttpTaskServer.useTcpNoDelay();
+        TaskManager manager = Managers.getConcurrent();
+        BenchmarkData.populate(manager, size, true);
+        try (HttpTaskServer server = new HttpTaskServer(manager, 0)) {
+            server.start();
+            byte[] batch = batch(manager, depth);
+            LongAdder responses = new LongAdder();
+            LongAdder failures = new LongAdder();
+            LongAdder batchNanos = new LongAdder();
+            long warmupEnd = System.nanoTime() + WARMUP_SECONDS * 1_000_000_000L;
+            long end = warmupEnd + seconds * 1_000_000_000L;
+
+            List<Thread> threads = new ArrayList<>(connections);
+            for (int i = 0; i < connections; i++) {
+                threads.add(Thread.ofVirtual().start(() -> {
+                    try (Socket socket = new Socket("localhost", server.getPort())) {
+                        socket.setTcpNoDelay(true);
+                        OutputStream out = socket.getOutputStream();
+                        InputStream in = new BufferedInputStream(socket.getInputStream(), 1 << 16);
+                        long now;
+                        while ((now = System.nanoTime()) < end) {
+                            out.write(batch);
+                            int failed = 0;
+                            for (int r = 0; r < depth; r++) {
+                                failed += readResponse(in) < 300 ? 0 : 1;
+                            }
+                            if (now >= warmupEnd) {
+                                responses.add(depth);
+                                failures.add(failed);
+                                batchNanos.add(System.nanoTime() - now);
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            long total = responses.sum();
+            System.out.printf("соединений %d, конвейер %d, записей %d%n", connections, depth, size);
+            System.out.printf("ответов %d за %d с: %.0f запросов/с, ошибок %d%n",
+                    total, seconds, total / (double) seconds, failures.sum());
+            System.out.printf("средняя задержка пачки %.2f мс%n",
+                    total == 0 ? 0 : batchNanos.sum() / 1e6 / (total / depth));
+        }
+    }
+
+    // Смесь чтений: отдельные записи, эпик с подзадачами и общий список по расписанию
+    private static byte[] batch(TaskManager manager, int depth) {
+        int subtaskId = manager.getAllSubtasks().get(0).getId();
+        int epicId = manager.getAllEpics().get(0).getId();
+        String[] paths = {"/subtasks/" + subtaskId, "/epics/" + epicId + "/subtasks", "/epics/" + epicId,
+                "/prioritized"};
+        StringBuilder requests = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            requests.append("GET ").append(paths[i % paths.length]).append(" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        }
+        return requests.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Читает один ответ целиком и возвращает его код
+    private static int readResponse(InputStream in) throws IOException {
+        String status = line(in);
+        int code = Integer.parseInt(status.substring(9, 12));
+        long length = 0;
+        for (String header = line(in); !header.isEmpty(); header = line(in)) {
+            if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                length = Long.parseLong(header.substring(15).trim());
+            }
+        }
+        while (length > 0) {
+            long skipped = in.skip(length);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new IOException("Соединение закрыто посреди ответа");
+                }
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+        return code;
+    }
+
+    private static String line(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int c = in.read(); c != '\n'; c = in.read()) {
+            if (c < 0) {
+                throw new IOException("Соединение закрыто посреди ответа");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import managers.InMemoryTaskManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import tasks.TaskJsonReader;
+import tasks.TaskJsonWriter;
+import tasks.TaskType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выгрузка всех подзадач в JSON потоком и обратный разбор массива.
+ * Под профилировщиком gc видно, что на задачу при записи память не выделяется,
+ * а при чтении — только сама задача и её строки.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskJsonBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private InMemoryTaskManager manager;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        manager = new InMemoryTaskManager();
+        BenchmarkData.populate(manager, size, true);
+        TaskJsonWriter writer = new TaskJsonWriter();
+        writer.writeArray(manager.getAllSubtasks());
+        encoded = writer.toByteArray();
+    }
+
+    @Benchmark
+    public void writeSubtasks() throws IOException {
+        new TaskJsonWriter(OutputStream.nullOutputStream()).writeArray(manager.streamSubtasks()).flush();
+    }
+
+    @Benchmark
+    public void readSubtasks(Blackhole blackhole) {
+        new TaskJsonReader(encoded).forEach(TaskType.SUBTASK, blackhole::consume);
+    }
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import managers.InMemoryTaskManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import tasks.Epic;
+import tasks.Task;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskManagerBenchmark {
+    // Вызовов добавления в одной итерации; JMH делит время пакета на их число
+    private static final int BATCH = 500;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"true", "false"})
+    public boolean timed;
+
+    private InMemoryTaskManager manager;
+    private Epic epic;
+    private long nextSlot;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        nextSlot = BenchmarkData.populate(manager, size, timed);
+        epic = manager.generateEpic(new Epic("Эпик", ""));
+    }
+
+    // Добавление замеряется одним проходом из BATCH вызовов подряд, JMH делит его время на BATCH.
+    // Уборка после каждого вызова (Level.Invocation) заставляла JMH засекать время на каждом вызове,
+    // а это стоит столько же, сколько само добавление. Доска пересобирается перед каждой итерацией
+    // и за проход вырастает на BATCH записей
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OperationsPerInvocation(BATCH)
+    @Warmup(iterations = 20)
+    @Measurement(iterations = 10)
+    public void generateTask(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(manager.generateTask(BenchmarkData.task(nextSlot++, timed)));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OperationsPerInvocation(BATCH)
+    @Warmup(iterations = 20)
+    @Measurement(iterations = 10)
+    public void generateSubtask(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(manager.generateSubtask(BenchmarkData.subtask(nextSlot++, epic.getId(), timed)));
+        }
+    }
+
+    @Benchmark
+    public List<Task> getPrioritizedTasks() {
+        return manager.getPrioritizedTasks();
+    }
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import managers.IntKeyedMap;
+import org.openjdk.jmh.annotations.*;
+import tasks.Task;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает хранилище задач InMemoryTaskManager (IntKeyedMap) с прежним HashMap<Integer, Task>.
+ * fill строит хранилище с нуля: gc.alloc.rate.norm из BenchmarkRunner показывает, сколько байт
+ * уходит на структуру (включая промежуточные таблицы при росте), lookup — чтение по id.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskStoreBenchmark {
+
+    @Param({"HASH_MAP", "INT_KEYED_MAP"})
+    public String store;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Task[] source;
+    private Map<Integer, Task> map;
+    private IntKeyedMap<Task> intMap;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = new Task[size];
+        for (int i = 0; i < size; i++) {
+            source[i] = BenchmarkData.task(i, false);
+            source[i].setId(i + 1);
+        }
+        map = new HashMap<>();
+        intMap = new IntKeyedMap<>();
+        for (Task task : source) {
+            map.put(task.getId(), task);
+            intMap.put(task.getId(), task);
+        }
+    }
+
+    @Benchmark
+    public Object fill() {
+        if (store.equals("HASH_MAP")) {
+            Map<Integer, Task> result = new HashMap<>();
+            for (Task task : source) {
+                result.put(task.getId(), task);
+            }
+            return result;
+        }
+        IntKeyedMap<Task> result = new IntKeyedMap<>();
+        for (Task task : source) {
+            result.put(task.getId(), task);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Task lookup() {
+        int id = cursor + 1;
+        cursor = (cursor + 7919) % size;
+        return store.equals("HASH_MAP") ? map.get(id) : intMap.get(id);
+    }
+}
@@ -0,0 +1,27 @@
+package exceptions;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class BatchValidationException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final TreeMap<Integer, String> errors;
+
+    public BatchValidationException(Map<Integer, String> errors) {
+        super(describe(errors));
+        this.errors = new TreeMap<>(errors);
+    }
+
+    // Ключ — позиция элемента в пакете, значение — причина отказа
+    public Map<Integer, String> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    private static String describe(Map<Integer, String> errors) {
+        Map.Entry<Integer, String> first = new TreeMap<>(errors).firstEntry();
+        return "Пакет отклонён, ошибок: " + errors.size()
+                + (first == null ? "" : "; элемент " + first.getKey() + ": " + first.getValue());
+    }
+}
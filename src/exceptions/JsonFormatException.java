@@ -0,0 +1,13 @@
+package exceptions;
+
+public class JsonFormatException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public JsonFormatException(String message) {
+        super(message);
+    }
+
+    public JsonFormatException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
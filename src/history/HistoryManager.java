@@ -4,11 +4,17 @@ import tasks.Task;
 
 import java.util.List;
 
-public interface HistoryManager {
+public interface HistoryManager extends Iterable<Task> {
 
     void add(Task task);
 
     List<Task> getHistory();
 
+    List<Task> getRecent(int count);
+
+    List<Task> getHistory(int offset, int limit);
+
+    int size();
+
     void remove(int id);
 }
@@ -2,73 +2,203 @@ package history;
 
 import tasks.Task;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
+import java.util.*;
 
+/**
+ * История просмотров ограниченного размера с вытеснением самой старой записи.
+ * Узлы двусвязного списка лежат в массивах и переиспользуются, id задачи сопоставляется номеру узла
+ * открытой адресацией по массиву int. Массивы начинаются с INITIAL_SLOTS узлов и удваиваются
+ * по мере заполнения, но не больше capacity, поэтому пустая история почти не занимает памяти.
+ * Повторный просмотр переносит существующий узел в конец, поэтому такой add не выделяет память.
+ * getRecent и getHistory(offset, limit) копируют только запрошенную часть истории,
+ * iterator копирует историю при создании и обходит эту копию, поэтому изменения во время обхода
+ * ему не мешают и в нём не видны.
+ */
 public class InMemoryHistoryManager implements HistoryManager {
+    public static final int DEFAULT_CAPACITY = 10_000;
+    static final int INITIAL_SLOTS = 16;
 
-    public class Node {
-        public Task task;
-        public Node prev;
-        public Node next;
+    private static final int NONE = -1;
 
-        public Node(Task task) {
-            this.task = task;
+    private final int capacity;
+    private Task[] tasks;
+    private int[] ids;
+    private int[] prev;
+    private int[] next;
+    private int[] keys;
+    private int[] slots;
+    private int mask;
+    private int head = NONE;
+    private int tail = NONE;
+    private int freeList;
+    private int size;
+
+    public InMemoryHistoryManager() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным");
         }
+        this.capacity = capacity;
+        int initial = Math.min(capacity, INITIAL_SLOTS);
+        tasks = new Task[initial];
+        ids = new int[initial];
+        prev = new int[initial];
+        next = new int[initial];
+        freeList = chainFree(0, initial);
+        allocateTable(initial);
     }
 
-    private final Map<Integer, Node> taskMap = new HashMap<>();
-    private Node head;
-    private Node tail;
+    // Связывает узлы [from, to) в список свободных и возвращает его начало
+    private int chainFree(int from, int to) {
+        for (int i = from; i < to; i++) {
+            next[i] = i + 1 < to ? i + 1 : NONE;
+        }
+        return from;
+    }
 
-    private Node linkLast(Task task) {
-        Node newNode = new Node(task);
-        if (head == null) {
-            head = tail = newNode;
-        } else {
-            tail.next = newNode;
-            newNode.prev = tail;
-            tail = newNode;
+    private void allocateTable(int nodeCount) {
+        int tableSize = Integer.highestOneBit(Math.max(2, nodeCount * 2 - 1)) << 1;
+        keys = new int[tableSize];
+        slots = new int[tableSize];
+        Arrays.fill(slots, NONE);
+        mask = tableSize - 1;
+    }
+
+    // Вызывается, когда все узлы заняты, а до capacity ещё есть место
+    private void grow() {
+        int length = tasks.length;
+        int grown = (int) Math.min(capacity, length * 2L);
+        tasks = Arrays.copyOf(tasks, grown);
+        ids = Arrays.copyOf(ids, grown);
+        prev = Arrays.copyOf(prev, grown);
+        next = Arrays.copyOf(next, grown);
+        freeList = chainFree(length, grown);
+        allocateTable(grown);
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            put(ids[slot], slot);
         }
-        return newNode;
     }
 
-    private void removeNode(Node node) {
-        if (node == null) {
-            return;
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int find(int id) {
+        for (int i = hash(id) & mask; slots[i] != NONE; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    private void put(int id, int slot) {
+        int i = hash(id) & mask;
+        while (slots[i] != NONE) {
+            i = (i + 1) & mask;
         }
-        if (node.prev != null) {
-            node.prev.next = node.next;
+        keys[i] = id;
+        slots[i] = slot;
+    }
+
+    private void delete(int position) {
+        // Удаление со сдвигом, чтобы цепочки линейного пробирования не рвались
+        int gap = position;
+        int i = position;
+        while (true) {
+            i = (i + 1) & mask;
+            if (slots[i] == NONE) {
+                break;
+            }
+            int home = hash(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                slots[gap] = slots[i];
+                gap = i;
+            }
+        }
+        slots[gap] = NONE;
+    }
+
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NONE;
+        if (tail == NONE) {
+            head = slot;
         } else {
-            head = node.next;
+            next[tail] = slot;
         }
-        if (node.next != null) {
-            node.next.prev = node.prev;
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        if (prev[slot] != NONE) {
+            next[prev[slot]] = next[slot];
+        } else {
+            head = next[slot];
+        }
+        if (next[slot] != NONE) {
+            prev[next[slot]] = prev[slot];
         } else {
-            tail = node.prev;
+            tail = prev[slot];
         }
-        taskMap.remove(node.task.getId());
+    }
+
+    private void release(int slot) {
+        tasks[slot] = null;
+        next[slot] = freeList;
+        freeList = slot;
+        size--;
     }
 
     @Override
     public void add(Task task) {
         int taskId = task.getId();
-        Node existingNode = taskMap.get(taskId);
-        if (existingNode != null) {
-            removeNode(existingNode);
+        int position = find(taskId);
+        if (position != NONE) {
+            int slot = slots[position];
+            tasks[slot] = task;
+            if (slot != tail) {
+                unlink(slot);
+                linkLast(slot);
+            }
+            return;
         }
-        Node newNode = linkLast(task);
-        taskMap.put(taskId, newNode);
+        if (size == capacity) {
+            int eldest = head;
+            delete(find(ids[eldest]));
+            unlink(eldest);
+            release(eldest);
+        }
+        if (freeList == NONE) {
+            grow();
+        }
+        int slot = freeList;
+        freeList = next[slot];
+        tasks[slot] = task;
+        ids[slot] = taskId;
+        linkLast(slot);
+        put(taskId, slot);
+        size++;
     }
 
     private List<Task> getTasks() {
-        List<Task> result = new ArrayList<>();
-        Node current = head;
-        while (current != null) {
-            result.add(current.task);
-            current = current.next;
+        List<Task> result = new ArrayList<>(size);
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            result.add(tasks[slot]);
         }
         return result;
     }
@@ -79,11 +209,62 @@ public class InMemoryHistoryManager implements HistoryManager {
 
     }
 
+    @Override
+    public List<Task> getRecent(int count) {
+        int length = Math.min(Math.max(count, 0), size);
+        Task[] result = new Task[length];
+        int slot = tail;
+        for (int i = length - 1; i >= 0; i--) {
+            result[i] = tasks[slot];
+            slot = prev[slot];
+        }
+        return Arrays.asList(result);
+    }
+
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Смещение и размер страницы не могут быть отрицательными");
+        }
+        int length = Math.min(limit, Math.max(size - offset, 0));
+        Task[] result = new Task[length];
+        int slot = length == 0 ? NONE : slotAt(offset);
+        for (int i = 0; i < length; i++) {
+            result[i] = tasks[slot];
+            slot = next[slot];
+        }
+        return Arrays.asList(result);
+    }
+
+    private int slotAt(int index) {
+        int slot;
+        if (index < size / 2) {
+            slot = head;
+            for (int i = 0; i < index; i++) {
+                slot = next[slot];
+            }
+        } else {
+            slot = tail;
+            for (int i = size - 1; i > index; i--) {
+                slot = prev[slot];
+            }
+        }
+        return slot;
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return Collections.unmodifiableList(getTasks()).iterator();
+    }
+
     @Override
     public void remove(int id) {
-        Node node = taskMap.remove(id);
-        if (node != null) {
-            removeNode(node);
+        int position = find(id);
+        if (position != NONE) {
+            int slot = slots[position];
+            delete(position);
+            unlink(slot);
+            release(slot);
         }
 
     }
@@ -0,0 +1,51 @@
+package history;
+
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * История, которая ничего не запоминает. Нужна менеджерам, чьи просмотры учитывает кто-то другой,
+ * например шардам ShardedTaskManager с общей историей доски.
+ */
+public class NoHistoryManager implements HistoryManager {
+
+    @Override
+    public void add(Task task) {
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<Task> getRecent(int count) {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Смещение и размер страницы не могут быть отрицательными");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public int size() {
+        return 0;
+    }
+
+    @Override
+    public void remove(int id) {
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return Collections.emptyIterator();
+    }
+}
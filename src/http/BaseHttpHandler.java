@@ -0,0 +1,121 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import exceptions.JsonFormatException;
+import managers.TaskManager;
+import tasks.Task;
+import tasks.TaskJsonReader;
+import tasks.TaskJsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Общая часть обработчиков: разбор пути, чтение тела и ответы с JSON.
+ * Небольшие ответы собираются в буфере и уходят с известной длиной, полные списки задач
+ * пишутся потоком по частям (chunked) прямо из менеджера, не собираясь в памяти.
+ * Обмен всегда закрывается, поэтому соединение остаётся открытым для следующих запросов
+ * клиента (keep-alive). IllegalArgumentException менеджера (пересечение по времени, нет эпика)
+ * даёт 406, некорректный JSON — 400, прочие ошибки — 500.
+ */
+abstract class BaseHttpHandler implements HttpHandler {
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+
+    protected final TaskManager manager;
+    private final String resource;
+
+    BaseHttpHandler(TaskManager manager, String resource) {
+        this.manager = manager;
+        this.resource = resource;
+    }
+
+    @Override
+    public final void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            if (path.length < 2 || !resource.equals(path[1])) {
+                sendNotFound(exchange, "Ресурс не найден");
+            } else {
+                route(exchange, exchange.getRequestMethod(), path);
+            }
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "Некорректный ID", e);
+        } catch (JsonFormatException e) {
+            sendError(exchange, 400, e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 406, e.getMessage(), e);
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, "Внутренняя ошибка сервера", e);
+        }
+        exchange.close();
+    }
+
+    // path[0] всегда пустой, path[1] — имя ресурса, дальше — id и вложенные ресурсы
+    protected abstract void route(HttpExchange exchange, String method, String[] path) throws IOException;
+
+    protected static int id(String[] path) {
+        return Integer.parseInt(path[2]);
+    }
+
+    // Тело разбирается прямо из потока запроса; после записи допускаются только пробелы
+    protected static <T extends Task> T readBody(HttpExchange exchange, Function<TaskJsonReader, T> read) {
+        TaskJsonReader reader = new TaskJsonReader(exchange.getRequestBody());
+        T item = read.apply(reader);
+        reader.end();
+        return item;
+    }
+
+    private static void send(HttpExchange exchange, int code, TaskJsonWriter json) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(code, json.size() == 0 ? -1 : json.size());
+        if (json.size() > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                json.writeTo(out);
+            }
+        }
+    }
+
+    protected static void sendTask(HttpExchange exchange, int code, Task task) throws IOException {
+        send(exchange, code, new TaskJsonWriter().write(task));
+    }
+
+    protected static void sendTasks(HttpExchange exchange, Collection<? extends Task> tasks) throws IOException {
+        send(exchange, 200, new TaskJsonWriter().writeArray(tasks));
+    }
+
+    // Длина заранее неизвестна: ответ уходит частями по мере записи
+    protected static void streamTasks(HttpExchange exchange, Stream<? extends Task> tasks) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            new TaskJsonWriter(out).writeArray(tasks).flush();
+        }
+    }
+
+    protected static void sendOk(HttpExchange exchange) throws IOException {
+        send(exchange, 200, new TaskJsonWriter());
+    }
+
+    protected static void sendNotFound(HttpExchange exchange, String message) throws IOException {
+        send(exchange, 404, new TaskJsonWriter().writeObject("error", message));
+    }
+
+    protected static void sendMethodNotAllowed(HttpExchange exchange) throws IOException {
+        send(exchange, 405, new TaskJsonWriter().writeObject("error",
+                "Метод " + exchange.getRequestMethod() + " не поддерживается"));
+    }
+
+    private static void sendError(HttpExchange exchange, int code, String message, Exception cause)
+            throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            // Заголовки и часть тела уже ушли: сервер разорвёт соединение, и клиент
+            // не примет обрезанный ответ за целый
+            throw new IOException("Ошибка посреди ответа", cause);
+        }
+        send(exchange, code, new TaskJsonWriter().writeObject("error", message));
+    }
+}
@@ -0,0 +1,66 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import managers.TaskManager;
+import tasks.Epic;
+import tasks.TaskJsonReader;
+
+import java.io.IOException;
+
+class EpicsHandler extends BaseHttpHandler {
+
+    EpicsHandler(TaskManager manager) {
+        super(manager, "epics");
+    }
+
+    @Override
+    protected void route(HttpExchange exchange, String method, String[] path) throws IOException {
+        boolean subtasks = path.length == 4 && "subtasks".equals(path[3]);
+        if (path.length > 3 && !subtasks) {
+            sendNotFound(exchange, "Ресурс не найден");
+            return;
+        }
+        switch (method) {
+            case "GET" -> {
+                if (path.length == 2) {
+                    streamTasks(exchange, manager.streamEpics());
+                    return;
+                }
+                Epic epic = manager.getEpicById(id(path));
+                if (epic == null) {
+                    sendNotFound(exchange, "Эпик с ID " + path[2] + " не найден");
+                } else if (subtasks) {
+                    sendTasks(exchange, manager.getSubtasksByEpic(epic.getId()));
+                } else {
+                    sendTask(exchange, 200, epic);
+                }
+            }
+            case "POST" -> {
+                if (subtasks) {
+                    sendMethodNotAllowed(exchange);
+                    return;
+                }
+                Epic epic = readBody(exchange, TaskJsonReader::readEpic);
+                if (epic.getId() == 0) {
+                    manager.generateEpic(epic);
+                } else if (!manager.updateEpic(epic)) {
+                    sendNotFound(exchange, "Эпик с ID " + epic.getId() + " не найден");
+                    return;
+                }
+                sendTask(exchange, 201, epic);
+            }
+            case "DELETE" -> {
+                if (subtasks) {
+                    sendMethodNotAllowed(exchange);
+                } else if (path.length == 2) {
+                    manager.removeAllEpics();
+                    sendOk(exchange);
+                } else {
+                    manager.deleteEpic(id(path));
+                    sendOk(exchange);
+                }
+            }
+            default -> sendMethodNotAllowed(exchange);
+        }
+    }
+}
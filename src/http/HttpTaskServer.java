@@ -0,0 +1,83 @@
+package http;
+
+import com.sun.net.httpserver.HttpServer;
+import managers.Managers;
+import managers.TaskManager;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP API менеджера задач на встроенном сервере JDK (com.sun.net.httpserver).
+ * Каждый запрос обрабатывается в своём виртуальном потоке, поэтому медленный клиент не занимает
+ * поток платформы. Ожидание ReentrantLock в ConcurrentTaskManager тоже его не занимает, а ожидание
+ * synchronized (FileBackedTaskManager, шарды ShardedTaskManager) на JDK 21 закрепляет виртуальный
+ * поток за потоком платформы до получения монитора. Менеджер вызывается из многих потоков сразу
+ * и должен быть потокобезопасным (ConcurrentTaskManager, ShardedTaskManager).
+ * Соединения HTTP/1.1 переиспользуются, запросы в одном соединении обрабатываются по очереди.
+ * Без TCP_NODELAY каждый запрос в соединении стоит ~40 мс: main включает его сам, а при запуске
+ * сервера из своего кода нужно вызвать useTcpNoDelay() до создания сервера или передать JVM
+ * -Dsun.net.httpserver.nodelay=true.
+ */
+public class HttpTaskServer implements AutoCloseable {
+    public static final int PORT = 8080;
+
+    private static final int BACKLOG = 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public HttpTaskServer(TaskManager manager) throws IOException {
+        this(manager, PORT);
+    }
+
+    // Порт 0 — любой свободный, узнать его можно через getPort()
+    public HttpTaskServer(TaskManager manager, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/tasks", new TasksHandler(manager));
+        server.createContext("/subtasks", new SubtasksHandler(manager));
+        server.createContext("/epics", new EpicsHandler(manager));
+        server.createContext("/history", new HistoryHandler(manager));
+        server.createContext("/prioritized", new PrioritizedHandler(manager));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Перестаёт принимать соединения и ждёт завершения начатых запросов
+    public void stop() {
+        server.stop(0);
+        executor.close();
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    // Ответ уходит двумя записями (заголовки и тело); с алгоритмом Нейгла вторая ждёт
+    // отложенного ACK клиента. Свойство общее для JVM и читается один раз при создании
+    // первого сервера в процессе, явное значение не перезаписывается.
+    public static void useTcpNoDelay() {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        useTcpNoDelay();
+        HttpTaskServer server = new HttpTaskServer(Managers.getConcurrent(),
+                args.length > 0 ? Integer.parseInt(args[0]) : PORT);
+        server.start();
+        System.out.println("HTTP-сервер запущен на порту " + server.getPort());
+    }
+}
@@ -0,0 +1,24 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import managers.TaskManager;
+
+import java.io.IOException;
+
+class PrioritizedHandler extends BaseHttpHandler {
+
+    PrioritizedHandler(TaskManager manager) {
+        super(manager, "prioritized");
+    }
+
+    @Override
+    protected void route(HttpExchange exchange, String method, String[] path) throws IOException {
+        if (path.length > 2) {
+            sendNotFound(exchange, "Ресурс не найден");
+        } else if (!"GET".equals(method)) {
+            sendMethodNotAllowed(exchange);
+        } else {
+            sendTasks(exchange, manager.getPrioritizedTasks());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import managers.TaskManager;
+import tasks.Subtask;
+import tasks.TaskJsonReader;
+
+import java.io.IOException;
+
+class SubtasksHandler extends BaseHttpHandler {
+
+    SubtasksHandler(TaskManager manager) {
+        super(manager, "subtasks");
+    }
+
+    @Override
+    protected void route(HttpExchange exchange, String method, String[] path) throws IOException {
+        if (path.length > 3) {
+            sendNotFound(exchange, "Ресурс не найден");
+            return;
+        }
+        switch (method) {
+            case "GET" -> {
+                if (path.length == 2) {
+                    streamTasks(exchange, manager.streamSubtasks());
+                    return;
+                }
+                Subtask subtask = manager.getSubtaskById(id(path));
+                if (subtask == null) {
+                    sendNotFound(exchange, "Подзадача с ID " + path[2] + " не найдена");
+                } else {
+                    sendTask(exchange, 200, subtask);
+                }
+            }
+            case "POST" -> {
+                Subtask subtask = readBody(exchange, TaskJsonReader::readSubtask);
+                if (subtask.getId() == 0) {
+                    manager.generateSubtask(subtask);
+                } else if (!manager.updateSubtask(subtask)) {
+                    sendNotFound(exchange, "Подзадача с ID " + subtask.getId() + " не найдена");
+                    return;
+                }
+                sendTask(exchange, 201, subtask);
+            }
+            case "DELETE" -> {
+                if (path.length == 2) {
+                    manager.removeAllSubtasks();
+                } else {
+                    manager.deleteSubtask(id(path));
+                }
+                sendOk(exchange);
+            }
+            default -> sendMethodNotAllowed(exchange);
+        }
+    }
+}
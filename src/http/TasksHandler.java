@@ -0,0 +1,56 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import managers.TaskManager;
+import tasks.Task;
+import tasks.TaskJsonReader;
+
+import java.io.IOException;
+
+class TasksHandler extends BaseHttpHandler {
+
+    TasksHandler(TaskManager manager) {
+        super(manager, "tasks");
+    }
+
+    @Override
+    protected void route(HttpExchange exchange, String method, String[] path) throws IOException {
+        if (path.length > 3) {
+            sendNotFound(exchange, "Ресурс не найден");
+            return;
+        }
+        switch (method) {
+            case "GET" -> {
+                if (path.length == 2) {
+                    streamTasks(exchange, manager.streamTasks());
+                    return;
+                }
+                Task task = manager.getTaskById(id(path));
+                if (task == null) {
+                    sendNotFound(exchange, "Задача с ID " + path[2] + " не найдена");
+                } else {
+                    sendTask(exchange, 200, task);
+                }
+            }
+            case "POST" -> {
+                Task task = readBody(exchange, TaskJsonReader::readTask);
+                if (task.getId() == 0) {
+                    manager.generateTask(task);
+                } else if (!manager.updateTask(task)) {
+                    sendNotFound(exchange, "Задача с ID " + task.getId() + " не найдена");
+                    return;
+                }
+                sendTask(exchange, 201, task);
+            }
+            case "DELETE" -> {
+                if (path.length == 2) {
+                    manager.removeAllTasks();
+                } else {
+                    manager.deleteTask(id(path));
+                }
+                sendOk(exchange);
+            }
+            default -> sendMethodNotAllowed(exchange);
+        }
+    }
+}
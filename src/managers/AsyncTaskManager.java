@@ -0,0 +1,328 @@
+package managers;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Неблокирующий фасад над TaskManager: те же операции, но результат приходит в CompletableFuture.
+ * Все вызовы выполняются по очереди одним потоком-писателем, поэтому обёрнутый менеджер
+ * не обязан быть потокобезопасным, а вызывающие потоки не ждут диска.
+ * Писатель забирает из очереди сразу всё накопившееся (до MAX_BATCH запросов) и выполняет подряд.
+ * Future завершаются после всей пачки. В режиме durable перед этим вызывается один flush
+ * FileBackedTaskManager, так что запись на диск делится на всю пачку, а изменение считается
+ * выполненным только после записи.
+ * Future завершаются в потоке-писателе: тяжёлую обработку результата лучше вешать через *Async,
+ * а ждать (join) другой операции этого же менеджера внутри обработчика нельзя.
+ * Потоков stream* здесь нет — для чтения без очереди есть snapshot() у InMemoryTaskManager
+ * с версиями (new InMemoryTaskManager(true) или FileBackedTaskManager).
+ */
+public class AsyncTaskManager implements AutoCloseable {
+    static final int MAX_BATCH = 256;
+
+    private static final Request<Void> STOP = new Request<>(manager -> null, false);
+
+    private final TaskManager delegate;
+    private final FileBackedTaskManager durableTarget;
+    private final BlockingQueue<Request<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private boolean closed;
+
+    private static final class Request<T> {
+        final Function<TaskManager, T> action;
+        final boolean mutation;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        RuntimeException error;
+
+        Request(Function<TaskManager, T> action, boolean mutation) {
+            this.action = action;
+            this.mutation = mutation;
+        }
+
+        void apply(TaskManager manager) {
+            try {
+                result = action.apply(manager);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+
+        void complete(RuntimeException flushError) {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else if (mutation && flushError != null) {
+                future.completeExceptionally(flushError);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+
+    public AsyncTaskManager(TaskManager delegate) {
+        this(delegate, null);
+    }
+
+    // Future изменений завершаются только после того, как изменения записаны в файл
+    public AsyncTaskManager(FileBackedTaskManager delegate, boolean durable) {
+        this(delegate, durable ? delegate : null);
+    }
+
+    private AsyncTaskManager(TaskManager delegate, FileBackedTaskManager durableTarget) {
+        this.delegate = delegate;
+        this.durableTarget = durableTarget;
+        this.writer = new Thread(this::run, "task-manager-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    private void run() {
+        List<Request<?>> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            boolean mutated = false;
+            for (Request<?> request : batch) {
+                if (request == STOP) {
+                    stopping = true;
+                    continue;
+                }
+                request.apply(delegate);
+                mutated |= request.mutation && request.error == null;
+            }
+            RuntimeException flushError = null;
+            if (mutated && durableTarget != null) {
+                try {
+                    durableTarget.flush();
+                } catch (RuntimeException e) {
+                    flushError = e;
+                }
+            }
+            for (Request<?> request : batch) {
+                if (request != STOP) {
+                    request.complete(flushError);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Function<TaskManager, T> action, boolean mutation) {
+        Request<T> request = new Request<>(action, mutation);
+        synchronized (queue) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("AsyncTaskManager закрыт"));
+            }
+            queue.add(request);
+        }
+        return request.future;
+    }
+
+    private <T> CompletableFuture<T> read(Function<TaskManager, T> action) {
+        return submit(action, false);
+    }
+
+    private <T> CompletableFuture<T> write(Function<TaskManager, T> action) {
+        return submit(action, true);
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    // Выполняет всё, что уже поставлено в очередь, и останавливает писателя; сам менеджер не закрывает
+    @Override
+    public void close() {
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(STOP);
+        }
+        if (Thread.currentThread() != writer) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public CompletableFuture<List<Task>> getPrioritizedTasks() {
+        return read(TaskManager::getPrioritizedTasks);
+    }
+
+    public CompletableFuture<List<Task>> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        return read(manager -> manager.getTasksBetween(from, to));
+    }
+
+    public CompletableFuture<List<Task>> getNextTasks(LocalDateTime from, int count) {
+        return read(manager -> manager.getNextTasks(from, count));
+    }
+
+    public CompletableFuture<List<Task>> getTasksOn(LocalDate day) {
+        return read(manager -> manager.getTasksOn(day));
+    }
+
+    public CompletableFuture<List<Task>> getAllTasks() {
+        return read(TaskManager::getAllTasks);
+    }
+
+    public CompletableFuture<List<Epic>> getAllEpics() {
+        return read(TaskManager::getAllEpics);
+    }
+
+    public CompletableFuture<List<Subtask>> getAllSubtasks() {
+        return read(TaskManager::getAllSubtasks);
+    }
+
+    public CompletableFuture<List<Task>> getTasksByStatus(TaskStatus status) {
+        return read(manager -> manager.getTasksByStatus(status));
+    }
+
+    public CompletableFuture<List<Epic>> getEpicsByStatus(TaskStatus status) {
+        return read(manager -> manager.getEpicsByStatus(status));
+    }
+
+    public CompletableFuture<List<Subtask>> getSubtasksByStatus(TaskStatus status) {
+        return read(manager -> manager.getSubtasksByStatus(status));
+    }
+
+    public CompletableFuture<Map<TaskStatus, Integer>> countByStatus() {
+        return read(TaskManager::countByStatus);
+    }
+
+    public CompletableFuture<Map<TaskStatus, Integer>> countByStatus(TaskType type) {
+        return read(manager -> manager.countByStatus(type));
+    }
+
+    public CompletableFuture<Void> removeAllTasks() {
+        return write(manager -> {
+            manager.removeAllTasks();
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> removeAllEpics() {
+        return write(manager -> {
+            manager.removeAllEpics();
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> removeAllSubtasks() {
+        return write(manager -> {
+            manager.removeAllSubtasks();
+            return null;
+        });
+    }
+
+    // Просмотр по id пишет в историю, поэтому тоже идёт через писателя
+    public CompletableFuture<Task> getTaskById(int id) {
+        return read(manager -> manager.getTaskById(id));
+    }
+
+    public CompletableFuture<Epic> getEpicById(int id) {
+        return read(manager -> manager.getEpicById(id));
+    }
+
+    public CompletableFuture<Subtask> getSubtaskById(int id) {
+        return read(manager -> manager.getSubtaskById(id));
+    }
+
+    public CompletableFuture<Task> generateTask(Task task) {
+        return write(manager -> manager.generateTask(task));
+    }
+
+    public CompletableFuture<Epic> generateEpic(Epic epic) {
+        return write(manager -> manager.generateEpic(epic));
+    }
+
+    public CompletableFuture<Subtask> generateSubtask(Subtask subtask) {
+        return write(manager -> manager.generateSubtask(subtask));
+    }
+
+    public CompletableFuture<Boolean> updateTask(Task task) {
+        return write(manager -> manager.updateTask(task));
+    }
+
+    public CompletableFuture<Boolean> updateEpic(Epic newEpic) {
+        return write(manager -> manager.updateEpic(newEpic));
+    }
+
+    public CompletableFuture<Boolean> updateSubtask(Subtask newSubtask) {
+        return write(manager -> manager.updateSubtask(newSubtask));
+    }
+
+    public CompletableFuture<Void> deleteTask(int id) {
+        return write(manager -> {
+            manager.deleteTask(id);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteEpic(int id) {
+        return write(manager -> {
+            manager.deleteEpic(id);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteSubtask(int id) {
+        return write(manager -> {
+            manager.deleteSubtask(id);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<Task>> generateAll(List<? extends Task> items) {
+        return write(manager -> manager.generateAll(items));
+    }
+
+    public CompletableFuture<Void> updateAll(List<? extends Task> items) {
+        return write(manager -> {
+            manager.updateAll(items);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Integer> deleteAll(Collection<Integer> ids) {
+        return write(manager -> manager.deleteAll(ids));
+    }
+
+    public CompletableFuture<List<Subtask>> getSubtasksByEpic(int epicId) {
+        return read(manager -> manager.getSubtasksByEpic(epicId));
+    }
+
+    public CompletableFuture<List<Task>> getHistory() {
+        return read(TaskManager::getHistory);
+    }
+
+    public CompletableFuture<List<Task>> getHistory(int offset, int limit) {
+        return read(manager -> manager.getHistory(offset, limit));
+    }
+
+    public CompletableFuture<List<Task>> getRecentHistory(int count) {
+        return read(manager -> manager.getRecentHistory(count));
+    }
+}
@@ -0,0 +1,60 @@
+package managers;
+
+import tasks.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Хранит доску в двоичном снимке BinaryTaskFormat вместо CSV.
+ * CSV остаётся форматом обмена: exportToCsv и importFromCsv.
+ */
+public class BinaryFileBackedTaskManager extends FileBackedTaskManager {
+
+    public BinaryFileBackedTaskManager(File file) {
+        super(file);
+    }
+
+    public BinaryFileBackedTaskManager(File file, FlushPolicy flushPolicy) {
+        super(file, flushPolicy);
+    }
+
+    protected BinaryFileBackedTaskManager(File file, FlushPolicy flushPolicy, boolean verifyChecksum) {
+        super(file, flushPolicy, ForkJoinPool.commonPool(), verifyChecksum);
+    }
+
+    // Доска из CSV кладётся только туда, где не загрузилось ни одно поколение снимка,
+    // иначе она смешалась бы с уже сохранённой или затёрла бы резервную копию
+    public static BinaryFileBackedTaskManager importFromCsv(File csvFile, File file) {
+        BinaryFileBackedTaskManager manager = new BinaryFileBackedTaskManager(file);
+        if (manager.getSnapshotSource() != null) {
+            throw new IllegalArgumentException("Файл уже содержит доску: " + manager.getSnapshotSource());
+        }
+        FileBackedTaskManager source = new FileBackedTaskManager(csvFile);
+        List<Task> all = new ArrayList<>(source.getAllTasks());
+        all.addAll(source.getAllEpics());
+        all.addAll(source.getAllSubtasks());
+
+        manager.restore(all);
+        manager.save();
+        return manager;
+    }
+
+    @Override
+    protected void writeSnapshot(BoardSnapshot board, WritableByteChannel out) throws IOException {
+        BinaryTaskFormat.encode(board.getAllTasks(), board.getAllEpics(), board.getAllSubtasks(), out);
+    }
+
+    @Override
+    protected LoadedBoard readSnapshot(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return BinaryTaskFormat.decode(channel);
+        }
+    }
+}
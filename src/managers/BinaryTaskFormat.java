@@ -0,0 +1,366 @@
+package managers;
+
+import exceptions.ManagerSaveException;
+import tasks.*;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Двоичный формат снимка доски.
+ * <pre>
+ * заголовок:  magic(int) version(short)
+ * задачи:     count(int) { id(int) status(byte) name description startMinute(long) durationMinutes(long) }
+ * эпики:      count(int) { id(int) status(byte) name description }
+ * связи:      count(int) { epicId(int) size(int) { subtaskId(int) } }
+ * подзадачи:  count(int) { id(int) status(byte) name description startMinute(long) durationMinutes(long) }
+ * индекс:     { id(int) type(byte) offset(long) link(long) }, отсортирован по id (с версии 2)
+ * окончание:  indexOffset(long) indexCount(int) magic(int) (с версии 2)
+ * </pre>
+ * Строки пишутся как длина в байтах (int, -1 для null) и UTF-8, статус — номером (-1 для null).
+ * Время хранится в минутах от эпохи (UTC), отсутствующее значение — NO_VALUE. Секунды при сохранении отбрасываются.
+ * В индексе link — id эпика для подзадачи и смещение записи в разделе связей для эпика (-1, если её нет).
+ * Индекс позволяет MappedTaskStore читать отдельные записи, не разбирая весь файл.
+ * Снимок пишется в канал потоком через буфер фиксированного размера; в памяти копится только индекс.
+ */
+final class BinaryTaskFormat {
+    static final int MAGIC = 0x4B4E4242;
+    static final short VERSION = 2;
+    static final int INDEX_ENTRY_SIZE = 4 + 1 + 8 + 8;
+    static final int FOOTER_SIZE = 8 + 4 + 4;
+
+    static final long NO_VALUE = TaskTime.NONE;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private BinaryTaskFormat() {
+    }
+
+    static void encode(Collection<Task> tasks, Collection<Epic> epics, Collection<Subtask> subtasks,
+                       WritableByteChannel channel) throws IOException {
+        int total = tasks.size() + epics.size() + subtasks.size();
+        Encoder out = new Encoder(channel);
+        IndexBuilder index = new IndexBuilder(total);
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+
+        out.putInt(tasks.size());
+        for (Task task : tasks) {
+            index.add(task.getId(), TaskType.TASK, out.position(), -1);
+            writeCommon(out, task);
+            writeTime(out, task);
+        }
+
+        Map<Integer, Integer> epicEntries = new HashMap<>();
+        out.putInt(epics.size());
+        for (Epic epic : epics) {
+            epicEntries.put(epic.getId(), index.add(epic.getId(), TaskType.EPIC, out.position(), -1));
+            writeCommon(out, epic);
+        }
+
+        Map<Integer, List<Subtask>> adjacency = new LinkedHashMap<>();
+        for (Subtask subtask : subtasks) {
+            adjacency.computeIfAbsent(subtask.getEpicId(), id -> new ArrayList<>()).add(subtask);
+        }
+        out.putInt(adjacency.size());
+        for (Map.Entry<Integer, List<Subtask>> entry : adjacency.entrySet()) {
+            Integer epicEntry = epicEntries.get(entry.getKey());
+            if (epicEntry != null) {
+                index.setLink(epicEntry, out.position());
+            }
+            out.putInt(entry.getKey());
+            out.putInt(entry.getValue().size());
+            for (Subtask subtask : entry.getValue()) {
+                out.putInt(subtask.getId());
+            }
+        }
+
+        out.putInt(subtasks.size());
+        for (Subtask subtask : subtasks) {
+            index.add(subtask.getId(), TaskType.SUBTASK, out.position(), subtask.getEpicId());
+            writeCommon(out, subtask);
+            writeTime(out, subtask);
+        }
+
+        long indexOffset = out.position();
+        index.writeTo(out);
+        out.putLong(indexOffset);
+        out.putInt(index.size());
+        out.putInt(MAGIC);
+        out.flush();
+    }
+
+    // Записи сразу раскладываются по таблицам id, которые restore заберёт целиком
+    static LoadedBoard decode(ReadableByteChannel channel) throws IOException {
+        Decoder in = new Decoder(channel);
+        if (in.getInt() != MAGIC) {
+            throw new ManagerSaveException("Файл не является двоичным снимком задач");
+        }
+        short version = in.getShort();
+        if (version < 1 || version > VERSION) {
+            throw new ManagerSaveException("Неподдерживаемая версия снимка: " + version);
+        }
+
+        LoadedBoard result = new LoadedBoard();
+        StringPool strings = new StringPool();
+        int taskCount = in.getInt();
+        for (int i = 0; i < taskCount; i++) {
+            int id = in.getInt();
+            TaskStatus status = readStatus(in);
+            String name = strings.get(in.getString());
+            String description = strings.get(in.getString());
+            LocalDateTime startTime = readStartTime(in);
+            Task task = new Task(name, description, status, readDuration(in), startTime);
+            task.setId(id);
+            result.add(task);
+        }
+
+        int epicCount = in.getInt();
+        for (int i = 0; i < epicCount; i++) {
+            int id = in.getInt();
+            TaskStatus status = readStatus(in);
+            String name = strings.get(in.getString());
+            Epic epic = new Epic(name, strings.get(in.getString()));
+            epic.setId(id);
+            epic.setTaskStatus(status);
+            result.add(epic);
+        }
+
+        Map<Integer, Integer> epicBySubtask = new HashMap<>();
+        int adjacencyCount = in.getInt();
+        for (int i = 0; i < adjacencyCount; i++) {
+            int epicId = in.getInt();
+            int size = in.getInt();
+            for (int j = 0; j < size; j++) {
+                epicBySubtask.put(in.getInt(), epicId);
+            }
+        }
+
+        int subtaskCount = in.getInt();
+        for (int i = 0; i < subtaskCount; i++) {
+            int id = in.getInt();
+            TaskStatus status = readStatus(in);
+            String name = strings.get(in.getString());
+            String description = strings.get(in.getString());
+            Integer epicId = epicBySubtask.get(id);
+            if (epicId == null) {
+                throw new ManagerSaveException("Подзадача " + id + " не привязана к эпику");
+            }
+            LocalDateTime startTime = readStartTime(in);
+            Subtask subtask = new Subtask(name, description, epicId, readDuration(in), startTime);
+            subtask.setTaskStatus(status);
+            subtask.setId(id);
+            result.add(subtask);
+        }
+        return result;
+    }
+
+    private static void writeCommon(Encoder out, Task task) throws IOException {
+        out.putInt(task.getId());
+        TaskStatus status = task.getTaskStatus();
+        out.putByte((byte) (status == null ? -1 : status.ordinal()));
+        out.putString(task.getName());
+        out.putString(task.getDescription());
+    }
+
+    private static void writeTime(Encoder out, Task task) throws IOException {
+        out.putLong(task.getStartMinute());
+        out.putLong(task.getDurationMinutes());
+    }
+
+    private static TaskStatus readStatus(Decoder in) throws IOException {
+        byte code = in.getByte();
+        if (code < -1 || code >= STATUSES.length) {
+            throw new ManagerSaveException("Неизвестный статус в снимке: " + code);
+        }
+        return code < 0 ? null : STATUSES[code];
+    }
+
+    private static LocalDateTime readStartTime(Decoder in) throws IOException {
+        return TaskTime.toDateTime(in.getLong());
+    }
+
+    private static Duration readDuration(Decoder in) throws IOException {
+        long minutes = in.getLong();
+        return minutes == NO_VALUE || minutes <= 0 ? null : Duration.ofMinutes(minutes);
+    }
+
+    private static final class IndexBuilder {
+        private final int[] ids;
+        private final byte[] types;
+        private final long[] offsets;
+        private final long[] links;
+        private int size;
+
+        IndexBuilder(int capacity) {
+            ids = new int[capacity];
+            types = new byte[capacity];
+            offsets = new long[capacity];
+            links = new long[capacity];
+        }
+
+        int add(int id, TaskType type, long offset, long link) {
+            ids[size] = id;
+            types[size] = (byte) type.ordinal();
+            offsets[size] = offset;
+            links[size] = link;
+            return size++;
+        }
+
+        void setLink(int entry, long link) {
+            links[entry] = link;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(Encoder out) throws IOException {
+            long[] order = new long[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = ((long) ids[i] << 32) | i;
+            }
+            Arrays.sort(order);
+            for (long key : order) {
+                int entry = (int) key;
+                out.putInt(ids[entry]);
+                out.putByte(types[entry]);
+                out.putLong(offsets[entry]);
+                out.putLong(links[entry]);
+            }
+        }
+    }
+
+    // Смещение считается от начала снимка: сколько уже ушло в канал плюс заполненная часть буфера
+    private static final class Encoder {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        private long written;
+
+        Encoder(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        void putByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void putShort(short value) throws IOException {
+            ensure(2);
+            buffer.putShort(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        // Строка длиннее буфера уходит в канал по частям
+        void putString(String value) throws IOException {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+
+        long position() {
+            return written + buffer.position();
+        }
+    }
+
+    private static final class Decoder {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+        Decoder(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.flip();
+        }
+
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Снимок обрывается раньше времени");
+                }
+            }
+            buffer.flip();
+        }
+
+        byte getByte() throws IOException {
+            require(1);
+            return buffer.get();
+        }
+
+        short getShort() throws IOException {
+            require(2);
+            return buffer.getShort();
+        }
+
+        int getInt() throws IOException {
+            require(4);
+            return buffer.getInt();
+        }
+
+        long getLong() throws IOException {
+            require(8);
+            return buffer.getLong();
+        }
+
+        String getString() throws IOException {
+            int length = getInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                require(1);
+                int chunk = Math.min(buffer.remaining(), length - offset);
+                buffer.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package managers;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskTime;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Неизменяемое состояние доски на момент одной завершённой операции менеджера.
+ * Снимок получают за O(1) и читают из любого потока без блокировок: менеджер не меняет
+ * ни сам снимок, ни лежащие в нём копии задач, а следующие изменения создают новую версию.
+ * Копии задач общие для всех читателей снимка, поэтому менять их нельзя.
+ * Эпики в снимке хранятся без подзадач — их возвращает getSubtasksByEpic.
+ * Чтение по id не попадает в историю просмотров.
+ */
+public final class BoardSnapshot {
+    private static final Comparator<Task> BY_START = Comparator.comparingLong(Task::getStartMinute)
+            .thenComparingInt(Task::getId);
+
+    private final long version;
+    private final PersistentIntMap<Task> tasks;
+    private final PersistentIntMap<Epic> epics;
+    private final PersistentIntMap<Subtask> subtasks;
+    private final PersistentIntMap<PersistentIntMap<Subtask>> subtasksByEpic;
+    private volatile List<Task> prioritized;
+
+    BoardSnapshot(long version, PersistentIntMap<Task> tasks, PersistentIntMap<Epic> epics,
+                  PersistentIntMap<Subtask> subtasks, PersistentIntMap<PersistentIntMap<Subtask>> subtasksByEpic) {
+        this.version = version;
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subtasks = subtasks;
+        this.subtasksByEpic = subtasksByEpic;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // Число задач, эпиков и подзадач вместе
+    public int size() {
+        return tasks.size() + epics.size() + subtasks.size();
+    }
+
+    // Обходит задачи, затем эпики, затем подзадачи по возрастанию id, не собирая их в список
+    void forEachRecord(Consumer<? super Task> action) {
+        tasks.forEach(action);
+        epics.forEach(action);
+        subtasks.forEach(action);
+    }
+
+    public Task getTaskById(int id) {
+        return tasks.get(id);
+    }
+
+    public Epic getEpicById(int id) {
+        return epics.get(id);
+    }
+
+    public Subtask getSubtaskById(int id) {
+        return subtasks.get(id);
+    }
+
+    public List<Task> getAllTasks() {
+        return toList(tasks);
+    }
+
+    public List<Epic> getAllEpics() {
+        return toList(epics);
+    }
+
+    public List<Subtask> getAllSubtasks() {
+        return toList(subtasks);
+    }
+
+    public List<Subtask> getSubtasksByEpic(int epicId) {
+        PersistentIntMap<Subtask> epicSubtasks = subtasksByEpic.get(epicId);
+        return epicSubtasks != null ? toList(epicSubtasks) : new ArrayList<>();
+    }
+
+    // Порядок считается при первом запросе и запоминается: снимок не меняется
+    public List<Task> getPrioritizedTasks() {
+        List<Task> result = prioritized;
+        if (result == null) {
+            result = new ArrayList<>();
+            List<Task> scheduled = result;
+            tasks.forEach(task -> addScheduled(task, scheduled));
+            subtasks.forEach(subtask -> addScheduled(subtask, scheduled));
+            result.sort(BY_START);
+            prioritized = result;
+        }
+        return new ArrayList<>(result);
+    }
+
+    private static void addScheduled(Task task, List<Task> result) {
+        if (task.getStartMinute() != TaskTime.NONE) {
+            result.add(task);
+        }
+    }
+
+    private static <T> List<T> toList(PersistentIntMap<T> map) {
+        List<T> result = new ArrayList<>(map.size());
+        map.forEach(result::add);
+        return result;
+    }
+}
@@ -0,0 +1,164 @@
+package managers;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Копия доски из неизменяемых карт, которую менеджер ведёт рядом со своими таблицами.
+ * Каждое изменение копирует задачу и заменяет путь к ней в карте; publish после завершённой
+ * операции выставляет новую версию одной volatile-записью, поэтому читатель снимка никогда
+ * не видит операцию наполовину. Менять версии может только один поток.
+ * Если у ленты есть подписчики, изменения операции собираются в события и уходят в ленту
+ * одной пачкой вместе с версией; прежнее состояние задачи берётся из предыдущей версии карты.
+ * Запись, которая ничего не поменяла (например, пересчёт эпика с тем же итогом), события не даёт.
+ */
+class BoardVersions {
+    private PersistentIntMap<Task> tasks = PersistentIntMap.empty();
+    private PersistentIntMap<Epic> epics = PersistentIntMap.empty();
+    private PersistentIntMap<Subtask> subtasks = PersistentIntMap.empty();
+    private PersistentIntMap<PersistentIntMap<Subtask>> subtasksByEpic = PersistentIntMap.empty();
+    private long version;
+    private boolean changed;
+    private volatile BoardSnapshot current = new BoardSnapshot(0, tasks, epics, subtasks, subtasksByEpic);
+    private final TaskEventFeed feed;
+    private final List<TaskEvent> events = new ArrayList<>();
+
+    BoardVersions(TaskEventFeed feed) {
+        this.feed = feed;
+    }
+
+    public void put(Task task) {
+        TaskType type = TaskStatusIndex.typeOf(task);
+        switch (type) {
+            case EPIC:
+                Epic epic = ((Epic) task).copy();
+                Epic previousEpic = epics.get(epic.getId());
+                if (sameContent(previousEpic, epic)) {
+                    return;
+                }
+                epics = epics.plus(epic.getId(), epic);
+                record(type, epic, previousEpic);
+                break;
+            case SUBTASK:
+                Subtask subtask = ((Subtask) task).copy();
+                Subtask previous = subtasks.get(subtask.getId());
+                if (sameContent(previous, subtask)) {
+                    return;
+                }
+                if (previous != null && previous.getEpicId() != subtask.getEpicId()) {
+                    detach(previous);
+                }
+                subtasks = subtasks.plus(subtask.getId(), subtask);
+                PersistentIntMap<Subtask> epicSubtasks = subtasksByEpic.get(subtask.getEpicId());
+                subtasksByEpic = subtasksByEpic.plus(subtask.getEpicId(),
+                        (epicSubtasks != null ? epicSubtasks : PersistentIntMap.<Subtask>empty())
+                                .plus(subtask.getId(), subtask));
+                record(type, subtask, previous);
+                break;
+            default:
+                Task copy = task.copy();
+                Task previousTask = tasks.get(copy.getId());
+                if (sameContent(previousTask, copy)) {
+                    return;
+                }
+                tasks = tasks.plus(copy.getId(), copy);
+                record(type, copy, previousTask);
+        }
+        changed = true;
+    }
+
+    private static boolean sameContent(Task previous, Task task) {
+        if (previous == null || previous.getTaskStatus() != task.getTaskStatus()
+                || previous.getStartMinute() != task.getStartMinute()
+                || previous.getEndMinute() != task.getEndMinute()
+                || previous.getDurationMinutes() != task.getDurationMinutes()
+                || !Objects.equals(previous.getName(), task.getName())
+                || !Objects.equals(previous.getDescription(), task.getDescription())) {
+            return false;
+        }
+        return !(task instanceof Subtask) || ((Subtask) previous).getEpicId() == ((Subtask) task).getEpicId();
+    }
+
+    private void record(TaskType type, Task task, Task previous) {
+        if (feed.hasSubscribers()) {
+            TaskEvent.Kind kind = task == null ? TaskEvent.Kind.DELETED
+                    : previous == null ? TaskEvent.Kind.CREATED : TaskEvent.Kind.UPDATED;
+            events.add(new TaskEvent(kind, type, version + 1, task, previous));
+        }
+    }
+
+    private <T extends Task> void recordDeleted(TaskType type, PersistentIntMap<T> removed) {
+        if (feed.hasSubscribers()) {
+            removed.forEach(task -> record(type, null, task));
+        }
+    }
+
+    public void remove(int id) {
+        Subtask subtask = subtasks.get(id);
+        Epic epic = epics.get(id);
+        Task task = tasks.get(id);
+        if (subtask != null) {
+            detach(subtask);
+            subtasks = subtasks.minus(id);
+            record(TaskType.SUBTASK, null, subtask);
+        } else if (epic != null) {
+            epics = epics.minus(id);
+            subtasksByEpic = subtasksByEpic.minus(id);
+            record(TaskType.EPIC, null, epic);
+        } else if (task != null) {
+            tasks = tasks.minus(id);
+            record(TaskType.TASK, null, task);
+        } else {
+            return;
+        }
+        changed = true;
+    }
+
+    private void detach(Subtask subtask) {
+        PersistentIntMap<Subtask> epicSubtasks = subtasksByEpic.get(subtask.getEpicId());
+        if (epicSubtasks == null) {
+            return;
+        }
+        epicSubtasks = epicSubtasks.minus(subtask.getId());
+        subtasksByEpic = epicSubtasks.isEmpty() ? subtasksByEpic.minus(subtask.getEpicId())
+                : subtasksByEpic.plus(subtask.getEpicId(), epicSubtasks);
+    }
+
+    public void clear(TaskType type) {
+        if (type == TaskType.TASK) {
+            recordDeleted(TaskType.TASK, tasks);
+            tasks = PersistentIntMap.empty();
+        } else {
+            recordDeleted(TaskType.SUBTASK, subtasks);
+            subtasks = PersistentIntMap.empty();
+            subtasksByEpic = PersistentIntMap.empty();
+            if (type == TaskType.EPIC) {
+                recordDeleted(TaskType.EPIC, epics);
+                epics = PersistentIntMap.empty();
+            }
+        }
+        changed = true;
+    }
+
+    public void publish() {
+        if (changed) {
+            current = new BoardSnapshot(++version, tasks, epics, subtasks, subtasksByEpic);
+            changed = false;
+        }
+        if (!events.isEmpty()) {
+            List<TaskEvent> published = new ArrayList<>(events);
+            events.clear();
+            feed.publish(published);
+        }
+    }
+
+    public BoardSnapshot current() {
+        return current;
+    }
+}
@@ -0,0 +1,749 @@
+package managers;
+
+import exceptions.BatchValidationException;
+import history.HistoryManager;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskTime;
+import tasks.TaskType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Потокобезопасная реализация TaskManager.
+ * Задачи хранятся в ConcurrentHashMap, id выдаёт AtomicInteger. Изменения эпика и его подзадач
+ * выполняются под замком полосы, выбранной по id эпика, поэтому разные эпики меняются параллельно.
+ * Расписание (проверка пересечений и список по приоритету) общее для всей доски и защищено
+ * отдельным замком, который берётся только для задач со временем и всегда после замка полосы.
+ * Индекс по статусам тоже общий и защищён собственным монитором; задача попадает в индекс
+ * до того, как становится видна в таблице, поэтому параллельное удаление не оставляет в нём мусора.
+ * Пакетные операции и removeAll* берут все замки полос и замок расписания, поэтому проверяются
+ * и применяются без вмешательства других изменений эпиков и расписания, а читатели расписания
+ * и эпиков не видят доску очищенной наполовину.
+ * Потоки stream* идут по таблицам напрямую и слабо согласованы, как итераторы ConcurrentHashMap.
+ * Статус и время эпика пересчитываются под замком полосы, поэтому эпики отдаются наружу копиями,
+ * снятыми под тем же замком; такая же копия попадает в историю просмотров.
+ */
+public class ConcurrentTaskManager implements TaskManager {
+    private static final int STRIPES = 64;
+
+    private final Map<Integer, Task> tasks = new ConcurrentHashMap<>();
+    private final Map<Integer, Epic> epics = new ConcurrentHashMap<>();
+    private final Map<Integer, Subtask> subtasks = new ConcurrentHashMap<>();
+    private final AtomicInteger idCounter = new AtomicInteger();
+    private final HistoryManager historyManager = Managers.getDefaultHistory();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+    private final TaskIntervalTree timeIndex = new TaskIntervalTree();
+    private final TaskStatusIndex statusIndex = new TaskStatusIndex();
+
+    public ConcurrentTaskManager() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    private static int stripe(int id) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    private ReentrantLock lockFor(int id) {
+        return locks[stripe(id)];
+    }
+
+    private Epic copyOf(Epic epic) {
+        ReentrantLock lock = lockFor(epic.getId());
+        lock.lock();
+        try {
+            return epic.copy();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean isScheduled(Task task) {
+        return task != null && task.getStartMinute() != TaskTime.NONE;
+    }
+
+    private void addToSchedule(Task task) {
+        timeIndex.add(task);
+    }
+
+    private void removeFromSchedule(Task task) {
+        timeIndex.remove(task.getId());
+    }
+
+    private void checkOverlap(Task task, String message) {
+        long end = task.getEndMinute();
+        if (end != TaskTime.NONE && timeIndex.hasOverlap(task.getStartMinute(), end, task.getId())) {
+            throw new IllegalArgumentException(message + " (ID=" + task.getId() + ")");
+        }
+    }
+
+    private void replaceInSchedule(Task oldTask, Task newTask, String message) {
+        if (!isScheduled(oldTask) && !isScheduled(newTask)) {
+            return;
+        }
+        scheduleLock.lock();
+        try {
+            checkOverlap(newTask, message);
+            if (oldTask != null) {
+                removeFromSchedule(oldTask);
+            }
+            addToSchedule(newTask);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    private void unschedule(Task task) {
+        if (!isScheduled(task)) {
+            return;
+        }
+        scheduleLock.lock();
+        try {
+            removeFromSchedule(task);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    private void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        scheduleLock.lock();
+    }
+
+    private void unlockAll() {
+        scheduleLock.unlock();
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    private void index(Task task) {
+        synchronized (statusIndex) {
+            statusIndex.add(task);
+        }
+    }
+
+    private void unindex(int id) {
+        synchronized (statusIndex) {
+            statusIndex.remove(id);
+        }
+    }
+
+    private void refreshEpic(Epic epic) {
+        epic.updateStatus();
+        epic.updateEpicTime();
+        index(epic);
+    }
+
+    private void addHistory(Task task) {
+        synchronized (historyManager) {
+            historyManager.add(task);
+        }
+    }
+
+    private void removeHistory(int id) {
+        synchronized (historyManager) {
+            historyManager.remove(id);
+        }
+    }
+
+    public List<Task> getOverlappingTasks(LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null || !start.isBefore(end)) {
+            return new ArrayList<>();
+        }
+        scheduleLock.lock();
+        try {
+            return timeIndex.findOverlapping(TaskTime.toMinutes(start), TaskTime.toMinutesCeiling(end));
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        scheduleLock.lock();
+        try {
+            return timeIndex.toList();
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            return new ArrayList<>();
+        }
+        scheduleLock.lock();
+        try {
+            return timeIndex.findStartingBetween(TaskTime.toMinutesCeiling(from), TaskTime.toMinutesCeiling(to),
+                    Integer.MAX_VALUE);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getNextTasks(LocalDateTime from, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Количество задач не может быть отрицательным");
+        }
+        scheduleLock.lock();
+        try {
+            return timeIndex.findStartingBetween(TaskTime.toMinutesCeiling(from), Long.MAX_VALUE, count);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getTasksOn(LocalDate day) {
+        return getTasksBetween(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return new ArrayList<>(tasks.values());
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        List<Epic> result = new ArrayList<>(epics.size());
+        for (Epic epic : epics.values()) {
+            result.add(copyOf(epic));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return new ArrayList<>(subtasks.values());
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return tasks.values().stream();
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return epics.values().stream().map(this::copyOf);
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return subtasks.values().stream();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasksByEpic(int epicId) {
+        // Подзадачи эпика меняются под замком полосы, поэтому копируем их, а не читаем лениво
+        return getSubtasksByEpic(epicId).stream();
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status) {
+        synchronized (statusIndex) {
+            return statusIndex.get(TaskType.TASK, status);
+        }
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(TaskStatus status) {
+        List<Epic> live;
+        synchronized (statusIndex) {
+            live = statusIndex.get(TaskType.EPIC, status);
+        }
+        live.replaceAll(this::copyOf);
+        return live;
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        synchronized (statusIndex) {
+            return statusIndex.get(TaskType.SUBTASK, status);
+        }
+    }
+
+    @Override
+    public Map<TaskStatus, Integer> countByStatus() {
+        synchronized (statusIndex) {
+            return statusIndex.countByStatus(null);
+        }
+    }
+
+    @Override
+    public Map<TaskStatus, Integer> countByStatus(TaskType type) {
+        synchronized (statusIndex) {
+            return statusIndex.countByStatus(type);
+        }
+    }
+
+    // Задачи без времени добавляются без замков, поэтому удаляются по одной, а не очисткой таблицы
+    @Override
+    public void removeAllTasks() {
+        List<Integer> removed = new ArrayList<>();
+        lockAll();
+        try {
+            for (Integer id : tasks.keySet()) {
+                Task task = tasks.remove(id);
+                if (task != null) {
+                    removeFromSchedule(task);
+                    unindex(id);
+                    removed.add(id);
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+        removed.forEach(this::removeHistory);
+    }
+
+    @Override
+    public void removeAllEpics() {
+        List<Integer> removed = new ArrayList<>();
+        lockAll();
+        try {
+            for (Integer id : epics.keySet()) {
+                Epic epic = epics.remove(id);
+                if (epic == null) {
+                    continue;
+                }
+                unindex(id);
+                removed.add(id);
+                for (Subtask subtask : epic.getSubtasks()) {
+                    subtasks.remove(subtask.getId());
+                    unindex(subtask.getId());
+                    removeFromSchedule(subtask);
+                    removed.add(subtask.getId());
+                }
+                epic.clearSubtasks();
+            }
+        } finally {
+            unlockAll();
+        }
+        removed.forEach(this::removeHistory);
+    }
+
+    @Override
+    public void removeAllSubtasks() {
+        List<Integer> removed = new ArrayList<>();
+        lockAll();
+        try {
+            Set<Epic> affectedEpics = new LinkedHashSet<>();
+            for (Subtask subtask : subtasks.values()) {
+                subtasks.remove(subtask.getId());
+                unindex(subtask.getId());
+                removeFromSchedule(subtask);
+                Epic parentEpic = epics.get(subtask.getEpicId());
+                if (parentEpic != null) {
+                    parentEpic.removeSubtask(subtask);
+                    affectedEpics.add(parentEpic);
+                }
+                removed.add(subtask.getId());
+            }
+            affectedEpics.forEach(this::refreshEpic);
+        } finally {
+            unlockAll();
+        }
+        removed.forEach(this::removeHistory);
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        Task task = tasks.get(id);
+        if (task != null) {
+            addHistory(task);
+        }
+        return task;
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        Epic epic = epics.get(id);
+        if (epic == null) {
+            return null;
+        }
+        Epic copy = copyOf(epic);
+        addHistory(copy);
+        return copy;
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        Subtask subtask = subtasks.get(id);
+        if (subtask != null) {
+            addHistory(subtask);
+        }
+        return subtask;
+    }
+
+    @Override
+    public TaskType getTypeById(int id) {
+        if (tasks.containsKey(id)) {
+            return TaskType.TASK;
+        }
+        if (epics.containsKey(id)) {
+            return TaskType.EPIC;
+        }
+        return subtasks.containsKey(id) ? TaskType.SUBTASK : null;
+    }
+
+    @Override
+    public Task generateTask(Task task) {
+        if (!isScheduled(task)) {
+            task.setId(idCounter.incrementAndGet());
+            index(task);
+            tasks.put(task.getId(), task);
+            return task;
+        }
+        scheduleLock.lock();
+        try {
+            checkOverlap(task, "Невозможно добавить задачу: пересечение по времени с другой задачей");
+            task.setId(idCounter.incrementAndGet());
+            index(task);
+            tasks.put(task.getId(), task);
+            addToSchedule(task);
+        } finally {
+            scheduleLock.unlock();
+        }
+        return task;
+    }
+
+    @Override
+    public Epic generateEpic(Epic epic) {
+        epic.setId(idCounter.incrementAndGet());
+        index(epic);
+        epics.put(epic.getId(), epic);
+        return epic;
+    }
+
+    @Override
+    public Subtask generateSubtask(Subtask subtask) {
+        int epicId = subtask.getEpicId();
+        ReentrantLock lock = lockFor(epicId);
+        lock.lock();
+        try {
+            Epic parentEpic = epics.get(epicId);
+            if (parentEpic == null) {
+                throw new IllegalArgumentException("Эпик с ID " + epicId + " не существует");
+            }
+            if (isScheduled(subtask)) {
+                scheduleLock.lock();
+                try {
+                    checkOverlap(subtask, "Невозможно добавить подзадачу: пересечение по времени с другой задачей");
+                    subtask.setId(idCounter.incrementAndGet());
+                    addToSchedule(subtask);
+                } finally {
+                    scheduleLock.unlock();
+                }
+            } else {
+                subtask.setId(idCounter.incrementAndGet());
+            }
+            index(subtask);
+            subtasks.put(subtask.getId(), subtask);
+            parentEpic.addSubtask(subtask);
+            refreshEpic(parentEpic);
+            return subtask;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean updateTask(Task task) {
+        ReentrantLock lock = lockFor(task.getId());
+        lock.lock();
+        try {
+            Task oldTask = tasks.get(task.getId());
+            if (oldTask == null) {
+                return false;
+            }
+            replaceInSchedule(oldTask, task, "Невозможно обновить задачу: пересечение по времени с другой задачей");
+            index(task);
+            tasks.put(task.getId(), task);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean updateEpic(Epic newEpic) {
+        ReentrantLock lock = lockFor(newEpic.getId());
+        lock.lock();
+        try {
+            Epic existingEpic = epics.get(newEpic.getId());
+            if (existingEpic == null) {
+                return false;
+            }
+            existingEpic.setName(newEpic.getName());
+            existingEpic.setDescription(newEpic.getDescription());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask newSubtask) {
+        while (true) {
+            Subtask existingSubtask = subtasks.get(newSubtask.getId());
+            if (existingSubtask == null) {
+                return false;
+            }
+            int oldStripe = stripe(existingSubtask.getEpicId());
+            int newStripe = stripe(newSubtask.getEpicId());
+            ReentrantLock first = locks[Math.min(oldStripe, newStripe)];
+            ReentrantLock second = locks[Math.max(oldStripe, newStripe)];
+            first.lock();
+            second.lock();
+            try {
+                if (subtasks.get(newSubtask.getId()) != existingSubtask) {
+                    continue;
+                }
+                Epic parentEpic = epics.get(existingSubtask.getEpicId());
+                Epic newEpic = epics.get(newSubtask.getEpicId());
+                if (newEpic == null) {
+                    throw new IllegalArgumentException("Эпик с ID " + newSubtask.getEpicId() + " не существует");
+                }
+                replaceInSchedule(existingSubtask, newSubtask,
+                        "Невозможно обновить подзадачу: пересечение по времени с другой задачей");
+                parentEpic.removeSubtask(existingSubtask);
+                newEpic.addSubtask(newSubtask);
+                index(newSubtask);
+                subtasks.put(newSubtask.getId(), newSubtask);
+                refreshEpic(parentEpic);
+                if (newEpic != parentEpic) {
+                    refreshEpic(newEpic);
+                }
+                return true;
+            } finally {
+                second.unlock();
+                first.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            unschedule(tasks.remove(id));
+            unindex(id);
+        } finally {
+            lock.unlock();
+        }
+        removeHistory(id);
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Epic epic = epics.remove(id);
+            if (epic == null) {
+                return;
+            }
+            removeHistory(id);
+            unindex(id);
+            for (Subtask subtask : epic.getSubtasks()) {
+                subtasks.remove(subtask.getId());
+                unindex(subtask.getId());
+                unschedule(subtask);
+                removeHistory(subtask.getId());
+            }
+            epic.clearSubtasks();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        while (true) {
+            Subtask subtask = subtasks.get(id);
+            if (subtask == null) {
+                return;
+            }
+            ReentrantLock lock = lockFor(subtask.getEpicId());
+            lock.lock();
+            try {
+                if (!subtasks.remove(id, subtask)) {
+                    continue;
+                }
+                Epic parentEpic = epics.get(subtask.getEpicId());
+                unindex(id);
+                if (parentEpic != null) {
+                    parentEpic.removeSubtask(subtask);
+                    refreshEpic(parentEpic);
+                }
+                unschedule(subtask);
+            } finally {
+                lock.unlock();
+            }
+            removeHistory(id);
+            return;
+        }
+    }
+
+    @Override
+    public List<Task> generateAll(List<? extends Task> items) {
+        lockAll();
+        try {
+            Map<Integer, String> errors = TaskBatch.validateGenerate(items, epics::containsKey, timeIndex::hasOverlap);
+            if (!errors.isEmpty()) {
+                throw new BatchValidationException(errors);
+            }
+            Set<Epic> affectedEpics = new LinkedHashSet<>();
+            List<Task> result = new ArrayList<>(items.size());
+            for (Task item : items) {
+                item.setId(idCounter.incrementAndGet());
+                index(item);
+                if (item instanceof Epic) {
+                    epics.put(item.getId(), (Epic) item);
+                } else if (item instanceof Subtask) {
+                    Subtask subtask = (Subtask) item;
+                    Epic parentEpic = epics.get(subtask.getEpicId());
+                    subtasks.put(subtask.getId(), subtask);
+                    parentEpic.addSubtask(subtask);
+                    affectedEpics.add(parentEpic);
+                    addToSchedule(subtask);
+                } else {
+                    tasks.put(item.getId(), item);
+                    addToSchedule(item);
+                }
+                result.add(item);
+            }
+            affectedEpics.forEach(this::refreshEpic);
+            return result;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public void updateAll(List<? extends Task> items) {
+        lockAll();
+        try {
+            Map<Integer, String> errors = TaskBatch.validateUpdate(items, tasks::containsKey, epics::containsKey,
+                    subtasks::containsKey, timeIndex::hasOverlap);
+            if (!errors.isEmpty()) {
+                throw new BatchValidationException(errors);
+            }
+            Set<Epic> affectedEpics = new LinkedHashSet<>();
+            for (Task item : items) {
+                if (item instanceof Epic) {
+                    Epic existingEpic = epics.get(item.getId());
+                    existingEpic.setName(item.getName());
+                    existingEpic.setDescription(item.getDescription());
+                } else if (item instanceof Subtask) {
+                    Subtask newSubtask = (Subtask) item;
+                    Subtask existingSubtask = subtasks.get(newSubtask.getId());
+                    Epic parentEpic = epics.get(existingSubtask.getEpicId());
+                    Epic newEpic = epics.get(newSubtask.getEpicId());
+                    parentEpic.removeSubtask(existingSubtask);
+                    newEpic.addSubtask(newSubtask);
+                    removeFromSchedule(existingSubtask);
+                    addToSchedule(newSubtask);
+                    index(newSubtask);
+                    subtasks.put(newSubtask.getId(), newSubtask);
+                    affectedEpics.add(parentEpic);
+                    affectedEpics.add(newEpic);
+                } else {
+                    removeFromSchedule(tasks.get(item.getId()));
+                    addToSchedule(item);
+                    index(item);
+                    tasks.put(item.getId(), item);
+                }
+            }
+            affectedEpics.forEach(this::refreshEpic);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        lockAll();
+        try {
+            Set<Epic> affectedEpics = new LinkedHashSet<>();
+            int deleted = 0;
+            for (int id : ids) {
+                if (tasks.containsKey(id)) {
+                    deleteTask(id);
+                } else if (epics.containsKey(id)) {
+                    deleteEpic(id);
+                } else if (subtasks.containsKey(id)) {
+                    Subtask subtask = subtasks.remove(id);
+                    Epic parentEpic = epics.get(subtask.getEpicId());
+                    parentEpic.removeSubtask(subtask);
+                    affectedEpics.add(parentEpic);
+                    unindex(id);
+                    removeFromSchedule(subtask);
+                    removeHistory(id);
+                } else {
+                    continue;
+                }
+                deleted++;
+            }
+            for (Epic epic : affectedEpics) {
+                if (epics.containsKey(epic.getId())) {
+                    refreshEpic(epic);
+                }
+            }
+            return deleted;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByEpic(int epicId) {
+        ReentrantLock lock = lockFor(epicId);
+        lock.lock();
+        try {
+            Epic epic = epics.get(epicId);
+            return epic != null ? epic.getSubtasks() : new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        synchronized (historyManager) {
+            return historyManager.getHistory();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        synchronized (historyManager) {
+            return historyManager.getHistory(offset, limit);
+        }
+    }
+
+    @Override
+    public List<Task> getRecentHistory(int count) {
+        synchronized (historyManager) {
+            return historyManager.getRecent(count);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package managers;
+
+import exceptions.ManagerSaveException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Потоковый разбор CSV по RFC 4180: поля в кавычках могут содержать запятые, переводы строк
+ * и удвоенные кавычки. Текст читается кусками в буфер фиксированного размера, символы текущей
+ * записи складываются в переиспользуемый массив, поэтому память не зависит от размера файла.
+ * Числа и время разбираются прямо из символов записи, без промежуточных строк.
+ * Кавычка в середине поля без кавычек считается обычным символом — так читаются файлы,
+ * записанные до появления экранирования.
+ */
+final class CsvReader implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 14;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private char[] chars = new char[256];
+    private int length;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int fieldCount;
+    private long recordNumber;
+
+    CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, BUFFER_SIZE);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        int c = read();
+        if (c >= 0) {
+            position--;
+        }
+        return c;
+    }
+
+    private void append(int c) {
+        if (length == chars.length) {
+            chars = Arrays.copyOf(chars, length * 2);
+        }
+        chars[length++] = (char) c;
+    }
+
+    // Закрывает текущее поле и открывает следующее; в массивах всегда есть место для следующего
+    private void endField() {
+        if (fieldCount + 1 == starts.length) {
+            starts = Arrays.copyOf(starts, starts.length * 2);
+            ends = Arrays.copyOf(ends, ends.length * 2);
+        }
+        ends[fieldCount++] = length;
+        starts[fieldCount] = length;
+    }
+
+    // Читает следующую запись; false, если файл закончился
+    boolean next() throws IOException {
+        length = 0;
+        fieldCount = 0;
+        starts[0] = 0;
+        int c = read();
+        if (c < 0) {
+            return false;
+        }
+        recordNumber++;
+        boolean quoted = false;
+        boolean fieldStart = true;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new ManagerSaveException("Незакрытая кавычка в записи " + recordNumber);
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    append(c);
+                }
+            } else if (c < 0 || c == '\n') {
+                endField();
+                return true;
+            } else if (c == '\r') {
+                if (peek() == '\n') {
+                    read();
+                }
+                endField();
+                return true;
+            } else if (c == ',') {
+                endField();
+                fieldStart = true;
+                c = read();
+                continue;
+            } else if (c == '"' && fieldStart) {
+                quoted = true;
+            } else {
+                append(c);
+            }
+            fieldStart = false;
+            c = read();
+        }
+    }
+
+    long getRecordNumber() {
+        return recordNumber;
+    }
+
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    private void checkField(int index) {
+        if (index >= fieldCount) {
+            throw new ManagerSaveException("В записи " + recordNumber + " нет поля " + (index + 1));
+        }
+    }
+
+    boolean isEmpty(int index) {
+        checkField(index);
+        return starts[index] == ends[index];
+    }
+
+    boolean startsWith(int index, char c) {
+        checkField(index);
+        return starts[index] < ends[index] && chars[starts[index]] == c;
+    }
+
+    String field(int index) {
+        checkField(index);
+        return new String(chars, starts[index], ends[index] - starts[index]);
+    }
+
+    int intField(int index) {
+        long value = longField(index);
+        if (value != (int) value) {
+            throw invalid(index);
+        }
+        return (int) value;
+    }
+
+    long longField(int index) {
+        checkField(index);
+        int from = starts[index];
+        int to = ends[index];
+        boolean negative = from < to && chars[from] == '-';
+        if (negative) {
+            from++;
+        }
+        if (from == to || to - from > 18) {
+            throw invalid(index);
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid(index);
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // Формат LocalDateTime.toString(): yyyy-MM-ddTHH:mm[:ss]; остальные варианты — через LocalDateTime.parse
+    LocalDateTime dateTimeField(int index) {
+        checkField(index);
+        int from = starts[index];
+        int size = ends[index] - from;
+        if ((size == 16 || size == 19) && chars[from + 4] == '-' && chars[from + 7] == '-'
+                && chars[from + 10] == 'T' && chars[from + 13] == ':' && (size == 16 || chars[from + 16] == ':')) {
+            int year = digits(index, from, 4);
+            int month = digits(index, from + 5, 2);
+            int day = digits(index, from + 8, 2);
+            int hour = digits(index, from + 11, 2);
+            int minute = digits(index, from + 14, 2);
+            int second = size == 19 ? digits(index, from + 17, 2) : 0;
+            return LocalDateTime.of(year, month, day, hour, minute, second);
+        }
+        return LocalDateTime.parse(field(index));
+    }
+
+    private int digits(int index, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid(index);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private ManagerSaveException invalid(int index) {
+        return new ManagerSaveException("Некорректное значение «" + field(index) + "» в записи " + recordNumber);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,153 @@
+package managers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+
+/**
+ * Потоковая запись CSV по RFC 4180: поле с запятой, кавычкой или переводом строки берётся
+ * в кавычки, кавычки внутри удваиваются. Записи копятся в переиспользуемом буфере символов
+ * и уходят в Writer кусками, поэтому память не зависит от числа записей.
+ * Числа и время пишутся прямо в буфер, без промежуточных строк.
+ */
+final class CsvWriter {
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int size;
+    private boolean recordStart = true;
+
+    CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    private void ensure(int count) throws IOException {
+        if (size + count > BUFFER_SIZE) {
+            out.write(buffer, 0, size);
+            size = 0;
+        }
+    }
+
+    private void put(char c) throws IOException {
+        ensure(1);
+        buffer[size++] = c;
+    }
+
+    private void separate() throws IOException {
+        if (!recordStart) {
+            put(',');
+        }
+        recordStart = false;
+    }
+
+    CsvWriter field(String value) throws IOException {
+        separate();
+        if (value == null || value.isEmpty()) {
+            return this;
+        }
+        if (!needsQuotes(value)) {
+            int from = 0;
+            while (from < value.length()) {
+                ensure(1);
+                int count = Math.min(value.length() - from, BUFFER_SIZE - size);
+                value.getChars(from, from + count, buffer, size);
+                size += count;
+                from += count;
+            }
+            return this;
+        }
+        put('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                put('"');
+            }
+            put(c);
+        }
+        put('"');
+        return this;
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    CsvWriter field(long value) throws IOException {
+        separate();
+        if (value == Long.MIN_VALUE) {
+            String text = Long.toString(value);
+            ensure(text.length());
+            text.getChars(0, text.length(), buffer, size);
+            size += text.length();
+            return this;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+        return this;
+    }
+
+    // Тот же текст, что у LocalDateTime.toString(); без секунд, если их нет
+    CsvWriter field(LocalDateTime value) throws IOException {
+        if (value == null) {
+            return field((String) null);
+        }
+        if (value.getNano() != 0 || value.getYear() < 0 || value.getYear() > 9999) {
+            return field(value.toString());
+        }
+        separate();
+        ensure(19);
+        digits(value.getYear(), 4);
+        buffer[size++] = '-';
+        digits(value.getMonthValue(), 2);
+        buffer[size++] = '-';
+        digits(value.getDayOfMonth(), 2);
+        buffer[size++] = 'T';
+        digits(value.getHour(), 2);
+        buffer[size++] = ':';
+        digits(value.getMinute(), 2);
+        if (value.getSecond() != 0) {
+            buffer[size++] = ':';
+            digits(value.getSecond(), 2);
+        }
+        return this;
+    }
+
+    private void digits(int value, int count) {
+        for (int i = size + count - 1; i >= size; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        size += count;
+    }
+
+    void endRecord() throws IOException {
+        put('\n');
+        recordStart = true;
+    }
+
+    // Отдаёт накопленное в Writer и сбрасывает его; сам Writer не закрывает
+    void flush() throws IOException {
+        out.write(buffer, 0, size);
+        size = 0;
+        out.flush();
+    }
+}
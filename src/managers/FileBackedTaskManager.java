@@ -1,131 +1,346 @@
 package managers;
 
 import exceptions.ManagerSaveException;
+import history.HistoryManager;
 import tasks.*;
 
 import java.io.*;
-import java.nio.file.Files;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
+    private static final String[] CSV_HEADER = {
+            "id", "type", "name", "status", "description", "epic", "duration", "startTime", "endTime"};
+    private static final int PARALLEL_EPICS = 1024;
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
     private final File file;
+    private final FlushPolicy flushPolicy;
+    private final ForkJoinPool loadPool;
+    private final boolean verifyChecksum;
+    private final Object writeLock = new Object();
+    private final AtomicInteger pendingMutations = new AtomicInteger();
+    private ScheduledExecutorService flushExecutor;
+    private ScheduledFuture<?> scheduledFlush;
+    private long snapshotVersion;
+    private long writtenVersion;
+    private long savedBoardVersion;
+    private long loadedGeneration;
+    private File snapshotSource;
+    private boolean flushDeferred;
+    private volatile int lastFlushMutations;
+    private volatile long flushCount;
+    private volatile ManagerSaveException flushError;
 
     public FileBackedTaskManager(File file) {
+        this(file, FlushPolicy.IMMEDIATE);
+    }
+
+    public FileBackedTaskManager(File file, FlushPolicy flushPolicy) {
+        this(file, flushPolicy, ForkJoinPool.commonPool());
+    }
+
+    // Большой снимок загружается на потоках loadPool; null — загрузка в одном потоке
+    public FileBackedTaskManager(File file, FlushPolicy flushPolicy, ForkJoinPool loadPool) {
+        this(file, flushPolicy, loadPool, true);
+    }
+
+    // Без verifyChecksum сумма всего снимка перед загрузкой не считается: так открывает файл
+    // MappedTaskManager, который проверяет записи при разборе
+    protected FileBackedTaskManager(File file, FlushPolicy flushPolicy, ForkJoinPool loadPool,
+                                    boolean verifyChecksum) {
+        this(file, flushPolicy, loadPool, verifyChecksum, Managers.getDefaultHistory());
+    }
+
+    // Шард ShardedTaskManager создаётся без своей истории: просмотры учитывает общая история доски
+    FileBackedTaskManager(File file, FlushPolicy flushPolicy, HistoryManager historyManager) {
+        this(file, flushPolicy, ForkJoinPool.commonPool(), true, historyManager);
+    }
+
+    private FileBackedTaskManager(File file, FlushPolicy flushPolicy, ForkJoinPool loadPool,
+                                  boolean verifyChecksum, HistoryManager historyManager) {
+        super(true, historyManager);
         this.file = file;
+        this.flushPolicy = flushPolicy;
+        this.loadPool = loadPool;
+        this.verifyChecksum = verifyChecksum;
         loadFromFile();
+        savedBoardVersion = boardVersion();
     }
 
-    private void save() {
-        try {
-            StringBuilder sb = new StringBuilder();
-            sb.append("id,type,name,status,description,epic,duration,startTime,endTime\n");
+    // Изменение уже применено в памяти, поэтому ошибка прошлой фоновой записи здесь не бросается:
+    // её сообщают getFlushError и следующий flush/close, а изменение всё равно ждёт записи.
+    // Операция, не изменившая доску (удаление отсутствующего id и т.п.), записи не вызывает
+    protected synchronized void save() {
+        long version = boardVersion();
+        if (version == savedBoardVersion) {
+            return;
+        }
+        savedBoardVersion = version;
+        requestFlush();
+    }
 
+    private void requestFlush() {
+        int pending = pendingMutations.incrementAndGet();
+        if (flushPolicy.isImmediate()) {
+            if (!flushDeferred) {
+                flush();
+            }
+        } else if (pending >= flushPolicy.getMaxMutations()) {
+            scheduleFlush(0);
+        } else if (scheduledFlush == null) {
+            scheduleFlush(flushPolicy.getMaxDelay().toMillis());
+        }
+    }
 
-            for (Task task : getAllTasks()) {
-                sb.append(toString(task)).append("\n");
+    private void scheduleFlush(long delayMillis) {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        if (flushExecutor == null) {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "task-manager-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        scheduledFlush = flushExecutor.schedule(() -> {
+            try {
+                flush();
+            } catch (ManagerSaveException e) {
+                flushError = e;
+                retryFlush();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Несохранённые изменения не должны зависнуть в памяти до следующей мутации
+    private synchronized void retryFlush() {
+        if (scheduledFlush == null && flushExecutor != null && pendingMutations.get() > 0) {
+            scheduleFlush(flushPolicy.getMaxDelay().toMillis());
+        }
+    }
+
+    // Снимок доски берётся под блокировкой за O(1), а в файл пишется уже без неё
+    public int flush() {
+        BoardSnapshot board;
+        int covered;
+        int records;
+        long version;
+        synchronized (this) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
             }
-            for (Epic epic : getAllEpics()) {
-                sb.append(toString(epic)).append("\n");
+            covered = pendingMutations.getAndSet(0);
+            if (covered == 0) {
+                return 0;
             }
-            for (Subtask subtask : getAllSubtasks()) {
-                sb.append(toString(subtask)).append("\n");
+            board = snapshotToWrite();
+            records = recordCount(board);
+            version = ++snapshotVersion;
+        }
+        synchronized (writeLock) {
+            if (version > writtenVersion) {
+                try {
+                    SnapshotFile.write(file, out -> writeSnapshot(board, out), records,
+                            loadedGeneration + version, flushPolicy.isFsync());
+                } catch (ManagerSaveException e) {
+                    pendingMutations.addAndGet(covered);
+                    throw e;
+                }
+                writtenVersion = version;
+                flushError = null;
             }
+            lastFlushMutations = covered;
+            flushCount++;
+        }
+        return covered;
+    }
 
-            Files.writeString(file.toPath(), sb.toString());
-        } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка сохранения в файл", e);
+    // Немедленная запись откладывается до flushDeferred: вызывающий держит общий замок
+    // и пишет файл уже после того, как его отпустит
+    synchronized <R> R deferFlush(Supplier<R> action) {
+        flushDeferred = true;
+        try {
+            return action.get();
+        } finally {
+            flushDeferred = false;
         }
     }
 
+    void flushDeferred() {
+        if (flushPolicy.isImmediate()) {
+            flush();
+        }
+    }
 
-    public void forceSaveForTests() {
-        save();
+    // Доска для очередного снимка и число записей в нём; MappedTaskManager добавляет записи
+    // отображённого файла, не загружая их в память
+    protected BoardSnapshot snapshotToWrite() {
+        return snapshot();
     }
 
-    private String toString(Task task) {
-        TaskType type;
-        String epicId = "";
-        String durationStr = "";
-        String startTimeStr = "";
-        String endTimeStr = "";
+    protected int recordCount(BoardSnapshot board) {
+        return board.size();
+    }
 
+    // Ошибка последней фоновой записи; сбрасывается, когда запись снова удалась
+    public ManagerSaveException getFlushError() {
+        return flushError;
+    }
 
-        if (task instanceof Epic) {
-            type = TaskType.EPIC;
-            if (task.getDuration() != null) {
-                durationStr = String.valueOf(task.getDuration().toMinutes());
-            }
-            if (task.getStartTime() != null) {
-                startTimeStr = task.getStartTime().toString();
-            }
-            if (task.getEndTime() != null) {
-                endTimeStr = task.getEndTime().toString();
-            }
-        } else if (task instanceof Subtask) {
-            type = TaskType.SUBTASK;
-            epicId = String.valueOf(((Subtask) task).getEpicId());
-            if (task.getDuration() != null) {
-                durationStr = String.valueOf(task.getDuration().toMinutes());
-            }
-            if (task.getStartTime() != null) {
-                startTimeStr = task.getStartTime().toString();
-            }
-            if (task.getEndTime() != null) {
-                endTimeStr = task.getEndTime().toString();
+    public int getPendingMutations() {
+        return pendingMutations.get();
+    }
+
+    public int getLastFlushMutations() {
+        return lastFlushMutations;
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            flush();
+        } finally {
+            if (flushExecutor != null) {
+                flushExecutor.shutdown();
+                flushExecutor = null;
             }
+        }
+    }
+
+    public void exportToCsv(File target) {
+        BoardSnapshot board = snapshot();
+        try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeCsv(board, channel);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка экспорта в файл", e);
+        }
+    }
+
+    protected void writeSnapshot(BoardSnapshot board, WritableByteChannel out) throws IOException {
+        writeCsv(board, out);
+    }
+
+    // Строки идут в канал по мере формирования через буфер фиксированного размера
+    private static void writeCsv(BoardSnapshot board, WritableByteChannel out) throws IOException {
+        CsvWriter csv = new CsvWriter(Channels.newWriter(out, StandardCharsets.UTF_8));
+        for (String column : CSV_HEADER) {
+            csv.field(column);
+        }
+        csv.endRecord();
+        try {
+            board.forEachRecord(task -> {
+                try {
+                    writeTask(csv, task);
+                    csv.endRecord();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        csv.flush();
+    }
+
+    // Поколение последнего записанного или загруженного снимка; 0, если снимков с суммой не было
+    public long getGeneration() {
+        synchronized (writeLock) {
+            return loadedGeneration + writtenVersion;
+        }
+    }
+
+    // Файл, из которого загружена доска: основной или предыдущее поколение, если основной повреждён
+    public File getSnapshotSource() {
+        return snapshotSource;
+    }
+
+
+    // Запись даже без изменений доски
+    public synchronized void forceSaveForTests() {
+        requestFlush();
+    }
+
+    protected String toString(Task task) {
+        StringWriter row = new StringWriter();
+        CsvWriter csv = new CsvWriter(row);
+        try {
+            writeTask(csv, task);
+            csv.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return row.toString();
+    }
+
+    static void writeTask(CsvWriter csv, Task task) throws IOException {
+        TaskType type = TaskStatusIndex.typeOf(task);
+        csv.field(task.getId())
+                .field(type.name())
+                .field(task.getName())
+                .field(task.getTaskStatus().name())
+                .field(task.getDescription());
+        if (type == TaskType.SUBTASK) {
+            csv.field(((Subtask) task).getEpicId());
         } else {
-            type = TaskType.TASK;
-            if (task.getDuration() != null) {
-                durationStr = String.valueOf(task.getDuration().toMinutes());
-            }
-            if (task.getStartTime() != null) {
-                startTimeStr = task.getStartTime().toString();
-            }
-            if (task.getEndTime() != null) {
-                endTimeStr = task.getEndTime().toString();
-            }
+            csv.field((String) null);
+        }
+        if (task.getDuration() != null) {
+            csv.field(task.getDuration().toMinutes());
+        } else {
+            csv.field((String) null);
         }
+        csv.field(task.getStartTime()).field(task.getEndTime());
+    }
 
+    protected Task fromString(String value) {
+        try (CsvReader csv = new CsvReader(new StringReader(value))) {
+            if (!csv.next()) {
+                throw new ManagerSaveException("Пустая запись");
+            }
+            return readTask(csv, 0, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        return String.format("%d,%s,%s,%s,%s,%s,%s,%s,%s",
-                task.getId(),
-                type,
-                task.getName(),
-                task.getTaskStatus(),
-                task.getDescription(),
-                epicId,
-                durationStr,
-                startTimeStr,
-                endTimeStr);
-    }
-
-    private Task fromString(String value) {
-        String[] parts = value.split(",");
-        int id = Integer.parseInt(parts[0]);
-        TaskType type = TaskType.valueOf(parts[1]);
-        String name = parts[2];
-        TaskStatus status = TaskStatus.valueOf(parts[3]);
-        String description = parts[4];
-        String epicIdStr = parts[5];
-        String durationStr = parts[6];
-        String startTimeStr = parts[7];
-        String endTimeStr = parts[8];
+    // Задача из полей текущей записи, начиная с поля first
+    static Task readTask(CsvReader csv, int first, StringPool strings) {
+        int id = csv.intField(first);
+        TaskType type = TaskType.valueOf(csv.field(first + 1));
+        String name = strings == null ? csv.field(first + 2) : strings.get(csv.field(first + 2));
+        TaskStatus status = TaskStatus.valueOf(csv.field(first + 3));
+        String description = strings == null ? csv.field(first + 4) : strings.get(csv.field(first + 4));
         Duration duration = null;
-        if (!durationStr.isEmpty()) {
-            long durationMinutes = Long.parseLong(durationStr);
+        if (!csv.isEmpty(first + 6)) {
+            long durationMinutes = csv.longField(first + 6);
             if (durationMinutes > 0) {
                 duration = Duration.ofMinutes(durationMinutes);
             }
         }
         LocalDateTime startTime = null;
-        if (!startTimeStr.isEmpty()) {
-            startTime = LocalDateTime.parse(startTimeStr);
-        }
-        LocalDateTime endTime = null;
-        if (!endTimeStr.isEmpty()) {
-            endTime = LocalDateTime.parse(endTimeStr);
+        if (!csv.isEmpty(first + 7)) {
+            startTime = csv.dateTimeField(first + 7);
         }
 
         switch (type) {
@@ -139,7 +354,7 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
                 epic.setTaskStatus(status);
                 return epic;
             case SUBTASK:
-                int epicId = Integer.parseInt(epicIdStr);
+                int epicId = csv.intField(first + 5);
                 Subtask subtask = new Subtask(name, description, epicId, duration, startTime);
                 subtask.setTaskStatus(status);
                 subtask.setId(id);
@@ -150,45 +365,110 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
     }
 
     private void loadFromFile() {
-        if (!file.exists()) return;
-
-        try {
-            List<String> lines = Files.readAllLines(file.toPath());
-            if (lines.size() <= 1) return;
-
-            int maxId = 0;
-            List<Task> tasksToAdd = new ArrayList<>();
-
-            for (int i = 1; i < lines.size(); i++) {
-                String line = lines.get(i);
-                if (line.trim().isEmpty()) continue;
-                Task task = fromString(line);
-                tasksToAdd.add(task);
-                if (task.getId() > maxId) {
-                    maxId = task.getId();
-                }
+        Exception failure = null;
+        for (SnapshotFile.Generation generation : SnapshotFile.findGenerations(file)) {
+            if (verifyChecksum && !SnapshotFile.verify(generation)) {
+                failure = new ManagerSaveException("Контрольная сумма не сходится: " + generation.file);
+                continue;
             }
+            try {
+                LoadedBoard loaded = readSnapshot(generation.file);
+                checkRecordCount(loaded, generation.records);
+                loadedGeneration = generation.number;
+                snapshotSource = generation.file;
+                restore(loaded);
+                return;
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            }
+        }
+        if (!file.exists() || file.length() == 0) {
+            if (failure != null) {
+                throw new ManagerSaveException("Не удалось загрузить ни одно поколение снимка", failure);
+            }
+            return;
+        }
+        // Без строки с суммой файл мог быть только снимком старого формата, пока рядом нет других поколений.
+        // Незагрузившийся file.tmp не в счёт: переименования не было, запись не завершилась
+        if (SnapshotFile.hasTrailer(file) || SnapshotFile.backupFile(file).exists()) {
+            throw new ManagerSaveException("Снимок повреждён, целых предыдущих поколений нет: " + file, failure);
+        }
+        // Снимок старого формата без контрольной суммы
+        try {
+            snapshotSource = file;
+            restore(readSnapshot(file));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения файла", e);
+        }
+    }
 
-            this.idCounter = maxId + 1;
+    protected void checkRecordCount(LoadedBoard loaded, int records) {
+        if (loaded.size() != records) {
+            throw new ManagerSaveException("В снимке " + loaded.size() + " записей вместо " + records);
+        }
+    }
 
-            for (Task task : tasksToAdd) {
-                if (task instanceof Epic) {
-                    addEpic((Epic) task);
-                } else if (task instanceof Subtask) {
-                    addSubtask((Subtask) task);
-                } else {
-                    addTask(task);
-                }
+    // Файл читается потоком через буфер фиксированного размера; первая запись — заголовок.
+    // Большой снимок с контрольной суммой разбирается кусками на потоках loadPool
+    protected LoadedBoard readSnapshot(File file) throws IOException {
+        StringPool strings = new StringPool();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = SnapshotFile.payloadSize(channel);
+            if (size != channel.size() && ParallelCsvLoader.worthSplitting(size, loadPool)) {
+                return ParallelCsvLoader.read(channel, size, loadPool, strings);
+            }
+        }
+        LoadedBoard result = new LoadedBoard();
+        try (CsvReader csv = new CsvReader(Channels.newReader(
+                FileChannel.open(file.toPath(), StandardOpenOption.READ), StandardCharsets.UTF_8))) {
+            if (!csv.next()) {
+                return result;
+            }
+            while (csv.next()) {
+                if ((csv.fieldCount() == 1 && csv.isEmpty(0)) || csv.startsWith(0, '#')) continue;
+                result.add(readTask(csv, 0, strings));
             }
+        }
+        return result;
+    }
+
+    void restore(List<Task> tasksToAdd) {
+        restore(LoadedBoard.of(tasksToAdd));
+    }
 
-            for (Epic epic : epics.values()) {
-                epic.updateStatus();
-                epic.updateEpicTime();
+    void restore(LoadedBoard loaded) {
+        this.idCounter = Math.max(idCounter, loaded.maxId + 1);
+
+        // Таблицы по id и группы подзадач собраны при разборе снимка и переносятся целиком;
+        // в этом потоке остаются только индексы статусов и расписание
+        tasks.moveFrom(loaded.tasks);
+        epics.moveFrom(loaded.epics);
+        subtasks.moveFrom(loaded.subtasks);
+        Map<Integer, List<Subtask>> subtasksByEpic = loaded.subtasksByEpic;
+        for (Task task : loaded.records) {
+            if (!(task instanceof Epic)) {
+                indexLoaded(task);
             }
+        }
 
-        } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка чтения файла", e);
+        // Эпики друг от друга не зависят: привязка подзадач и пересчёт статуса и времени идут параллельно
+        List<Epic> restored = new ArrayList<>(epics.values());
+        Consumer<Epic> link = epic -> {
+            for (Subtask subtask : subtasksByEpic.getOrDefault(epic.getId(), List.of())) {
+                epic.addSubtask(subtask);
+            }
+            epic.updateStatus();
+            epic.updateEpicTime();
+        };
+        if (loadPool != null && restored.size() >= PARALLEL_EPICS) {
+            loadPool.submit(() -> restored.parallelStream().forEach(link)).join();
+        } else {
+            restored.forEach(link);
         }
+        for (Epic epic : restored) {
+            reindexEpic(epic);
+        }
+        publishSnapshot();
     }
 
     public static FileBackedTaskManager loadFromFile(File file) {
@@ -196,76 +476,99 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
     }
 
     @Override
-    public Task generateTask(Task task) {
+    public synchronized Task generateTask(Task task) {
         Task result = super.generateTask(task);
         save();
         return result;
     }
 
     @Override
-    public Epic generateEpic(Epic epic) {
+    public synchronized Epic generateEpic(Epic epic) {
         Epic result = super.generateEpic(epic);
         save();
         return result;
     }
 
     @Override
-    public Subtask generateSubtask(Subtask subtask) {
+    public synchronized Subtask generateSubtask(Subtask subtask) {
         Subtask result = super.generateSubtask(subtask);
         save();
         return result;
     }
 
     @Override
-    public void updateTask(Task task) {
-        super.updateTask(task);
+    public synchronized boolean updateTask(Task task) {
+        boolean updated = super.updateTask(task);
         save();
+        return updated;
     }
 
     @Override
-    public void updateEpic(Epic newEpic) {
-        super.updateEpic(newEpic);
+    public synchronized boolean updateEpic(Epic newEpic) {
+        boolean updated = super.updateEpic(newEpic);
         save();
+        return updated;
     }
 
     @Override
-    public void updateSubtask(Subtask newSubtask) {
-        super.updateSubtask(newSubtask);
+    public synchronized boolean updateSubtask(Subtask newSubtask) {
+        boolean updated = super.updateSubtask(newSubtask);
         save();
+        return updated;
     }
 
     @Override
-    public void deleteTask(int id) {
+    public synchronized void deleteTask(int id) {
         super.deleteTask(id);
         save();
     }
 
     @Override
-    public void deleteEpic(int id) {
+    public synchronized void deleteEpic(int id) {
         super.deleteEpic(id);
         save();
     }
 
     @Override
-    public void deleteSubtask(int id) {
+    public synchronized void deleteSubtask(int id) {
         super.deleteSubtask(id);
         save();
     }
 
     @Override
-    public void removeAllTasks() {
+    public synchronized List<Task> generateAll(List<? extends Task> items) {
+        List<Task> result = super.generateAll(items);
+        save();
+        return result;
+    }
+
+    @Override
+    public synchronized void updateAll(List<? extends Task> items) {
+        super.updateAll(items);
+        save();
+    }
+
+    @Override
+    public synchronized int deleteAll(Collection<Integer> ids) {
+        int deleted = super.deleteAll(ids);
+        save();
+        return deleted;
+    }
+
+    @Override
+    public synchronized void removeAllTasks() {
         super.removeAllTasks();
         save();
     }
 
     @Override
-    public void removeAllEpics() {
+    public synchronized void removeAllEpics() {
         super.removeAllEpics();
         save();
     }
 
     @Override
-    public void removeAllSubtasks() {
+    public synchronized void removeAllSubtasks() {
         super.removeAllSubtasks();
         save();
     }
@@ -0,0 +1,50 @@
+package managers;
+
+import java.time.Duration;
+
+/**
+ * Политика сохранения FileBackedTaskManager. При maxMutations == 1 файл перезаписывается
+ * синхронно после каждого изменения. Иначе изменения копятся и сбрасываются фоновым потоком,
+ * как только их набралось maxMutations или с первого несохранённого изменения прошло maxDelay.
+ * Без fsync снимок и переименования остаются в кэше ОС: запись переживает падение процесса,
+ * но при сбое питания последние поколения могут пропасть.
+ */
+public final class FlushPolicy {
+    public static final FlushPolicy IMMEDIATE = new FlushPolicy(Duration.ZERO, 1, false);
+
+    private final Duration maxDelay;
+    private final int maxMutations;
+    private final boolean fsync;
+
+    public FlushPolicy(Duration maxDelay, int maxMutations, boolean fsync) {
+        if (maxDelay == null || maxDelay.isNegative()) {
+            throw new IllegalArgumentException("Задержка сохранения не может быть отрицательной");
+        }
+        if (maxMutations <= 0) {
+            throw new IllegalArgumentException("Размер пакета изменений должен быть положительным");
+        }
+        this.maxDelay = maxDelay;
+        this.maxMutations = maxMutations;
+        this.fsync = fsync;
+    }
+
+    public static FlushPolicy batched(Duration maxDelay, int maxMutations) {
+        return new FlushPolicy(maxDelay, maxMutations, false);
+    }
+
+    public boolean isImmediate() {
+        return maxMutations == 1;
+    }
+
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    public int getMaxMutations() {
+        return maxMutations;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+}
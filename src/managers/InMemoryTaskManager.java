@@ -1,56 +1,220 @@
 package managers;
 
+import exceptions.BatchValidationException;
 import history.HistoryManager;
 import tasks.Epic;
 import tasks.Subtask;
 import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskTime;
+import tasks.TaskType;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+import java.util.stream.Stream;
 
 public class InMemoryTaskManager implements TaskManager {
 
-    private final Map<Integer, Task> tasks = new HashMap<>();
-    protected final Map<Integer, Epic> epics = new HashMap<>();
-    private final Map<Integer, Subtask> subtasks = new HashMap<>();
+    protected final IntKeyedMap<Task> tasks = new IntKeyedMap<>();
+    protected final IntKeyedMap<Epic> epics = new IntKeyedMap<>();
+    protected final IntKeyedMap<Subtask> subtasks = new IntKeyedMap<>();
     protected volatile int idCounter = 0;
-    private final HistoryManager historyManager = Managers.getDefaultHistory();
-    private final TreeSet<Task> prioritizedTasks = new TreeSet<>(Comparator.comparing(
-            Task::getStartTime,
-            Comparator.nullsLast(Comparator.naturalOrder())
-    ));
+    protected final HistoryManager historyManager;
+    private final TaskIntervalTree timeIndex = new TaskIntervalTree();
+    private final TaskStatusIndex statusIndex = new TaskStatusIndex();
+    private final TaskEventFeed eventFeed = new TaskEventFeed();
+    private final BoardVersions versions;
+    private IntSupplier idSource;
+
+    public InMemoryTaskManager() {
+        this(false);
+    }
+
+    // versioned — вести копию доски для snapshot() и subscribe(); без неё изменения ничего не копируют
+    public InMemoryTaskManager(boolean versioned) {
+        this(versioned, Managers.getDefaultHistory());
+    }
+
+    protected InMemoryTaskManager(boolean versioned, HistoryManager historyManager) {
+        this.historyManager = historyManager;
+        versions = versioned ? new BoardVersions(eventFeed) : null;
+    }
 
     private int generateId() {
-        return ++idCounter;
+        return idSource != null ? idSource.getAsInt() : ++idCounter;
+    }
+
+    // Id новых задач берутся из source, а не из счётчика: так id раздаёт ShardedTaskManager
+    void setIdSource(IntSupplier source) {
+        this.idSource = source;
     }
 
     protected void addTask(Task task) {
         tasks.put(task.getId(), task);
+        index(task);
+        addToSchedule(task);
     }
 
     protected void addEpic(Epic epic) {
         epics.put(epic.getId(), epic);
+        index(epic);
     }
 
     protected void addSubtask(Subtask subtask) {
-        subtasks.put(subtask.getId(), subtask);
+        putSubtask(subtask);
         Epic parentEpic = epics.get(subtask.getEpicId());
         if (parentEpic != null) {
             parentEpic.addSubtask(subtask);
         }
     }
 
+    // Индексы и расписание для задачи или подзадачи, уже лежащей в своей таблице
+    protected void indexLoaded(Task task) {
+        index(task);
+        addToSchedule(task);
+    }
+
+    // Таблица и индексы подзадачи без привязки к эпику
+    protected void putSubtask(Subtask subtask) {
+        subtasks.put(subtask.getId(), subtask);
+        index(subtask);
+        addToSchedule(subtask);
+    }
+
+    private void index(Task task) {
+        statusIndex.add(task);
+        putVersion(task);
+    }
+
+    private void putVersion(Task task) {
+        if (versions != null) {
+            versions.put(task);
+        }
+    }
+
+    private void unindex(int id) {
+        statusIndex.remove(id);
+        if (versions != null) {
+            versions.remove(id);
+        }
+    }
+
+    private void unindexAll(TaskType type) {
+        statusIndex.clear(type);
+        if (versions != null) {
+            versions.clear(type);
+        }
+    }
+
+    // Выставляет накопленные изменения читателям snapshot(); вызывается в конце каждой операции
+    protected void publishSnapshot() {
+        if (versions != null) {
+            versions.publish();
+        }
+    }
+
+    private BoardVersions versions() {
+        if (versions == null) {
+            throw new IllegalStateException("Менеджер создан без версий доски: нужен new InMemoryTaskManager(true)");
+        }
+        return versions;
+    }
+
+    // Номер последней опубликованной версии доски; в отличие от snapshot(), наследники его не переопределяют
+    protected long boardVersion() {
+        return versions().current().getVersion();
+    }
+
+    /**
+     * Неизменяемый снимок доски на момент последней завершённой операции, за O(1).
+     * В отличие от остальных методов, его можно вызывать из любого потока параллельно с изменениями.
+     * Доступен только менеджеру, созданному с versioned = true.
+     */
+    public BoardSnapshot snapshot() {
+        return versions().current();
+    }
+
+    /**
+     * Подписка на события об изменениях доски. События одной операции приходят после неё
+     * и помечены версией того же снимка, который в этот момент возвращает snapshot().
+     * Менеджер подписчика не ждёт: подписка, чья очередь не вместила события операции,
+     * отключается и сообщает об этом через isOverflowed().
+     */
+    public TaskEventFeed.Subscription subscribe(TaskEventListener listener) {
+        return subscribe(listener, TaskEventFeed.DEFAULT_CAPACITY, TaskEventFeed.DEFAULT_BATCH);
+    }
+
+    public TaskEventFeed.Subscription subscribe(TaskEventListener listener, int capacity, int maxBatch) {
+        versions();
+        return eventFeed.subscribe(listener, capacity, maxBatch);
+    }
+
+    protected void refreshEpic(Epic epic) {
+        epic.updateStatus();
+        epic.updateEpicTime();
+        index(epic);
+    }
+
+    // Для эпика, чьи статус и время уже пересчитаны
+    protected void reindexEpic(Epic epic) {
+        index(epic);
+    }
+
+    private void addToSchedule(Task task) {
+        timeIndex.add(task);
+    }
+
+    private void removeFromSchedule(Task task) {
+        timeIndex.remove(task.getId());
+    }
+
     public boolean isTaskOverlappingWithOthers(Task task) {
-        if (task.getStartTime() == null || task.getDuration() == null) {
+        long end = task.getEndMinute();
+        if (end == TaskTime.NONE) {
             return false;
         }
-        return prioritizedTasks.stream()
-                .filter(existingTask -> existingTask.getId() != task.getId())
-                .anyMatch(existingTask -> task.isOverlapping(existingTask));
+        return timeIndex.hasOverlap(task.getStartMinute(), end, task.getId());
+    }
+
+    boolean hasScheduleOverlap(long start, long end, IntPredicate excluded) {
+        return timeIndex.hasOverlap(start, end, excluded);
+    }
+
+    public List<Task> getOverlappingTasks(LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null || !start.isBefore(end)) {
+            return new ArrayList<>();
+        }
+        return timeIndex.findOverlapping(TaskTime.toMinutes(start), TaskTime.toMinutesCeiling(end));
     }
 
     @Override
     public List<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTasks);
+        return timeIndex.toList();
+    }
+
+    @Override
+    public List<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            return new ArrayList<>();
+        }
+        return timeIndex.findStartingBetween(TaskTime.toMinutesCeiling(from), TaskTime.toMinutesCeiling(to),
+                Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Task> getNextTasks(LocalDateTime from, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Количество задач не может быть отрицательным");
+        }
+        return timeIndex.findStartingBetween(TaskTime.toMinutesCeiling(from), Long.MAX_VALUE, count);
+    }
+
+    @Override
+    public List<Task> getTasksOn(LocalDate day) {
+        return getTasksBetween(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
     }
 
     @Override
@@ -74,15 +238,63 @@ public class InMemoryTaskManager implements TaskManager {
         return allSubtasks;
     }
 
+    @Override
+    public Stream<Task> streamTasks() {
+        return tasks.values().stream();
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return epics.values().stream();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return subtasks.values().stream();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasksByEpic(int epicId) {
+        Epic epic = epics.get(epicId);
+        return epic != null ? epic.streamSubtasks() : Stream.empty();
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status) {
+        return statusIndex.get(TaskType.TASK, status);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(TaskStatus status) {
+        return statusIndex.get(TaskType.EPIC, status);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        return statusIndex.get(TaskType.SUBTASK, status);
+    }
+
+    @Override
+    public Map<TaskStatus, Integer> countByStatus() {
+        return statusIndex.countByStatus(null);
+    }
+
+    @Override
+    public Map<TaskStatus, Integer> countByStatus(TaskType type) {
+        return statusIndex.countByStatus(type);
+    }
+
     @Override
     public void removeAllTasks() {
         tasks.keySet().stream()
                 .forEach(id -> {
                     historyManager.remove(id);
                     Task task = tasks.get(id);
-                    prioritizedTasks.remove(task);
+                    removeFromSchedule(task);
                 });
         tasks.clear();
+        unindexAll(TaskType.TASK);
+        publishSnapshot();
     }
 
     @Override
@@ -91,9 +303,7 @@ public class InMemoryTaskManager implements TaskManager {
                 .flatMap(epic -> epic.getSubtasks().stream())
                 .forEach(subtask -> {
                     historyManager.remove(subtask.getId());
-                    if (subtask.getStartTime() != null) {
-                        prioritizedTasks.remove(subtask);
-                    }
+                    removeFromSchedule(subtask);
                 });
 
         epics.keySet().forEach(id -> {
@@ -101,6 +311,9 @@ public class InMemoryTaskManager implements TaskManager {
         });
         subtasks.clear();
         epics.clear();
+        unindexAll(TaskType.SUBTASK);
+        unindexAll(TaskType.EPIC);
+        publishSnapshot();
     }
 
     @Override
@@ -108,15 +321,16 @@ public class InMemoryTaskManager implements TaskManager {
         subtasks.keySet().forEach(id -> {
             historyManager.remove(id);
             Subtask subtask = subtasks.get(id);
-            prioritizedTasks.remove(subtask);
+            removeFromSchedule(subtask);
         });
         subtasks.clear();
+        unindexAll(TaskType.SUBTASK);
 
         epics.values().forEach(epic -> {
             epic.clearSubtasks();
-            epic.updateStatus();
-            epic.updateEpicTime();
+            refreshEpic(epic);
         });
+        publishSnapshot();
     }
 
     @Override
@@ -146,6 +360,17 @@ public class InMemoryTaskManager implements TaskManager {
         return subtask;
     }
 
+    @Override
+    public TaskType getTypeById(int id) {
+        if (tasks.containsKey(id)) {
+            return TaskType.TASK;
+        }
+        if (epics.containsKey(id)) {
+            return TaskType.EPIC;
+        }
+        return subtasks.containsKey(id) ? TaskType.SUBTASK : null;
+    }
+
     @Override
     public Task generateTask(Task task) {
         if (isTaskOverlappingWithOthers(task)) {
@@ -156,9 +381,9 @@ public class InMemoryTaskManager implements TaskManager {
         int id = generateId();
         task.setId(id);
         tasks.put(id, task);
-        if (task.getStartTime() != null) {
-            prioritizedTasks.add(task);
-        }
+        index(task);
+        addToSchedule(task);
+        publishSnapshot();
         return task;
     }
 
@@ -167,6 +392,8 @@ public class InMemoryTaskManager implements TaskManager {
         int id = generateId();
         epic.setId(id);
         epics.put(id, epic);
+        index(epic);
+        publishSnapshot();
         return epic;
     }
 
@@ -185,19 +412,18 @@ public class InMemoryTaskManager implements TaskManager {
         int id = generateId();
         subtask.setId(id);
         subtasks.put(id, subtask);
+        index(subtask);
         parentEpic.addSubtask(subtask);
-        parentEpic.updateStatus();
-        parentEpic.updateEpicTime();
-        if (subtask.getStartTime() != null) {
-            prioritizedTasks.add(subtask);
-        }
+        refreshEpic(parentEpic);
+        addToSchedule(subtask);
+        publishSnapshot();
         return subtask;
     }
 
     @Override
-    public void updateTask(Task task) {
+    public boolean updateTask(Task task) {
         if (!tasks.containsKey(task.getId())) {
-            return;
+            return false;
         }
         if (isTaskOverlappingWithOthers(task)) {
             throw new IllegalArgumentException(
@@ -205,30 +431,31 @@ public class InMemoryTaskManager implements TaskManager {
             );
         }
         Task oldTask = tasks.get(task.getId());
-        if (oldTask.getStartTime() != null) {
-            prioritizedTasks.remove(oldTask);
-        }
+        removeFromSchedule(oldTask);
         tasks.put(task.getId(), task);
-        if (task.getStartTime() != null) {
-            prioritizedTasks.add(task);
-        }
-
+        index(task);
+        addToSchedule(task);
+        publishSnapshot();
+        return true;
     }
 
     @Override
-    public void updateEpic(Epic newEpic) {
+    public boolean updateEpic(Epic newEpic) {
         if (!epics.containsKey(newEpic.getId())) {
-            return; // Если эпика нет, ничего не делаем
+            return false; // Если эпика нет, ничего не делаем
         }
         Epic existingEpic = epics.get(newEpic.getId());
         existingEpic.setName(newEpic.getName());
         existingEpic.setDescription(newEpic.getDescription());
+        putVersion(existingEpic);
+        publishSnapshot();
+        return true;
     }
 
     @Override
-    public void updateSubtask(Subtask newSubtask) {
+    public boolean updateSubtask(Subtask newSubtask) {
         if (!subtasks.containsKey(newSubtask.getId())) {
-            return;
+            return false;
         }
         Subtask existingSubtask = subtasks.get(newSubtask.getId());
         Epic parentEpic = epics.get(existingSubtask.getEpicId());
@@ -243,51 +470,53 @@ public class InMemoryTaskManager implements TaskManager {
             if (newEpic == null) {
                 throw new IllegalArgumentException("Эпик с ID " + newSubtask.getEpicId() + " не существует");
             }
-            parentEpic.removeSubtask(existingSubtask);
-            newEpic.addSubtask(newSubtask);
         }
+        parentEpic.removeSubtask(existingSubtask);
+        (epicChanged ? newEpic : parentEpic).addSubtask(newSubtask);
 
-        if (existingSubtask.getStartTime() != null) {
-            prioritizedTasks.remove(existingSubtask);
-        }
-        if (newSubtask.getStartTime() != null) {
-            prioritizedTasks.add(newSubtask);
-        }
+        removeFromSchedule(existingSubtask);
+        addToSchedule(newSubtask);
         subtasks.put(newSubtask.getId(), newSubtask);
+        index(newSubtask);
+        refreshEpic(parentEpic);
         if (epicChanged) {
-            parentEpic.updateStatus();
-            parentEpic.updateEpicTime();
-            newEpic.updateStatus();
-            newEpic.updateEpicTime();
-        } else {
-            parentEpic.updateStatus();
-            parentEpic.updateEpicTime();
+            refreshEpic(newEpic);
         }
+        publishSnapshot();
+        return true;
     }
 
     @Override
     public void deleteTask(int id) {
+        removeTask(id);
+        publishSnapshot();
+    }
+
+    private void removeTask(int id) {
         Task task = tasks.remove(id);
         historyManager.remove(id);
-        if (task != null && task.getStartTime() != null) {
-            prioritizedTasks.remove(task);
+        unindex(id);
+        if (task != null) {
+            removeFromSchedule(task);
         }
     }
 
     @Override
     public void deleteEpic(int id) {
+        removeEpic(id);
+        publishSnapshot();
+    }
+
+    private void removeEpic(int id) {
         Epic epic = epics.remove(id);
         if (epic != null) {
             historyManager.remove(id);
-            if (epic.getStartTime() != null) {
-                prioritizedTasks.remove(epic);
-            }
+            unindex(id);
             for (Subtask subtask : epic.getSubtasks()) {
                 historyManager.remove(subtask.getId());
                 subtasks.remove(subtask.getId());
-                if (subtask.getStartTime() != null) {
-                    prioritizedTasks.remove(subtask);
-                }
+                unindex(subtask.getId());
+                removeFromSchedule(subtask);
             }
         }
     }
@@ -299,20 +528,113 @@ public class InMemoryTaskManager implements TaskManager {
             Epic parentEpic = epics.get(subtask.getEpicId());
             parentEpic.removeSubtask(subtask);
             subtasks.remove(id);
-            parentEpic.updateStatus();
-            parentEpic.updateEpicTime();
+            unindex(id);
+            refreshEpic(parentEpic);
             historyManager.remove(id);
-            if (subtask.getStartTime() != null) {
-                prioritizedTasks.remove(subtask);
+            removeFromSchedule(subtask);
+            publishSnapshot();
+        }
+    }
+
+    @Override
+    public List<Task> generateAll(List<? extends Task> items) {
+        Map<Integer, String> errors = TaskBatch.validateGenerate(items, epics::containsKey, this::hasScheduleOverlap);
+        if (!errors.isEmpty()) {
+            throw new BatchValidationException(errors);
+        }
+        Set<Epic> affectedEpics = new LinkedHashSet<>();
+        List<Task> result = new ArrayList<>(items.size());
+        for (Task item : items) {
+            item.setId(generateId());
+            if (item instanceof Epic) {
+                addEpic((Epic) item);
+            } else if (item instanceof Subtask) {
+                addSubtask((Subtask) item);
+                affectedEpics.add(epics.get(((Subtask) item).getEpicId()));
+            } else {
+                addTask(item);
             }
+            result.add(item);
         }
+        affectedEpics.forEach(this::refreshEpic);
+        publishSnapshot();
+        return result;
+    }
+
+    @Override
+    public void updateAll(List<? extends Task> items) {
+        Map<Integer, String> errors = TaskBatch.validateUpdate(items, tasks::containsKey, epics::containsKey,
+                subtasks::containsKey, this::hasScheduleOverlap);
+        if (!errors.isEmpty()) {
+            throw new BatchValidationException(errors);
+        }
+        Set<Epic> affectedEpics = new LinkedHashSet<>();
+        for (Task item : items) {
+            if (item instanceof Epic) {
+                Epic existingEpic = epics.get(item.getId());
+                existingEpic.setName(item.getName());
+                existingEpic.setDescription(item.getDescription());
+                putVersion(existingEpic);
+            } else if (item instanceof Subtask) {
+                Subtask newSubtask = (Subtask) item;
+                Subtask existingSubtask = subtasks.get(newSubtask.getId());
+                Epic parentEpic = epics.get(existingSubtask.getEpicId());
+                Epic newEpic = epics.get(newSubtask.getEpicId());
+                parentEpic.removeSubtask(existingSubtask);
+                newEpic.addSubtask(newSubtask);
+                removeFromSchedule(existingSubtask);
+                addToSchedule(newSubtask);
+                subtasks.put(newSubtask.getId(), newSubtask);
+                index(newSubtask);
+                affectedEpics.add(parentEpic);
+                affectedEpics.add(newEpic);
+            } else {
+                removeFromSchedule(tasks.get(item.getId()));
+                tasks.put(item.getId(), item);
+                index(item);
+                addToSchedule(item);
+            }
+        }
+        affectedEpics.forEach(this::refreshEpic);
+        publishSnapshot();
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        Set<Epic> affectedEpics = new LinkedHashSet<>();
+        int deleted = 0;
+        for (int id : ids) {
+            if (tasks.containsKey(id)) {
+                removeTask(id);
+            } else if (epics.containsKey(id)) {
+                removeEpic(id);
+            } else if (subtasks.containsKey(id)) {
+                Subtask subtask = subtasks.remove(id);
+                Epic parentEpic = epics.get(subtask.getEpicId());
+                parentEpic.removeSubtask(subtask);
+                affectedEpics.add(parentEpic);
+                unindex(id);
+                historyManager.remove(id);
+                removeFromSchedule(subtask);
+            } else {
+                continue;
+            }
+            deleted++;
+        }
+        for (Epic epic : affectedEpics) {
+            if (epics.containsKey(epic.getId())) {
+                refreshEpic(epic);
+            }
+        }
+        publishSnapshot();
+        return deleted;
     }
 
     @Override
     public List<Subtask> getSubtasksByEpic(int epicId) {
         Epic epic = epics.get(epicId);
         if (epic != null) {
-            return new ArrayList<>(epic.getSubtasks());
+            return epic.getSubtasks();
         }
         return new ArrayList<>();
     }
@@ -321,6 +643,16 @@ public class InMemoryTaskManager implements TaskManager {
     public List<Task> getHistory() {
         return historyManager.getHistory();
     }
+
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        return historyManager.getHistory(offset, limit);
+    }
+
+    @Override
+    public List<Task> getRecentHistory(int count) {
+        return historyManager.getRecent(count);
+    }
 }
 
 
@@ -0,0 +1,369 @@
+package managers;
+
+import exceptions.ManagerSaveException;
+import tasks.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Менеджер, который вместо полной перезаписи файла дописывает по одной записи в журнал
+ * на каждое изменение. Когда в журнале накапливается compactionThreshold записей,
+ * состояние сохраняется снимком в основной файл, а журнал очищается.
+ * Пакетные операции дописывают все свои записи за одну запись в файл.
+ * С fsync (по умолчанию) каждая запись в журнал и снимок при сжатии сбрасываются на диск
+ * до возврата из метода, и изменение переживает сбой питания; без fsync — только падение процесса.
+ * Изменение в памяти и его запись в журнал выполняются под одним монитором менеджера,
+ * поэтому порядок записей в журнале совпадает с порядком изменений.
+ * При запуске снимок загружается, затем поверх него проигрывается журнал.
+ * Записи журнала — строки CSV, поэтому перевод строки в названии не разрывает запись.
+ */
+public class JournaledTaskManager extends FileBackedTaskManager {
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+
+    private static final String PUT = "PUT";
+    private static final String DELETE = "DELETE";
+    private static final String CLEAR = "CLEAR";
+
+    private final Path journal;
+    private final int compactionThreshold;
+    private final boolean fsync;
+    private int journalSize;
+    // Открыт от первой записи в журнал до сжатия или close
+    private FileChannel channel;
+
+    public JournaledTaskManager(File file) {
+        this(file, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public JournaledTaskManager(File file, int compactionThreshold) {
+        this(file, compactionThreshold, true);
+    }
+
+    public JournaledTaskManager(File file, int compactionThreshold, boolean fsync) {
+        super(file, new FlushPolicy(Duration.ZERO, 1, fsync));
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("Порог сжатия журнала должен быть положительным");
+        }
+        this.journal = new File(file.getPath() + ".journal").toPath();
+        this.compactionThreshold = compactionThreshold;
+        this.fsync = fsync;
+        replayJournal();
+    }
+
+    public synchronized int getJournalSize() {
+        return journalSize;
+    }
+
+    public synchronized void compact() {
+        super.save();
+        try {
+            closeJournal();
+            Files.deleteIfExists(journal);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка очистки журнала", e);
+        }
+        journalSize = 0;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            closeJournal();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка закрытия журнала", e);
+        } finally {
+            super.close();
+        }
+    }
+
+    private void closeJournal() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    @Override
+    protected void save() {
+        // Снимок пишется только при сжатии журнала
+    }
+
+    private void append(String record) {
+        appendAll(List.of(record));
+    }
+
+    private void appendPut(Task task) {
+        append(PUT + "," + toString(task));
+    }
+
+    private void appendAll(List<String> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(String.join("\n", records) + "\n");
+        try {
+            if (channel == null) {
+                openJournal();
+            }
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи в журнал", e);
+        }
+        journalSize += records.size();
+        if (journalSize >= compactionThreshold) {
+            compact();
+        }
+    }
+
+    private void openJournal() throws IOException {
+        boolean created = !Files.exists(journal);
+        channel = FileChannel.open(journal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (fsync && created) {
+            SnapshotFile.syncDirectory(journal.toAbsolutePath().getParent());
+        }
+    }
+
+    private void appendDelete(TaskType type, int id) {
+        append(DELETE + "," + type + "," + id);
+    }
+
+    private void appendClear(TaskType type) {
+        append(CLEAR + "," + type);
+    }
+
+    private void replayJournal() {
+        if (!Files.exists(journal)) return;
+
+        try (CsvReader csv = new CsvReader(Channels.newReader(
+                FileChannel.open(journal, StandardOpenOption.READ), StandardCharsets.UTF_8))) {
+            while (csv.next()) {
+                if (csv.fieldCount() == 1 && csv.isEmpty(0)) continue;
+                replay(csv);
+                journalSize++;
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения журнала", e);
+        }
+
+        for (Epic epic : epics.values()) {
+            refreshEpic(epic);
+        }
+        publishSnapshot();
+    }
+
+    private void replay(CsvReader record) {
+        String operation = record.field(0);
+        switch (operation) {
+            case PUT:
+                replayPut(readTask(record, 1, null));
+                break;
+            case DELETE:
+                replayDelete(TaskType.valueOf(record.field(1)), record.intField(2));
+                break;
+            case CLEAR:
+                replayClear(TaskType.valueOf(record.field(1)));
+                break;
+            default:
+                throw new ManagerSaveException("Неизвестная запись журнала " + record.getRecordNumber()
+                        + ": " + operation);
+        }
+    }
+
+    private void replayPut(Task task) {
+        if (task.getId() > idCounter) {
+            idCounter = task.getId();
+        }
+        if (task instanceof Epic) {
+            if (epics.containsKey(task.getId())) {
+                super.updateEpic((Epic) task);
+            } else {
+                addEpic((Epic) task);
+            }
+        } else if (task instanceof Subtask) {
+            super.deleteSubtask(task.getId());
+            if (epics.containsKey(((Subtask) task).getEpicId())) {
+                addSubtask((Subtask) task);
+            }
+        } else {
+            super.deleteTask(task.getId());
+            addTask(task);
+        }
+    }
+
+    private void replayDelete(TaskType type, int id) {
+        switch (type) {
+            case TASK:
+                super.deleteTask(id);
+                break;
+            case EPIC:
+                super.deleteEpic(id);
+                break;
+            case SUBTASK:
+                super.deleteSubtask(id);
+                break;
+        }
+    }
+
+    private void replayClear(TaskType type) {
+        switch (type) {
+            case TASK:
+                super.removeAllTasks();
+                break;
+            case EPIC:
+                super.removeAllEpics();
+                break;
+            case SUBTASK:
+                super.removeAllSubtasks();
+                break;
+        }
+    }
+
+    @Override
+    public synchronized Task generateTask(Task task) {
+        Task result = super.generateTask(task);
+        appendPut(result);
+        return result;
+    }
+
+    @Override
+    public synchronized Epic generateEpic(Epic epic) {
+        Epic result = super.generateEpic(epic);
+        appendPut(result);
+        return result;
+    }
+
+    @Override
+    public synchronized Subtask generateSubtask(Subtask subtask) {
+        Subtask result = super.generateSubtask(subtask);
+        appendPut(result);
+        return result;
+    }
+
+    @Override
+    public synchronized boolean updateTask(Task task) {
+        boolean updated = super.updateTask(task);
+        if (updated) {
+            appendPut(task);
+        }
+        return updated;
+    }
+
+    @Override
+    public synchronized boolean updateEpic(Epic newEpic) {
+        boolean updated = super.updateEpic(newEpic);
+        if (updated) {
+            appendPut(epics.get(newEpic.getId()));
+        }
+        return updated;
+    }
+
+    @Override
+    public synchronized boolean updateSubtask(Subtask newSubtask) {
+        boolean updated = super.updateSubtask(newSubtask);
+        if (updated) {
+            appendPut(newSubtask);
+        }
+        return updated;
+    }
+
+    @Override
+    public synchronized void deleteTask(int id) {
+        boolean existed = tasks.containsKey(id);
+        super.deleteTask(id);
+        if (existed) {
+            appendDelete(TaskType.TASK, id);
+        }
+    }
+
+    @Override
+    public synchronized void deleteEpic(int id) {
+        boolean existed = epics.containsKey(id);
+        super.deleteEpic(id);
+        if (existed) {
+            appendDelete(TaskType.EPIC, id);
+        }
+    }
+
+    @Override
+    public synchronized void deleteSubtask(int id) {
+        boolean existed = subtasks.containsKey(id);
+        super.deleteSubtask(id);
+        if (existed) {
+            appendDelete(TaskType.SUBTASK, id);
+        }
+    }
+
+    @Override
+    public synchronized List<Task> generateAll(List<? extends Task> items) {
+        List<Task> result = super.generateAll(items);
+        List<String> records = new ArrayList<>(result.size());
+        for (Task task : result) {
+            records.add(PUT + "," + toString(task));
+        }
+        appendAll(records);
+        return result;
+    }
+
+    @Override
+    public synchronized void updateAll(List<? extends Task> items) {
+        super.updateAll(items);
+        List<String> records = new ArrayList<>(items.size());
+        for (Task item : items) {
+            Task stored = item instanceof Epic ? epics.get(item.getId()) : item;
+            records.add(PUT + "," + toString(stored));
+        }
+        appendAll(records);
+    }
+
+    @Override
+    public synchronized int deleteAll(Collection<Integer> ids) {
+        List<String> records = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            TaskType type = tasks.containsKey(id) ? TaskType.TASK
+                    : epics.containsKey(id) ? TaskType.EPIC
+                    : subtasks.containsKey(id) ? TaskType.SUBTASK : null;
+            if (type != null) {
+                records.add(DELETE + "," + type + "," + id);
+            }
+        }
+        int deleted = super.deleteAll(ids);
+        appendAll(records);
+        return deleted;
+    }
+
+    @Override
+    public synchronized void removeAllTasks() {
+        super.removeAllTasks();
+        appendClear(TaskType.TASK);
+    }
+
+    @Override
+    public synchronized void removeAllEpics() {
+        super.removeAllEpics();
+        appendClear(TaskType.EPIC);
+    }
+
+    @Override
+    public synchronized void removeAllSubtasks() {
+        super.removeAllSubtasks();
+        appendClear(TaskType.SUBTASK);
+    }
+}
@@ -0,0 +1,66 @@
+package managers;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Прочитанные из снимка записи вместе с уже заполненными таблицами по id и подзадачами,
+ * разложенными по эпикам. Каждый кусок параллельного разбора собирает свою часть,
+ * части сливаются по порядку, а restore переносит готовые таблицы в менеджер целиком.
+ * При совпадении id побеждает более поздняя запись, как при добавлении по одной.
+ */
+final class LoadedBoard {
+    final List<Task> records = new ArrayList<>();
+    final IntKeyedMap<Task> tasks = new IntKeyedMap<>();
+    final IntKeyedMap<Epic> epics = new IntKeyedMap<>();
+    final IntKeyedMap<Subtask> subtasks = new IntKeyedMap<>();
+    final Map<Integer, List<Subtask>> subtasksByEpic = new HashMap<>();
+    int maxId;
+
+    static LoadedBoard of(List<Task> records) {
+        LoadedBoard board = new LoadedBoard();
+        for (Task task : records) {
+            board.add(task);
+        }
+        return board;
+    }
+
+    void add(Task task) {
+        records.add(task);
+        maxId = Math.max(maxId, task.getId());
+        if (task instanceof Epic) {
+            epics.put(task.getId(), (Epic) task);
+        } else if (task instanceof Subtask) {
+            Subtask subtask = (Subtask) task;
+            subtasks.put(subtask.getId(), subtask);
+            subtasksByEpic.computeIfAbsent(subtask.getEpicId(), id -> new ArrayList<>()).add(subtask);
+        } else {
+            tasks.put(task.getId(), task);
+        }
+    }
+
+    int size() {
+        return records.size();
+    }
+
+    // Дописывает следующую по порядку часть; next после этого не используется
+    LoadedBoard merge(LoadedBoard next) {
+        records.addAll(next.records);
+        maxId = Math.max(maxId, next.maxId);
+        tasks.moveFrom(next.tasks);
+        epics.moveFrom(next.epics);
+        subtasks.moveFrom(next.subtasks);
+        next.subtasksByEpic.forEach((epicId, part) ->
+                subtasksByEpic.merge(epicId, part, (left, right) -> {
+                    left.addAll(right);
+                    return left;
+                }));
+        return this;
+    }
+}
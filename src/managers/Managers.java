@@ -9,6 +9,10 @@ public final class Managers {
         return new InMemoryTaskManager();
     }
 
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
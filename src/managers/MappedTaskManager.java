@@ -0,0 +1,476 @@
+package managers;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskTime;
+import tasks.TaskType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDateTime;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+
+/**
+ * Менеджер, который при запуске только отображает двоичный снимок в память (MappedTaskStore).
+ * Чтение по id обслуживается из хранилища без загрузки всей доски. Изменения тоже не загружают её:
+ * затронутая задача (эпик — вместе с подзадачами) переносится в память, а её запись в снимке
+ * скрывается. Пересечения по времени проверяются по памяти и по времени записей снимка.
+ * Новый снимок собирается из записей отображённого файла и записей в памяти.
+ * Загружают доску целиком только запросы по всей доске (списки, расписание, подсчёты),
+ * snapshot() и subscribe(); после этого менеджер работает как BinaryFileBackedTaskManager.
+ * Сумма всего снимка при открытии не считается (её можно включить через verifyChecksum):
+ * проверяются окончание и индекс, а записи — по мере разбора. Снимок версии 1 без индекса
+ * загружается в память сразу.
+ */
+public class MappedTaskManager extends BinaryFileBackedTaskManager {
+    private MappedTaskStore store;
+    // Id записей снимка, которые перенесены в память или удалены: из хранилища они больше не читаются
+    private final Set<Integer> shadowed = new HashSet<>();
+    private volatile boolean materialized;
+
+    public MappedTaskManager(File file) {
+        this(file, MappedTaskStore.DEFAULT_CACHE_SIZE);
+    }
+
+    public MappedTaskManager(File file, int cacheSize) {
+        this(file, cacheSize, false);
+    }
+
+    public MappedTaskManager(File file, int cacheSize, boolean verifyChecksum) {
+        super(file, FlushPolicy.IMMEDIATE, verifyChecksum);
+        if (getSnapshotSource() != null && MappedTaskStore.isIndexed(getSnapshotSource())) {
+            store = new MappedTaskStore(getSnapshotSource(), cacheSize);
+            idCounter = Math.max(idCounter, store.getMaxId() + 1);
+        } else {
+            materialized = true;
+        }
+    }
+
+    public boolean isMaterialized() {
+        return materialized;
+    }
+
+    private synchronized void materialize() {
+        if (materialized) {
+            return;
+        }
+        List<Task> loaded = store.readAll();
+        loaded.removeIf(task -> shadowed.contains(task.getId()));
+        restore(loaded);
+        store = null;
+        shadowed.clear();
+        materialized = true;
+    }
+
+    private boolean inStore(int id) {
+        return !materialized && !shadowed.contains(id);
+    }
+
+    // Переносит запись снимка в память; подзадача переносится вместе со своим эпиком
+    private void faultIn(int id) {
+        if (!inStore(id)) {
+            return;
+        }
+        TaskType type = store.getType(id);
+        if (type == null) {
+            return;
+        }
+        switch (type) {
+            case TASK -> {
+                Task task = store.getTask(id);
+                shadowed.add(id);
+                addTask(task);
+            }
+            case EPIC -> {
+                Epic epic = store.getEpic(id);
+                shadowed.add(id);
+                epic.updateEpicTime();
+                addEpic(epic);
+                for (Subtask subtask : epic.getSubtasks()) {
+                    shadowed.add(subtask.getId());
+                    putSubtask(subtask);
+                }
+            }
+            case SUBTASK -> faultIn(store.getSubtask(id).getEpicId());
+        }
+    }
+
+    // Записи снимка одного типа скрываются и уходят из истории, не загружаясь
+    private void dropStored(TaskType type) {
+        if (materialized) {
+            return;
+        }
+        store.forEachId(type, id -> {
+            if (shadowed.add(id)) {
+                historyManager.remove(id);
+            }
+        });
+    }
+
+    // Снимок с индексом только проверяется и отображается позже; без индекса читается целиком
+    @Override
+    protected LoadedBoard readSnapshot(File file) throws IOException {
+        if (!MappedTaskStore.isIndexed(file)) {
+            return super.readSnapshot(file);
+        }
+        new MappedTaskStore(file, 0);
+        return new LoadedBoard();
+    }
+
+    @Override
+    public BoardSnapshot snapshot() {
+        materialize();
+        return super.snapshot();
+    }
+
+    // В снимок для записи попадают только задачи в памяти, остальные дописывает writeSnapshot
+    @Override
+    protected BoardSnapshot snapshotToWrite() {
+        return super.snapshot();
+    }
+
+    @Override
+    protected int recordCount(BoardSnapshot board) {
+        return board.size() + (materialized ? 0 : store.size() - shadowed.size());
+    }
+
+    // Запись идёт под монитором: writeSnapshot читает хранилище и скрытые id напрямую
+    @Override
+    public synchronized int flush() {
+        return super.flush();
+    }
+
+    @Override
+    protected void writeSnapshot(BoardSnapshot board, WritableByteChannel out) throws IOException {
+        if (materialized) {
+            super.writeSnapshot(board, out);
+            return;
+        }
+        BinaryTaskFormat.encode(merged(TaskType.TASK, Task.class, board.getAllTasks()),
+                merged(TaskType.EPIC, Epic.class, board.getAllEpics()),
+                merged(TaskType.SUBTASK, Subtask.class, board.getAllSubtasks()), out);
+    }
+
+    // Записи снимка, которые не скрыты, и следом записи из памяти; разбираются по мере обхода
+    private <T extends Task> Collection<T> merged(TaskType type, Class<T> kind, List<T> inMemory) {
+        IntPredicate skipped = shadowed::contains;
+        int stored = store.count(type, skipped);
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<T> iterator() {
+                Iterator<T> fromStore = store.iterator(type, kind, skipped);
+                Iterator<T> fromMemory = inMemory.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return fromStore.hasNext() || fromMemory.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        return fromStore.hasNext() ? fromStore.next() : fromMemory.next();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return stored + inMemory.size();
+            }
+        };
+    }
+
+    // Доска загружается до подписки, иначе загрузка пришла бы подписчику как создание всех задач
+    @Override
+    public TaskEventFeed.Subscription subscribe(TaskEventListener listener, int capacity, int maxBatch) {
+        materialize();
+        return super.subscribe(listener, capacity, maxBatch);
+    }
+
+    // Число записей снимка с индексом сверяет MappedTaskStore
+    @Override
+    protected void checkRecordCount(LoadedBoard loaded, int records) {
+        if (loaded.size() != 0) {
+            super.checkRecordCount(loaded, records);
+        }
+    }
+
+    @Override
+    public synchronized Task getTaskById(int id) {
+        if (inStore(id)) {
+            Task task = store.getTask(id);
+            if (task != null) {
+                historyManager.add(task);
+                return task;
+            }
+        }
+        return super.getTaskById(id);
+    }
+
+    @Override
+    public synchronized Epic getEpicById(int id) {
+        if (inStore(id)) {
+            Epic epic = store.getEpic(id);
+            if (epic != null) {
+                historyManager.add(epic);
+                return epic;
+            }
+        }
+        return super.getEpicById(id);
+    }
+
+    @Override
+    public synchronized Subtask getSubtaskById(int id) {
+        if (inStore(id)) {
+            Subtask subtask = store.getSubtask(id);
+            if (subtask != null) {
+                historyManager.add(subtask);
+                return subtask;
+            }
+        }
+        return super.getSubtaskById(id);
+    }
+
+    @Override
+    public synchronized TaskType getTypeById(int id) {
+        if (inStore(id)) {
+            TaskType type = store.getType(id);
+            if (type != null) {
+                return type;
+            }
+        }
+        return super.getTypeById(id);
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasksByEpic(int epicId) {
+        if (inStore(epicId)) {
+            Epic epic = store.getEpic(epicId);
+            if (epic != null) {
+                return epic.getSubtasks();
+            }
+        }
+        return super.getSubtasksByEpic(epicId);
+    }
+
+    @Override
+    public synchronized Stream<Subtask> streamSubtasksByEpic(int epicId) {
+        if (inStore(epicId)) {
+            Epic epic = store.getEpic(epicId);
+            if (epic != null) {
+                return epic.streamSubtasks();
+            }
+        }
+        return super.streamSubtasksByEpic(epicId);
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        materialize();
+        return super.streamTasks();
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        materialize();
+        return super.streamEpics();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        materialize();
+        return super.streamSubtasks();
+    }
+
+    @Override
+    public synchronized boolean isTaskOverlappingWithOthers(Task task) {
+        if (super.isTaskOverlappingWithOthers(task)) {
+            return true;
+        }
+        long end = task.getEndMinute();
+        return !materialized && end != TaskTime.NONE
+                && store.hasOverlap(task.getStartMinute(), end, id -> id == task.getId() || shadowed.contains(id));
+    }
+
+    @Override
+    synchronized boolean hasScheduleOverlap(long start, long end, IntPredicate excluded) {
+        return super.hasScheduleOverlap(start, end, excluded)
+                || !materialized && store.hasOverlap(start, end, id -> excluded.test(id) || shadowed.contains(id));
+    }
+
+    @Override
+    public List<Task> getOverlappingTasks(LocalDateTime start, LocalDateTime end) {
+        materialize();
+        return super.getOverlappingTasks(start, end);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        materialize();
+        return super.getPrioritizedTasks();
+    }
+
+    @Override
+    public List<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        materialize();
+        return super.getTasksBetween(from, to);
+    }
+
+    @Override
+    public List<Task> getNextTasks(LocalDateTime from, int count) {
+        materialize();
+        return super.getNextTasks(from, count);
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status) {
+        materialize();
+        return super.getTasksByStatus(status);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(TaskStatus status) {
+        materialize();
+        return super.getEpicsByStatus(status);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        materialize();
+        return super.getSubtasksByStatus(status);
+    }
+
+    @Override
+    public Map<TaskStatus, Integer> countByStatus() {
+        materialize();
+        return super.countByStatus();
+    }
+
+    @Override
+    public Map<TaskStatus, Integer> countByStatus(TaskType type) {
+        materialize();
+        return super.countByStatus(type);
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        materialize();
+        return super.getAllTasks();
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        materialize();
+        return super.getAllEpics();
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        materialize();
+        return super.getAllSubtasks();
+    }
+
+    @Override
+    public synchronized Subtask generateSubtask(Subtask subtask) {
+        faultIn(subtask.getEpicId());
+        return super.generateSubtask(subtask);
+    }
+
+    @Override
+    public synchronized boolean updateTask(Task task) {
+        faultIn(task.getId());
+        return super.updateTask(task);
+    }
+
+    @Override
+    public synchronized boolean updateEpic(Epic newEpic) {
+        faultIn(newEpic.getId());
+        return super.updateEpic(newEpic);
+    }
+
+    @Override
+    public synchronized boolean updateSubtask(Subtask newSubtask) {
+        faultIn(newSubtask.getId());
+        faultIn(newSubtask.getEpicId());
+        return super.updateSubtask(newSubtask);
+    }
+
+    @Override
+    public synchronized void deleteTask(int id) {
+        faultIn(id);
+        super.deleteTask(id);
+    }
+
+    @Override
+    public synchronized void deleteEpic(int id) {
+        faultIn(id);
+        super.deleteEpic(id);
+    }
+
+    @Override
+    public synchronized void deleteSubtask(int id) {
+        faultIn(id);
+        super.deleteSubtask(id);
+    }
+
+    @Override
+    public synchronized List<Task> generateAll(List<? extends Task> items) {
+        for (Task item : items) {
+            if (item instanceof Subtask) {
+                faultIn(((Subtask) item).getEpicId());
+            }
+        }
+        return super.generateAll(items);
+    }
+
+    @Override
+    public synchronized void updateAll(List<? extends Task> items) {
+        for (Task item : items) {
+            faultIn(item.getId());
+            if (item instanceof Subtask) {
+                faultIn(((Subtask) item).getEpicId());
+            }
+        }
+        super.updateAll(items);
+    }
+
+    @Override
+    public synchronized int deleteAll(Collection<Integer> ids) {
+        ids.forEach(this::faultIn);
+        return super.deleteAll(ids);
+    }
+
+    @Override
+    public synchronized void removeAllTasks() {
+        dropStored(TaskType.TASK);
+        super.removeAllTasks();
+    }
+
+    @Override
+    public synchronized void removeAllEpics() {
+        dropStored(TaskType.SUBTASK);
+        dropStored(TaskType.EPIC);
+        super.removeAllEpics();
+    }
+
+    // Эпики снимка переносятся в память: без подзадач их статус и время меняются
+    @Override
+    public synchronized void removeAllSubtasks() {
+        if (!materialized) {
+            store.forEachId(TaskType.EPIC, this::faultIn);
+        }
+        dropStored(TaskType.SUBTASK);
+        super.removeAllSubtasks();
+    }
+}
@@ -0,0 +1,414 @@
+package managers;
+
+import exceptions.ManagerSaveException;
+import tasks.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Хранилище только для чтения поверх двоичного снимка (версии 2 и выше), отображённого в память.
+ * Записи разбираются при первом обращении: поиск идёт двоичным поиском по индексу в конце файла,
+ * недавно прочитанные задачи держатся в LRU-кэше. Файл отображается кусками по 1 ГБ,
+ * поэтому размер снимка не ограничен 2 ГБ.
+ * При открытии проверяются только заголовок, окончание и размеры индекса, весь файл не читается.
+ * Запись проверяется при разборе: её id и границы полей должны сходиться с индексом,
+ * иначе бросается ManagerSaveException. Содержимое полей без суммы всего файла не проверить.
+ * Для проверки пересечений время записей собирается при первом запросе в компактные массивы.
+ */
+public class MappedTaskStore {
+    public static final int DEFAULT_CACHE_SIZE = 10_000;
+
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    private static final TaskType[] TYPES = TaskType.values();
+
+    private final MappedByteBuffer[] chunks;
+    private final long indexOffset;
+    private final int indexCount;
+    private final Map<Integer, Task> cache;
+    private int[] scheduledIds;
+    private long[] scheduledStarts;
+    private long[] scheduledEnds;
+
+    public MappedTaskStore(File file) {
+        this(file, DEFAULT_CACHE_SIZE);
+    }
+
+    public MappedTaskStore(File file, int cacheSize) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = SnapshotFile.payloadSize(channel);
+            int records = SnapshotFile.recordCount(channel);
+            chunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = (long) i << CHUNK_SHIFT;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, size - start));
+                chunks[i].order(ByteOrder.BIG_ENDIAN);
+            }
+            if (size < 6 + BinaryTaskFormat.FOOTER_SIZE || getInt(0) != BinaryTaskFormat.MAGIC
+                    || getInt(size - 4) != BinaryTaskFormat.MAGIC) {
+                throw new ManagerSaveException("Файл не является двоичным снимком задач с индексом");
+            }
+            if (getShort(4) < 2) {
+                throw new ManagerSaveException("Снимок версии " + getShort(4) + " не содержит индекса");
+            }
+            indexOffset = getLong(size - BinaryTaskFormat.FOOTER_SIZE);
+            indexCount = getInt(size - BinaryTaskFormat.FOOTER_SIZE + 8);
+            if (indexCount < 0 || indexOffset < 6 || (records >= 0 && records != indexCount)
+                    || indexOffset + (long) indexCount * BinaryTaskFormat.INDEX_ENTRY_SIZE
+                    != size - BinaryTaskFormat.FOOTER_SIZE) {
+                throw new ManagerSaveException("Индекс снимка повреждён");
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения файла", e);
+        }
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Task> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    // Есть ли в двоичном снимке индекс (версия 2 и выше); снимки версии 1 читаются целиком
+    public static boolean isIndexed(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(6);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    return false;
+                }
+            }
+            return header.getInt(0) == BinaryTaskFormat.MAGIC && header.getShort(4) >= 2;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public int size() {
+        return indexCount;
+    }
+
+    public int getMaxId() {
+        return indexCount == 0 ? 0 : getInt(entryOffset(indexCount - 1));
+    }
+
+    public TaskType getType(int id) {
+        int entry = findEntry(id);
+        return entry < 0 ? null : entryType(entry);
+    }
+
+    public synchronized Task getTask(int id) {
+        Task task = get(id);
+        return task != null && task.getClass() == Task.class ? task : null;
+    }
+
+    public synchronized Epic getEpic(int id) {
+        Task task = get(id);
+        return task instanceof Epic ? (Epic) task : null;
+    }
+
+    public synchronized Subtask getSubtask(int id) {
+        Task task = get(id);
+        return task instanceof Subtask ? (Subtask) task : null;
+    }
+
+    public void forEachId(TaskType type, IntConsumer action) {
+        for (int entry = 0; entry < indexCount; entry++) {
+            if (entryType(entry) == type) {
+                action.accept(getInt(entryOffset(entry)));
+            }
+        }
+    }
+
+    public int count(TaskType type, IntPredicate skipped) {
+        int count = 0;
+        for (int entry = 0; entry < indexCount; entry++) {
+            if (entryType(entry) == type && !skipped.test(getInt(entryOffset(entry)))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Записи одного типа по возрастанию id, разобранные по мере обхода и мимо кэша; эпики без подзадач
+    public <T extends Task> Iterator<T> iterator(TaskType type, Class<T> kind, IntPredicate skipped) {
+        return new Iterator<>() {
+            private int entry = advance(0);
+
+            private int advance(int from) {
+                while (from < indexCount && (entryType(from) != type || skipped.test(getInt(entryOffset(from))))) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return entry < indexCount;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T task = kind.cast(decode(entry, false, null));
+                entry = advance(entry + 1);
+                return task;
+            }
+        };
+    }
+
+    // Есть ли среди задач и подзадач снимка, кроме excluded, пересекающая [start, end)
+    public synchronized boolean hasOverlap(long start, long end, IntPredicate excluded) {
+        if (scheduledIds == null) {
+            loadSchedule();
+        }
+        for (int i = 0; i < scheduledIds.length; i++) {
+            if (scheduledStarts[i] < end && scheduledEnds[i] > start && !excluded.test(scheduledIds[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Время читается прямо из записей: строки пропускаются, задачи не создаются
+    private void loadSchedule() {
+        int[] ids = new int[indexCount];
+        long[] starts = new long[indexCount];
+        long[] ends = new long[indexCount];
+        int size = 0;
+        for (int entry = 0; entry < indexCount; entry++) {
+            if (entryType(entry) == TaskType.EPIC) {
+                continue;
+            }
+            int id = getInt(entryOffset(entry));
+            long position = getLong(entryOffset(entry) + 5) + 5;
+            for (int field = 0; field < 2; field++) {
+                checkBounds(id, position, 4);
+                int length = getInt(position);
+                position += 4 + Math.max(length, 0);
+            }
+            checkBounds(id, position, 16);
+            long startMinute = getLong(position);
+            long duration = getLong(position + 8);
+            if (startMinute == TaskTime.NONE || duration <= 0) {
+                continue;
+            }
+            ids[size] = id;
+            starts[size] = startMinute;
+            ends[size] = startMinute + duration;
+            size++;
+        }
+        scheduledIds = Arrays.copyOf(ids, size);
+        scheduledStarts = Arrays.copyOf(starts, size);
+        scheduledEnds = Arrays.copyOf(ends, size);
+    }
+
+    public synchronized List<Task> readAll() {
+        List<Task> tasks = new ArrayList<>();
+        List<Task> epics = new ArrayList<>();
+        List<Task> subtasks = new ArrayList<>();
+        StringPool strings = new StringPool();
+        for (int entry = 0; entry < indexCount; entry++) {
+            Task task = entryType(entry) == TaskType.EPIC ? null : cache.get(getInt(entryOffset(entry)));
+            if (task == null) {
+                task = decode(entry, false, strings);
+            }
+            switch (entryType(entry)) {
+                case TASK:
+                    tasks.add(task);
+                    break;
+                case EPIC:
+                    epics.add(task);
+                    break;
+                case SUBTASK:
+                    subtasks.add(task);
+                    break;
+            }
+        }
+        tasks.addAll(epics);
+        tasks.addAll(subtasks);
+        return tasks;
+    }
+
+    private Task get(int id) {
+        Task task = cache.get(id);
+        if (task != null) {
+            return task;
+        }
+        int entry = findEntry(id);
+        if (entry < 0) {
+            return null;
+        }
+        task = decode(entry, true, null);
+        cache.put(id, task);
+        return task;
+    }
+
+    private int findEntry(int id) {
+        int low = 0;
+        int high = indexCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = getInt(entryOffset(mid));
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private long entryOffset(int entry) {
+        return indexOffset + (long) entry * BinaryTaskFormat.INDEX_ENTRY_SIZE;
+    }
+
+    private TaskType entryType(int entry) {
+        byte type = getByte(entryOffset(entry) + 4);
+        if (type < 0 || type >= TYPES.length) {
+            throw corrupted(getInt(entryOffset(entry)));
+        }
+        return TYPES[type];
+    }
+
+    private ManagerSaveException corrupted(int id) {
+        return new ManagerSaveException("Запись " + id + " в снимке повреждена");
+    }
+
+    // Поле [position, position + length) должно лежать в разделе записей, до индекса
+    private void checkBounds(int id, long position, long length) {
+        if (position < 6 || length < 0 || position + length > indexOffset) {
+            throw corrupted(id);
+        }
+    }
+
+    private Task decode(int entry, boolean withSubtasks, StringPool strings) {
+        long entryOffset = entryOffset(entry);
+        int indexId = getInt(entryOffset);
+        TaskType type = entryType(entry);
+        long[] position = {getLong(entryOffset + 5)};
+        long link = getLong(entryOffset + 13);
+
+        checkBounds(indexId, position[0], 5);
+        int id = getInt(position[0]);
+        byte statusCode = getByte(position[0] + 4);
+        if (id != indexId || statusCode < -1 || statusCode >= STATUSES.length) {
+            throw corrupted(indexId);
+        }
+        TaskStatus status = statusCode < 0 ? null : STATUSES[statusCode];
+        position[0] += 5;
+        String name = readString(id, position);
+        String description = readString(id, position);
+        if (strings != null) {
+            name = strings.get(name);
+            description = strings.get(description);
+        }
+
+        if (type != TaskType.EPIC) {
+            checkBounds(id, position[0], 16);
+        }
+        switch (type) {
+            case EPIC:
+                Epic epic = new Epic(name, description);
+                epic.setId(id);
+                epic.setTaskStatus(status);
+                if (withSubtasks && link >= 0) {
+                    checkBounds(id, link, 8);
+                    int size = getInt(link + 4);
+                    checkBounds(id, link + 8, 4L * size);
+                    for (int i = 0; i < size; i++) {
+                        Subtask subtask = getSubtask(getInt(link + 8 + 4L * i));
+                        if (subtask != null) {
+                            epic.addSubtask(subtask);
+                        }
+                    }
+                    epic.updateStatus();
+                }
+                return epic;
+            case SUBTASK:
+                Subtask subtask = new Subtask(name, description, (int) link,
+                        readDuration(position[0] + 8), readStartTime(position[0]));
+                subtask.setTaskStatus(status);
+                subtask.setId(id);
+                return subtask;
+            default:
+                Task task = new Task(name, description, status,
+                        readDuration(position[0] + 8), readStartTime(position[0]));
+                task.setId(id);
+                return task;
+        }
+    }
+
+    private LocalDateTime readStartTime(long position) {
+        return TaskTime.toDateTime(getLong(position));
+    }
+
+    private Duration readDuration(long position) {
+        long minutes = getLong(position);
+        return minutes == BinaryTaskFormat.NO_VALUE || minutes <= 0 ? null : Duration.ofMinutes(minutes);
+    }
+
+    private String readString(int id, long[] position) {
+        checkBounds(id, position[0], 4);
+        int length = getInt(position[0]);
+        position[0] += 4;
+        if (length == -1) {
+            return null;
+        }
+        checkBounds(id, position[0], length);
+        byte[] bytes = new byte[length];
+        for (int offset = 0; offset < length; ) {
+            long absolute = position[0] + offset;
+            MappedByteBuffer chunk = chunks[(int) (absolute >>> CHUNK_SHIFT)];
+            int inChunk = (int) (absolute & (CHUNK_SIZE - 1));
+            int count = Math.min(length - offset, chunk.limit() - inChunk);
+            chunk.get(inChunk, bytes, offset, count);
+            offset += count;
+        }
+        position[0] += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte getByte(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & (CHUNK_SIZE - 1)));
+    }
+
+    private short getShort(long position) {
+        return (short) ((getByte(position) & 0xFF) << 8 | getByte(position + 1) & 0xFF);
+    }
+
+    private int getInt(long position) {
+        int inChunk = (int) (position & (CHUNK_SIZE - 1));
+        MappedByteBuffer chunk = chunks[(int) (position >>> CHUNK_SHIFT)];
+        if (inChunk + 4 <= chunk.limit()) {
+            return chunk.getInt(inChunk);
+        }
+        return (getShort(position) & 0xFFFF) << 16 | getShort(position + 2) & 0xFFFF;
+    }
+
+    private long getLong(long position) {
+        int inChunk = (int) (position & (CHUNK_SIZE - 1));
+        MappedByteBuffer chunk = chunks[(int) (position >>> CHUNK_SHIFT)];
+        if (inChunk + 8 <= chunk.limit()) {
+            return chunk.getLong(inChunk);
+        }
+        return (long) getInt(position) << 32 | getInt(position + 4) & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,204 @@
+package managers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Разбор большого CSV-снимка на нескольких ядрах.
+ * Файл делится на куски по байтам; сначала в каждом куске параллельно считаются кавычки,
+ * по чётности их суммы слева известно, внутри ли поля в кавычках начинается кусок.
+ * Затем каждый кусок сдвигает свои границы к ближайшему переводу строки вне кавычек и
+ * разбирается своим CsvReader и сразу раскладывает задачи по своим таблицам id. Части сливаются
+ * попарно, тоже на потоках пула, и по порядку кусков, поэтому результат тот же, что при чтении
+ * одним потоком.
+ * Подходит только для снимков, записанных CsvWriter (с контрольной суммой): в файлах старого
+ * формата кавычка могла стоять посреди поля, и чётность по ним ничего не говорит.
+ */
+final class ParallelCsvLoader {
+    static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int SCAN_BUFFER_SIZE = 1 << 14;
+
+    private ParallelCsvLoader() {
+    }
+
+    // Читает позиционно отрезок [position, end) общего канала
+    private static final class RangeChannel implements ReadableByteChannel {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        RangeChannel(FileChannel channel, long position, long end) {
+            this.channel = channel;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read(ByteBuffer target) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            if (target.remaining() > end - position) {
+                target.limit(target.position() + (int) (end - position));
+            }
+            int read = channel.read(target, position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    static boolean worthSplitting(long size, ForkJoinPool pool) {
+        return pool != null && pool.getParallelism() > 1 && size >= 2L * MIN_CHUNK_SIZE;
+    }
+
+    static LoadedBoard read(FileChannel channel, long size, ForkJoinPool pool, StringPool strings) throws IOException {
+        int chunks = (int) Math.max(1, Math.min((long) pool.getParallelism() * CHUNKS_PER_THREAD,
+                size / MIN_CHUNK_SIZE));
+        long[] bounds = new long[chunks + 1];
+        for (int i = 0; i <= chunks; i++) {
+            bounds[i] = size * i / chunks;
+        }
+
+        List<Callable<Long>> counts = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            long from = bounds[i];
+            long to = bounds[i + 1];
+            counts.add(() -> countQuotes(channel, from, to));
+        }
+        boolean[] quotedAt = new boolean[chunks + 1];
+        List<Long> quotes = runAll(pool, counts);
+        for (int i = 0; i < chunks; i++) {
+            quotedAt[i + 1] = quotedAt[i] ^ (quotes.get(i) % 2 == 1);
+        }
+
+        List<Callable<LoadedBoard>> parts = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            int chunk = i;
+            parts.add(() -> {
+                long from = chunk == 0 ? 0 : recordStart(channel, bounds[chunk], quotedAt[chunk], size);
+                long to = chunk == chunks - 1 ? size
+                        : recordStart(channel, bounds[chunk + 1], quotedAt[chunk + 1], size);
+                return parse(channel, from, to, chunk == 0, strings);
+            });
+        }
+        List<LoadedBoard> loaded = runAll(pool, parts);
+        return pool.submit(() -> mergeAll(loaded, 0, loaded.size())).join();
+    }
+
+    // Левая половина сливается в отдельной задаче, правая — в текущем потоке
+    private static LoadedBoard mergeAll(List<LoadedBoard> parts, int from, int to) {
+        if (to - from == 1) {
+            return parts.get(from);
+        }
+        int middle = (from + to) >>> 1;
+        ForkJoinTask<LoadedBoard> left = ForkJoinTask.adapt(() -> mergeAll(parts, from, middle)).fork();
+        LoadedBoard right = mergeAll(parts, middle, to);
+        return left.join().merge(right);
+    }
+
+    private static long countQuotes(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long quotes = 0;
+        long position = from;
+        while (position < to) {
+            buffer.clear().limit((int) Math.min(SCAN_BUFFER_SIZE, to - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '"') {
+                    quotes++;
+                }
+            }
+            position += read;
+        }
+        return quotes;
+    }
+
+    // Начало первой записи после позиции position: следующий за переводом строки вне кавычек байт
+    private static long recordStart(FileChannel channel, long position, boolean quoted, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (position < size) {
+            buffer.clear().limit((int) Math.min(SCAN_BUFFER_SIZE, size - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static LoadedBoard parse(FileChannel channel, long from, long to, boolean header, StringPool strings)
+            throws IOException {
+        LoadedBoard result = new LoadedBoard();
+        if (from >= to) {
+            return result;
+        }
+        try (CsvReader csv = new CsvReader(Channels.newReader(new RangeChannel(channel, from, to),
+                StandardCharsets.UTF_8))) {
+            if (header && !csv.next()) {
+                return result;
+            }
+            while (csv.next()) {
+                if ((csv.fieldCount() == 1 && csv.isEmpty(0)) || csv.startsWith(0, '#')) continue;
+                result.add(FileBackedTaskManager.readTask(csv, 0, strings));
+            }
+        }
+        return result;
+    }
+
+    private static <T> List<T> runAll(ForkJoinPool pool, List<Callable<T>> jobs) throws IOException {
+        List<ForkJoinTask<T>> submitted = new ArrayList<>(jobs.size());
+        for (Callable<T> job : jobs) {
+            submitted.add(pool.submit(() -> {
+                try {
+                    return job.call();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        List<T> results = new ArrayList<>(jobs.size());
+        try {
+            for (ForkJoinTask<T> task : submitted) {
+                results.add(task.join());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return results;
+    }
+}
@@ -0,0 +1,150 @@
+package managers;
+
+import java.util.function.Consumer;
+
+/**
+ * Неизменяемая карта с ключами int: префиксное дерево по 5 бит ключа с битовыми масками в узлах.
+ * plus и minus возвращают новую карту и копируют только узлы на пути к ключу (не больше семи),
+ * остальные узлы общие со старой версией, поэтому старые версии остаются целыми и стоят дёшево.
+ * Обход идёт в порядке возрастания ключей.
+ */
+final class PersistentIntMap<V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int TOP_SHIFT = 30;
+
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(null, 0);
+
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+
+    private final Node root;
+    private final int size;
+
+    private PersistentIntMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    // Сдвиг знакового бита сохраняет порядок: отрицательные ключи идут раньше положительных
+    private static int path(int key) {
+        return key ^ Integer.MIN_VALUE;
+    }
+
+    private static int bit(int path, int shift) {
+        return 1 << ((path >>> shift) & MASK);
+    }
+
+    private static int position(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int path = path(key);
+        Node node = root;
+        for (int shift = TOP_SHIFT; node != null; shift -= BITS) {
+            int bit = bit(path, shift);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[position(node.bitmap, bit)];
+            if (shift == 0) {
+                return (V) slot;
+            }
+            node = (Node) slot;
+        }
+        return null;
+    }
+
+    public PersistentIntMap<V> plus(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("PersistentIntMap не хранит null");
+        }
+        boolean added = get(key) == null;
+        return new PersistentIntMap<>(plus(root, path(key), TOP_SHIFT, value), added ? size + 1 : size);
+    }
+
+    private static Node plus(Node node, int path, int shift, Object value) {
+        int bit = bit(path, shift);
+        if (node == null) {
+            return new Node(bit, new Object[]{shift == 0 ? value : plus(null, path, shift - BITS, value)});
+        }
+        int position = position(node.bitmap, bit);
+        if ((node.bitmap & bit) != 0) {
+            Object[] slots = node.slots.clone();
+            slots[position] = shift == 0 ? value : plus((Node) slots[position], path, shift - BITS, value);
+            return new Node(node.bitmap, slots);
+        }
+        Object[] slots = new Object[node.slots.length + 1];
+        System.arraycopy(node.slots, 0, slots, 0, position);
+        System.arraycopy(node.slots, position, slots, position + 1, node.slots.length - position);
+        slots[position] = shift == 0 ? value : plus(null, path, shift - BITS, value);
+        return new Node(node.bitmap | bit, slots);
+    }
+
+    public PersistentIntMap<V> minus(int key) {
+        if (get(key) == null) {
+            return this;
+        }
+        return size == 1 ? empty() : new PersistentIntMap<>(minus(root, path(key), TOP_SHIFT), size - 1);
+    }
+
+    private static Node minus(Node node, int path, int shift) {
+        int bit = bit(path, shift);
+        int position = position(node.bitmap, bit);
+        if (shift != 0) {
+            Node child = minus((Node) node.slots[position], path, shift - BITS);
+            if (child != null) {
+                Object[] slots = node.slots.clone();
+                slots[position] = child;
+                return new Node(node.bitmap, slots);
+            }
+        }
+        if (node.slots.length == 1) {
+            return null;
+        }
+        Object[] slots = new Object[node.slots.length - 1];
+        System.arraycopy(node.slots, 0, slots, 0, position);
+        System.arraycopy(node.slots, position + 1, slots, position, slots.length - position);
+        return new Node(node.bitmap & ~bit, slots);
+    }
+
+    public void forEach(Consumer<? super V> action) {
+        forEach(root, TOP_SHIFT, action);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void forEach(Node node, int shift, Consumer<? super V> action) {
+        if (node == null) {
+            return;
+        }
+        for (Object slot : node.slots) {
+            if (shift == 0) {
+                action.accept((V) slot);
+            } else {
+                forEach((Node) slot, shift - BITS, action);
+            }
+        }
+    }
+}
@@ -0,0 +1,599 @@
+package managers;
+
+import exceptions.BatchValidationException;
+import exceptions.ManagerSaveException;
+import history.HistoryManager;
+import history.NoHistoryManager;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskTime;
+import tasks.TaskType;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Доска, разложенная по нескольким FileBackedTaskManager, у каждого свой файл shard-N.csv.
+ * Id раздаёт общий счётчик, а задача живёт в шарде с номером id по модулю числа шардов,
+ * поэтому шард находится по id без общего справочника, а новые задачи и эпики расходятся
+ * по шардам по очереди. Подзадача живёт в шарде своего эпика: ей выдаётся ближайший id
+ * с тем же остатком. Подзадачу нельзя перенести в эпик из другого шарда.
+ * Каждый шард защищён собственным монитором и пишет свой файл только после своих изменений,
+ * так что изменения в разных шардах идут параллельно. Пересечения по времени проверяются
+ * по всем шардам под общим замком расписания; его берут только записи задач со временем,
+ * и только на проверку и изменение в памяти — файл шарда пишется уже после него.
+ * Пакетные операции берут замок расписания и мониторы всех шардов по возрастанию номера.
+ * Запросы по всей доске читают шарды по очереди и сливают результаты: по id или,
+ * для расписания, по началу. Разные шарды при этом могут быть прочитаны в разные моменты.
+ * Потоки задач идут по шардам и не упорядочены по id.
+ * Число шардов нельзя менять между запусками: при загрузке id проверяются на свой шард.
+ */
+public class ShardedTaskManager implements TaskManager, AutoCloseable {
+    private static final Comparator<Task> BY_ID = Comparator.comparingInt(Task::getId);
+    private static final Comparator<Task> BY_START = Comparator.comparingLong(Task::getStartMinute)
+            .thenComparingInt(Task::getId);
+
+    private final int shardCount;
+    private final List<FileBackedTaskManager> shards = new ArrayList<>();
+    private final List<Deque<Integer>> reservedIds = new ArrayList<>();
+    private final AtomicInteger lastId = new AtomicInteger();
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+    private final HistoryManager historyManager = Managers.getDefaultHistory();
+
+    public ShardedTaskManager(File directory, int shardCount) {
+        this(directory, shardCount, FlushPolicy.IMMEDIATE);
+    }
+
+    public ShardedTaskManager(File directory, int shardCount, FlushPolicy flushPolicy) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Число шардов должно быть положительным");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new ManagerSaveException("Не удалось создать каталог " + directory);
+        }
+        this.shardCount = shardCount;
+        for (int i = 0; i < shardCount; i++) {
+            int index = i;
+            Deque<Integer> reserved = new ArrayDeque<>();
+            FileBackedTaskManager shard = new FileBackedTaskManager(shardFile(directory, i), flushPolicy,
+                    new NoHistoryManager());
+            shard.setIdSource(() -> {
+                Integer id = reserved.poll();
+                if (id == null) {
+                    throw new IllegalStateException("Шарду " + index + " не выдан id");
+                }
+                return id;
+            });
+            shards.add(shard);
+            reservedIds.add(reserved);
+            checkShard(i);
+        }
+    }
+
+    public static File shardFile(File directory, int index) {
+        return new File(directory, "shard-" + index + ".csv");
+    }
+
+    private void checkShard(int index) {
+        shards.get(index).snapshot().forEachRecord(task -> {
+            if (shardOf(task.getId()) != index) {
+                throw new ManagerSaveException("Задача " + task.getId() + " лежит в шарде " + index
+                        + ": доска сохранена с другим числом шардов");
+            }
+            lastId.accumulateAndGet(task.getId(), Math::max);
+        });
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int shardOf(int id) {
+        return Math.floorMod(id, shardCount);
+    }
+
+    // Поколение файла шарда: растёт только при записи этого шарда
+    public long getGeneration(int shard) {
+        return shards.get(shard).getGeneration();
+    }
+
+    public int flush() {
+        int flushed = 0;
+        for (FileBackedTaskManager shard : shards) {
+            flushed += shard.flush();
+        }
+        return flushed;
+    }
+
+    @Override
+    public void close() {
+        for (FileBackedTaskManager shard : shards) {
+            shard.close();
+        }
+    }
+
+    private FileBackedTaskManager shardFor(int id) {
+        return shards.get(shardOf(id));
+    }
+
+    // Следующий id; для target >= 0 — ближайший, который попадает в шард target
+    private int nextId(int target) {
+        return lastId.updateAndGet(last -> target < 0 ? last + 1
+                : last + 1 + Math.floorMod(target - (last + 1), shardCount));
+    }
+
+    // Выдаёт шарду заранее выбранные id на время одной операции; монитор шарда уже взят
+    private <R> R withIds(int target, List<Integer> ids, Supplier<R> action) {
+        Deque<Integer> reserved = reservedIds.get(target);
+        reserved.addAll(ids);
+        try {
+            return action.get();
+        } finally {
+            reserved.clear();
+        }
+    }
+
+    private static <R> R locked(FileBackedTaskManager shard, Function<FileBackedTaskManager, R> action) {
+        synchronized (shard) {
+            return action.apply(shard);
+        }
+    }
+
+    private <R> List<R> fromEachShard(Function<FileBackedTaskManager, List<? extends R>> query) {
+        List<R> result = new ArrayList<>();
+        for (FileBackedTaskManager shard : shards) {
+            result.addAll(locked(shard, query));
+        }
+        return result;
+    }
+
+    private static <T extends Task> List<T> sorted(List<T> tasks, Comparator<Task> order) {
+        tasks.sort(order);
+        return tasks;
+    }
+
+    // Слияние уже упорядоченных списков шардов
+    private List<Task> mergeSchedules(Function<FileBackedTaskManager, List<Task>> query, int limit) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>((a, b) -> BY_START.compare(a.current(), b.current()));
+        for (FileBackedTaskManager shard : shards) {
+            List<Task> part = locked(shard, query);
+            if (!part.isEmpty()) {
+                heads.add(new Cursor(part));
+            }
+        }
+        List<Task> result = new ArrayList<>();
+        while (!heads.isEmpty() && result.size() < limit) {
+            Cursor head = heads.poll();
+            result.add(head.current());
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+        return result;
+    }
+
+    private static final class Cursor {
+        private final List<Task> tasks;
+        private int position;
+
+        Cursor(List<Task> tasks) {
+            this.tasks = tasks;
+        }
+
+        Task current() {
+            return tasks.get(position);
+        }
+
+        boolean advance() {
+            return ++position < tasks.size();
+        }
+    }
+
+    // Запись задачи со временем проверяется по расписанию остальных шардов под общим замком;
+    // файл шарда пишется после снятия замка, чтобы запись на диск не задерживала другие шарды
+    private <R> R write(int target, Task task, Supplier<R> action) {
+        FileBackedTaskManager shard = shards.get(target);
+        if (task.getEndMinute() == TaskTime.NONE || task instanceof Epic) {
+            synchronized (shard) {
+                return action.get();
+            }
+        }
+        R result;
+        scheduleLock.lock();
+        try {
+            for (int i = 0; i < shards.size(); i++) {
+                if (i != target && locked(shards.get(i), other -> other.isTaskOverlappingWithOthers(task))) {
+                    throw new IllegalArgumentException(
+                            "Невозможно сохранить задачу: пересечение по времени с другой задачей (ID=" + task.getId() + ")");
+                }
+            }
+            result = shard.deferFlush(action);
+        } finally {
+            scheduleLock.unlock();
+        }
+        shard.flushDeferred();
+        return result;
+    }
+
+    private <R> R lockAll(Supplier<R> action) {
+        scheduleLock.lock();
+        try {
+            return lockFrom(0, action);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    private <R> R lockFrom(int index, Supplier<R> action) {
+        if (index == shards.size()) {
+            return action.get();
+        }
+        synchronized (shards.get(index)) {
+            return lockFrom(index + 1, action);
+        }
+    }
+
+    private void forget(Collection<Integer> ids) {
+        synchronized (historyManager) {
+            ids.forEach(historyManager::remove);
+        }
+    }
+
+    private <T extends Task> T remember(T task) {
+        if (task != null) {
+            synchronized (historyManager) {
+                historyManager.add(task);
+            }
+        }
+        return task;
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return mergeSchedules(TaskManager::getPrioritizedTasks, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        return mergeSchedules(shard -> shard.getTasksBetween(from, to), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Task> getNextTasks(LocalDateTime from, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Количество задач не может быть отрицательным");
+        }
+        return mergeSchedules(shard -> shard.getNextTasks(from, count), count);
+    }
+
+    @Override
+    public List<Task> getTasksOn(LocalDate day) {
+        return getTasksBetween(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return sorted(fromEachShard(TaskManager::getAllTasks), BY_ID);
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return sorted(fromEachShard(TaskManager::getAllEpics), BY_ID);
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return sorted(fromEachShard(TaskManager::getAllSubtasks), BY_ID);
+    }
+
+    // Шард копируется под своим монитором, только когда поток до него дошёл
+    private <R> Stream<R> streamEachShard(Function<FileBackedTaskManager, List<? extends R>> query) {
+        return shards.stream().flatMap(shard -> locked(shard, query).stream());
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return streamEachShard(TaskManager::getAllTasks);
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return streamEachShard(TaskManager::getAllEpics);
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return streamEachShard(TaskManager::getAllSubtasks);
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasksByEpic(int epicId) {
+        return getSubtasksByEpic(epicId).stream();
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status) {
+        return sorted(fromEachShard(shard -> shard.getTasksByStatus(status)), BY_ID);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(TaskStatus status) {
+        return sorted(fromEachShard(shard -> shard.getEpicsByStatus(status)), BY_ID);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        return sorted(fromEachShard(shard -> shard.getSubtasksByStatus(status)), BY_ID);
+    }
+
+    @Override
+    public Map<TaskStatus, Integer> countByStatus() {
+        return countByStatus(null);
+    }
+
+    @Override
+    public Map<TaskStatus, Integer> countByStatus(TaskType type) {
+        Map<TaskStatus, Integer> result = new EnumMap<>(TaskStatus.class);
+        for (FileBackedTaskManager shard : shards) {
+            Map<TaskStatus, Integer> counts = locked(shard,
+                    manager -> type == null ? manager.countByStatus() : manager.countByStatus(type));
+            counts.forEach((status, count) -> result.merge(status, count, Integer::sum));
+        }
+        return result;
+    }
+
+    @Override
+    public void removeAllTasks() {
+        for (FileBackedTaskManager shard : shards) {
+            forget(locked(shard, manager -> {
+                List<Integer> ids = new ArrayList<>(manager.tasks.keySet());
+                manager.removeAllTasks();
+                return ids;
+            }));
+        }
+    }
+
+    @Override
+    public void removeAllEpics() {
+        for (FileBackedTaskManager shard : shards) {
+            forget(locked(shard, manager -> {
+                List<Integer> ids = new ArrayList<>(manager.epics.keySet());
+                ids.addAll(manager.subtasks.keySet());
+                manager.removeAllEpics();
+                return ids;
+            }));
+        }
+    }
+
+    @Override
+    public void removeAllSubtasks() {
+        for (FileBackedTaskManager shard : shards) {
+            forget(locked(shard, manager -> {
+                List<Integer> ids = new ArrayList<>(manager.subtasks.keySet());
+                manager.removeAllSubtasks();
+                return ids;
+            }));
+        }
+    }
+
+    // Просмотр попадает в общую историю доски, а не в историю шарда
+    @Override
+    public Task getTaskById(int id) {
+        return remember(locked(shardFor(id), manager -> manager.tasks.get(id)));
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return remember(locked(shardFor(id), manager -> manager.epics.get(id)));
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return remember(locked(shardFor(id), manager -> manager.subtasks.get(id)));
+    }
+
+    @Override
+    public TaskType getTypeById(int id) {
+        return locked(shardFor(id), manager -> manager.getTypeById(id));
+    }
+
+    @Override
+    public Task generateTask(Task task) {
+        int id = nextId(-1);
+        int target = shardOf(id);
+        return write(target, task, () -> withIds(target, List.of(id), () -> shards.get(target).generateTask(task)));
+    }
+
+    @Override
+    public Epic generateEpic(Epic epic) {
+        int id = nextId(-1);
+        int target = shardOf(id);
+        return write(target, epic, () -> withIds(target, List.of(id), () -> shards.get(target).generateEpic(epic)));
+    }
+
+    @Override
+    public Subtask generateSubtask(Subtask subtask) {
+        int target = shardOf(subtask.getEpicId());
+        int id = nextId(target);
+        return write(target, subtask,
+                () -> withIds(target, List.of(id), () -> shards.get(target).generateSubtask(subtask)));
+    }
+
+    // Несуществующая задача не обновляется и не проверяется на пересечения, как в InMemoryTaskManager
+    @Override
+    public boolean updateTask(Task task) {
+        int target = shardOf(task.getId());
+        if (!locked(shards.get(target), manager -> manager.tasks.containsKey(task.getId()))) {
+            return false;
+        }
+        return write(target, task, () -> shards.get(target).updateTask(task));
+    }
+
+    @Override
+    public boolean updateEpic(Epic newEpic) {
+        return locked(shardFor(newEpic.getId()), manager -> manager.updateEpic(newEpic));
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask newSubtask) {
+        int target = shardOf(newSubtask.getId());
+        if (!locked(shards.get(target), manager -> manager.subtasks.containsKey(newSubtask.getId()))) {
+            return false;
+        }
+        return write(target, newSubtask, () -> {
+            FileBackedTaskManager shard = shards.get(target);
+            if (shardOf(newSubtask.getEpicId()) != target) {
+                throw new IllegalArgumentException("Подзадачу " + newSubtask.getId()
+                        + " нельзя перенести в эпик " + newSubtask.getEpicId() + " из другого шарда");
+            }
+            return shard.updateSubtask(newSubtask);
+        });
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        locked(shardFor(id), manager -> {
+            manager.deleteTask(id);
+            return null;
+        });
+        forget(List.of(id));
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        forget(locked(shardFor(id), manager -> {
+            List<Integer> ids = new ArrayList<>();
+            Epic epic = manager.epics.get(id);
+            if (epic != null) {
+                ids.add(id);
+                epic.getSubtasks().forEach(subtask -> ids.add(subtask.getId()));
+            }
+            manager.deleteEpic(id);
+            return ids;
+        }));
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        locked(shardFor(id), manager -> {
+            manager.deleteSubtask(id);
+            return null;
+        });
+        forget(List.of(id));
+    }
+
+    // Пакет проверяется по всем шардам сразу, затем каждый шард применяет свою часть
+    @Override
+    public List<Task> generateAll(List<? extends Task> items) {
+        return lockAll(() -> {
+            Map<Integer, String> errors = TaskBatch.validateGenerate(items,
+                    id -> shardFor(id).epics.containsKey(id), this::hasScheduleOverlap);
+            if (!errors.isEmpty()) {
+                throw new BatchValidationException(errors);
+            }
+            Map<Integer, List<Task>> parts = new TreeMap<>();
+            Map<Integer, List<Integer>> ids = new HashMap<>();
+            for (Task item : items) {
+                int id = nextId(item instanceof Subtask ? shardOf(((Subtask) item).getEpicId()) : -1);
+                parts.computeIfAbsent(shardOf(id), index -> new ArrayList<>()).add(item);
+                ids.computeIfAbsent(shardOf(id), index -> new ArrayList<>()).add(id);
+            }
+            parts.forEach((index, part) -> withIds(index, ids.get(index), () -> shards.get(index).generateAll(part)));
+            return new ArrayList<Task>(items);
+        });
+    }
+
+    @Override
+    public void updateAll(List<? extends Task> items) {
+        lockAll(() -> {
+            Map<Integer, String> errors = TaskBatch.validateUpdate(items,
+                    id -> shardFor(id).tasks.containsKey(id),
+                    id -> shardFor(id).epics.containsKey(id),
+                    id -> shardFor(id).subtasks.containsKey(id),
+                    this::hasScheduleOverlap);
+            for (int i = 0; i < items.size(); i++) {
+                Task item = items.get(i);
+                if (item instanceof Subtask && shardOf(((Subtask) item).getEpicId()) != shardOf(item.getId())) {
+                    errors.putIfAbsent(i, "Подзадачу нельзя перенести в эпик из другого шарда");
+                }
+            }
+            if (!errors.isEmpty()) {
+                throw new BatchValidationException(errors);
+            }
+            Map<Integer, List<Task>> parts = new TreeMap<>();
+            for (Task item : items) {
+                parts.computeIfAbsent(shardOf(item.getId()), index -> new ArrayList<>()).add(item);
+            }
+            parts.forEach((index, part) -> shards.get(index).updateAll(part));
+            return null;
+        });
+    }
+
+    private boolean hasScheduleOverlap(long start, long end, IntPredicate excluded) {
+        for (FileBackedTaskManager shard : shards) {
+            if (shard.hasScheduleOverlap(start, end, excluded)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        List<Integer> removed = new ArrayList<>();
+        int deleted = lockAll(() -> {
+            Map<Integer, List<Integer>> parts = new TreeMap<>();
+            for (int id : ids) {
+                parts.computeIfAbsent(shardOf(id), index -> new ArrayList<>()).add(id);
+                Epic epic = shardFor(id).epics.get(id);
+                if (epic != null) {
+                    epic.getSubtasks().forEach(subtask -> removed.add(subtask.getId()));
+                }
+                removed.add(id);
+            }
+            int count = 0;
+            for (Map.Entry<Integer, List<Integer>> part : parts.entrySet()) {
+                count += shards.get(part.getKey()).deleteAll(part.getValue());
+            }
+            return count;
+        });
+        forget(removed);
+        return deleted;
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByEpic(int epicId) {
+        return locked(shardFor(epicId), manager -> manager.getSubtasksByEpic(epicId));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        synchronized (historyManager) {
+            return historyManager.getHistory();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        synchronized (historyManager) {
+            return historyManager.getHistory(offset, limit);
+        }
+    }
+
+    @Override
+    public List<Task> getRecentHistory(int count) {
+        synchronized (historyManager) {
+            return historyManager.getRecent(count);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package managers;
+
+import exceptions.ManagerSaveException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Атомарная запись снимка доски с контрольной суммой.
+ * Снимок пишется во временный файл file.tmp и переименовывается поверх основного; предыдущее поколение перед этим переименовывается в file.bak. В конец снимка
+ * дописывается строка фиксированной длины:
+ * <pre>
+ * #records=0000000042 generation=0000000000000000007 crc32c=1a2b3c4d
+ * </pre>
+ * crc32c считается по всем байтам до этой строки. При загрузке поколения упорядочиваются по строкам
+ * в конце файлов, а сумма проверяется только у того, которое загружается; при несовпадении
+ * берётся следующее. Обрыв записи процесса в любой момент оставляет целым либо новое, либо
+ * предыдущее поколение. От сбоя питания защищает только запись с fsync: тогда файл и каталог
+ * сбрасываются на диск до и после переименования. Файл без такой строки считается
+ * снимком старого формата и читается, только если других поколений нет.
+ * Данные снимка пишутся в канал по мере формирования, сумма считается на лету.
+ */
+final class SnapshotFile {
+    static final int TRAILER_SIZE = 67;
+
+    private static final String TRAILER_FORMAT = "#records=%010d generation=%019d crc32c=%08x\n";
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private SnapshotFile() {
+    }
+
+    static final class Generation {
+        final File file;
+        final long number;
+        final int records;
+        final long crc;
+
+        Generation(File file, long number, int records, long crc) {
+            this.file = file;
+            this.number = number;
+            this.records = records;
+            this.crc = crc;
+        }
+    }
+
+    // Пишет данные снимка в канал; канал закрывать не нужно
+    @FunctionalInterface
+    interface Payload {
+        void writeTo(WritableByteChannel out) throws IOException;
+    }
+
+    private static final class ChecksumChannel implements WritableByteChannel {
+        private final FileChannel target;
+        private final CRC32C crc = new CRC32C();
+
+        ChecksumChannel(FileChannel target) {
+            this.target = target;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            ByteBuffer written = source.duplicate();
+            int count = 0;
+            while (source.hasRemaining()) {
+                count += target.write(source);
+            }
+            written.limit(written.position() + count);
+            crc.update(written);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return target.isOpen();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    static File tempFile(File file) {
+        return new File(file.getPath() + ".tmp");
+    }
+
+    static File backupFile(File file) {
+        return new File(file.getPath() + ".bak");
+    }
+
+    static void write(File file, Payload payload, int records, long generation, boolean fsync) {
+        Path target = file.toPath();
+        Path temp = tempFile(file).toPath();
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ChecksumChannel checksum = new ChecksumChannel(channel);
+                payload.writeTo(checksum);
+                ByteBuffer trailer = StandardCharsets.US_ASCII.encode(
+                        String.format(TRAILER_FORMAT, records, generation, checksum.crc.getValue()));
+                while (trailer.hasRemaining()) {
+                    channel.write(trailer);
+                }
+                if (fsync) {
+                    channel.force(true);
+                }
+            }
+            if (Files.exists(target)) {
+                move(target, backupFile(file).toPath());
+            }
+            move(temp, target);
+            if (fsync) {
+                syncDirectory(target.toAbsolutePath().getParent());
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения в файл", e);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Переименование надёжно только после сброса каталога; не везде каталог можно открыть
+    static void syncDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Каталог не открывается как файл (например, в Windows): остаётся сброс самого файла
+        }
+    }
+
+    // Поколения с целой строкой в конце, от новых к старым; сумма данных ещё не проверена
+    static List<Generation> findGenerations(File file) {
+        List<Generation> result = new ArrayList<>();
+        for (File candidate : List.of(file, tempFile(file), backupFile(file))) {
+            Generation generation = readGeneration(candidate);
+            if (generation != null) {
+                result.add(generation);
+            }
+        }
+        result.sort(Comparator.comparingLong((Generation generation) -> generation.number).reversed());
+        return result;
+    }
+
+    static boolean hasTrailer(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return readTrailer(channel) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Размер данных снимка без строки с суммой
+    static long payloadSize(FileChannel channel) throws IOException {
+        return readTrailer(channel) != null ? channel.size() - TRAILER_SIZE : channel.size();
+    }
+
+    // Число записей из строки с суммой; -1, если строки нет
+    static int recordCount(FileChannel channel) throws IOException {
+        String trailer = readTrailer(channel);
+        try {
+            return trailer != null ? Integer.parseInt(trailer.substring(9, 19)) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static Generation readGeneration(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            String trailer = readTrailer(channel);
+            if (trailer == null) {
+                return null;
+            }
+            return new Generation(file, Long.parseLong(trailer.substring(31, 50)),
+                    Integer.parseInt(trailer.substring(9, 19)), Long.parseLong(trailer.substring(58, 66), 16));
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Читает файл поколения целиком и сверяет сумму
+    static boolean verify(Generation generation) {
+        try (FileChannel channel = FileChannel.open(generation.file.toPath(), StandardOpenOption.READ)) {
+            CRC32C crc = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long remaining = channel.size() - TRAILER_SIZE;
+            while (remaining > 0) {
+                buffer.clear().limit((int) Math.min(BUFFER_SIZE, remaining));
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    return false;
+                }
+                buffer.flip();
+                crc.update(buffer);
+                remaining -= read;
+            }
+            return crc.getValue() == generation.crc;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static String readTrailer(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < TRAILER_SIZE) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(TRAILER_SIZE);
+        long position = size - TRAILER_SIZE;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return null;
+            }
+        }
+        String trailer = new String(buffer.array(), StandardCharsets.US_ASCII);
+        return trailer.startsWith("#records=") && trailer.startsWith(" generation=", 19)
+                && trailer.startsWith(" crc32c=", 50) && trailer.endsWith("\n") ? trailer : null;
+    }
+}
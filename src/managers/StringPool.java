@@ -0,0 +1,21 @@
+package managers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Схлопывает одинаковые строки, прочитанные из снимка, в один экземпляр.
+ * Живёт только во время загрузки: повторяющиеся названия и описания не занимают память
+ * по разу на каждую задачу. Куски файла при параллельной загрузке делят один пул.
+ */
+final class StringPool {
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+
+    String get(String value) {
+        if (value == null || value.isEmpty()) {
+            return value == null ? null : "";
+        }
+        String existing = strings.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+}
@@ -0,0 +1,101 @@
+package managers;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskTime;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Проверка пакетных операций до их применения. Все ошибки собираются по позициям элементов,
+ * поэтому пакет либо применяется целиком, либо отклоняется со списком причин.
+ * Пересечения внутри пакета ищутся одним проходом по элементам, отсортированным по началу,
+ * пересечения с расписанием — запросом к дереву интервалов для каждого элемента со временем.
+ * Хранилище видно проверке только через проверки наличия id и запрос к расписанию, поэтому
+ * так же проверяется пакет, задачи которого лежат в нескольких менеджерах.
+ */
+final class TaskBatch {
+
+    private TaskBatch() {
+    }
+
+    @FunctionalInterface
+    interface Schedule {
+        boolean hasOverlap(long start, long end, IntPredicate excluded);
+    }
+
+    static Map<Integer, String> validateGenerate(List<? extends Task> items, IntPredicate epicExists,
+                                                 Schedule schedule) {
+        Map<Integer, String> errors = new TreeMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            Task item = items.get(i);
+            if (item == null) {
+                errors.put(i, "Элемент пакета не задан");
+            } else if (item instanceof Subtask && !epicExists.test(((Subtask) item).getEpicId())) {
+                errors.put(i, "Эпик с ID " + ((Subtask) item).getEpicId() + " не существует");
+            }
+        }
+        checkOverlaps(items, schedule, Collections.emptySet(), errors);
+        return errors;
+    }
+
+    static Map<Integer, String> validateUpdate(List<? extends Task> items, IntPredicate taskExists,
+                                               IntPredicate epicExists, IntPredicate subtaskExists,
+                                               Schedule schedule) {
+        Map<Integer, String> errors = new TreeMap<>();
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            Task item = items.get(i);
+            if (item == null) {
+                errors.put(i, "Элемент пакета не задан");
+                continue;
+            }
+            if (!ids.add(item.getId())) {
+                errors.put(i, "Задача с ID " + item.getId() + " встречается в пакете несколько раз");
+                continue;
+            }
+            IntPredicate stored = item instanceof Epic ? epicExists
+                    : item instanceof Subtask ? subtaskExists : taskExists;
+            if (!stored.test(item.getId())) {
+                errors.put(i, "Задача с ID " + item.getId() + " не найдена");
+            } else if (item instanceof Subtask && !epicExists.test(((Subtask) item).getEpicId())) {
+                errors.put(i, "Эпик с ID " + ((Subtask) item).getEpicId() + " не существует");
+            }
+        }
+        checkOverlaps(items, schedule, ids, errors);
+        return errors;
+    }
+
+    private static boolean isTimed(Task item) {
+        return item != null && !(item instanceof Epic) && item.getEndMinute() != TaskTime.NONE;
+    }
+
+    private static void checkOverlaps(List<? extends Task> items, Schedule schedule,
+                                      Set<Integer> replacedIds, Map<Integer, String> errors) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (isTimed(items.get(i))) {
+                order.add(i);
+            }
+        }
+        order.sort(Comparator.comparingLong(i -> items.get(i).getStartMinute()));
+
+        long latestEnd = TaskTime.NONE;
+        int latestIndex = -1;
+        for (int i : order) {
+            Task item = items.get(i);
+            if (item.getStartMinute() < latestEnd) {
+                errors.putIfAbsent(i, "Пересечение по времени с элементом " + latestIndex + " пакета");
+            }
+            if (item.getEndMinute() > latestEnd) {
+                latestEnd = item.getEndMinute();
+                latestIndex = i;
+            }
+            if (schedule.hasOverlap(item.getStartMinute(), item.getEndMinute(), replacedIds::contains)) {
+                errors.putIfAbsent(i, "Пересечение по времени с другой задачей");
+            }
+        }
+    }
+}
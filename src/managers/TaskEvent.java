@@ -0,0 +1,63 @@
+package managers;
+
+import tasks.Task;
+import tasks.TaskType;
+
+/**
+ * Изменение одной задачи, эпика или подзадачи. Задачи внутри события — неизменяемые копии
+ * из того же снимка доски, что и getVersion: task — состояние после изменения, previous — до него.
+ * Пересчёт статуса и времени эпика после изменения подзадач приходит как UPDATED эпика.
+ */
+public final class TaskEvent {
+
+    public enum Kind {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Kind kind;
+    private final TaskType type;
+    private final long version;
+    private final Task task;
+    private final Task previous;
+
+    TaskEvent(Kind kind, TaskType type, long version, Task task, Task previous) {
+        this.kind = kind;
+        this.type = type;
+        this.version = version;
+        this.task = task;
+        this.previous = previous;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public TaskType getType() {
+        return type;
+    }
+
+    public int getId() {
+        return task != null ? task.getId() : previous.getId();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // null для DELETED
+    public Task getTask() {
+        return task;
+    }
+
+    // null для CREATED
+    public Task getPrevious() {
+        return previous;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + type + " " + getId() + " (версия " + version + ")";
+    }
+}
@@ -0,0 +1,194 @@
+package managers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Рассылка событий об изменениях доски подписчикам. У каждой подписки своё кольцо фиксированного
+ * размера и свой виртуальный поток доставки, который забирает события пачками до maxBatch штук.
+ * Публикация никогда не ждёт подписчика: события одной операции кладутся в кольцо целиком
+ * под коротким замком. Если они не помещаются, подписчик отстал — подписка отключается,
+ * уже принятые события доставляются, а isOverflowed() сообщает о потере. Отставший подписчик
+ * берёт snapshot() и подписывается снова. Без подписчиков события не создаются.
+ */
+public class TaskEventFeed {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_BATCH = 64;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    public Subscription subscribe(TaskEventListener listener) {
+        return subscribe(listener, DEFAULT_CAPACITY, DEFAULT_BATCH);
+    }
+
+    public Subscription subscribe(TaskEventListener listener, int capacity, int maxBatch) {
+        if (capacity <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("Размер очереди и пачки событий должен быть положительным");
+        }
+        Subscription subscription = new Subscription(listener, capacity, maxBatch);
+        subscriptions.add(subscription);
+        subscription.worker.start();
+        return subscription;
+    }
+
+    void publish(List<TaskEvent> events) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(events);
+        }
+    }
+
+    public final class Subscription implements AutoCloseable {
+        private final TaskEventListener listener;
+        private final TaskEvent[] ring;
+        private final int maxBatch;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private final Thread worker;
+        private long head;
+        private long tail;
+        private long delivered;
+        private boolean closed;
+        private boolean overflowed;
+        private volatile RuntimeException lastError;
+
+        private Subscription(TaskEventListener listener, int capacity, int maxBatch) {
+            this.listener = listener;
+            this.ring = new TaskEvent[capacity];
+            this.maxBatch = maxBatch;
+            this.worker = Thread.ofVirtual().name("task-events").unstarted(this::deliver);
+        }
+
+        // Вызывается под замком менеджера, поэтому только кладёт события в кольцо и не ждёт
+        private void offer(List<TaskEvent> events) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                if (tail - head + events.size() > ring.length) {
+                    overflowed = true;
+                    closed = true;
+                    subscriptions.remove(this);
+                    notEmpty.signal();
+                    return;
+                }
+                for (TaskEvent event : events) {
+                    ring[(int) (tail++ % ring.length)] = event;
+                }
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void deliver() {
+            List<TaskEvent> batch = new ArrayList<>(Math.min(maxBatch, ring.length));
+            while (true) {
+                lock.lock();
+                try {
+                    while (head == tail && !closed) {
+                        notEmpty.awaitUninterruptibly();
+                    }
+                    if (head == tail) {
+                        notFull.signalAll();
+                        return;
+                    }
+                    while (head < tail && batch.size() < maxBatch) {
+                        int slot = (int) (head++ % ring.length);
+                        batch.add(ring[slot]);
+                        ring[slot] = null;
+                    }
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    listener.onEvents(new ArrayList<>(batch));
+                } catch (RuntimeException e) {
+                    lastError = e;
+                }
+                lock.lock();
+                try {
+                    delivered += batch.size();
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                batch.clear();
+            }
+        }
+
+        // Отписывает и ждёт, пока уже опубликованные события будут доставлены
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+            lock.lock();
+            try {
+                closed = true;
+                notEmpty.signal();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (Thread.currentThread() != worker) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        // Ждёт, пока подписчик обработает всё, что уже опубликовано
+        public void awaitDelivered() throws InterruptedException {
+            lock.lock();
+            try {
+                while (delivered < tail && worker.isAlive()) {
+                    notFull.await();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int getPending() {
+            lock.lock();
+            try {
+                return (int) (tail - head);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public long getDelivered() {
+            lock.lock();
+            try {
+                return delivered;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Подписка отключена из-за заполненного кольца: события после отключения не доставлены
+        public boolean isOverflowed() {
+            lock.lock();
+            try {
+                return overflowed;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public RuntimeException getLastError() {
+            return lastError;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package managers;
+
+import java.util.List;
+
+@FunctionalInterface
+public interface TaskEventListener {
+
+    // Вызывается из виртуального потока доставки подписки; события идут в порядке изменений
+    void onEvents(List<TaskEvent> events);
+}
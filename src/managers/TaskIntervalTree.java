@@ -0,0 +1,205 @@
+package managers;
+
+import tasks.Task;
+import tasks.TaskTime;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * Расписание задач: декартово дерево по ключу (startTime, id), в каждом узле хранится
+ * максимальное время окончания в поддереве. Задачи без длительности тоже входят в порядок,
+ * но не участвуют в поиске пересечений. Пересечения и выборки по диапазону — за O(log n + k).
+ * Время хранится в минутах от эпохи (TaskTime), поэтому обход и сравнения не создают объектов.
+ */
+class TaskIntervalTree {
+
+    private static final class Node {
+        final Task task;
+        final int id;
+        final long start;
+        final long end;
+        final int priority;
+        long maxEnd;
+        Node left;
+        Node right;
+
+        Node(Task task, long start, long end) {
+            this.task = task;
+            this.id = task.getId();
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+            this.priority = ThreadLocalRandom.current().nextInt();
+        }
+    }
+
+    private final Map<Integer, Node> nodesById = new HashMap<>();
+    private Node root;
+
+    public void add(Task task) {
+        remove(task.getId());
+        long start = task.getStartMinute();
+        if (start == TaskTime.NONE) {
+            return;
+        }
+        Node node = new Node(task, start, task.getEndMinute());
+        Node[] parts = split(root, start, node.id);
+        root = merge(merge(parts[0], node), parts[1]);
+        nodesById.put(node.id, node);
+    }
+
+    public void remove(int id) {
+        Node node = nodesById.remove(id);
+        if (node != null) {
+            root = remove(root, node);
+        }
+    }
+
+    public void clear() {
+        nodesById.clear();
+        root = null;
+    }
+
+    public int size() {
+        return nodesById.size();
+    }
+
+    public boolean hasOverlap(long start, long end, int excludeId) {
+        return hasOverlap(root, start, end, id -> id == excludeId);
+    }
+
+    public boolean hasOverlap(long start, long end, IntPredicate excluded) {
+        return hasOverlap(root, start, end, excluded);
+    }
+
+    public List<Task> findOverlapping(long start, long end) {
+        List<Task> result = new ArrayList<>();
+        collectOverlapping(root, start, end, result);
+        return result;
+    }
+
+    public List<Task> toList() {
+        return findStartingBetween(Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    public List<Task> findStartingBetween(long from, long to, int limit) {
+        List<Task> result = new ArrayList<>(Math.min(limit, nodesById.size()));
+        collectRange(root, from, to, limit, result);
+        return result;
+    }
+
+    private void collectRange(Node node, long from, long to, int limit, List<Task> result) {
+        if (node == null || result.size() >= limit) {
+            return;
+        }
+        boolean afterFrom = node.start >= from;
+        boolean beforeTo = node.start < to;
+        if (afterFrom) {
+            collectRange(node.left, from, to, limit, result);
+        }
+        if (afterFrom && beforeTo && result.size() < limit) {
+            result.add(node.task);
+        }
+        if (beforeTo) {
+            collectRange(node.right, from, to, limit, result);
+        }
+    }
+
+    private boolean hasOverlap(Node node, long start, long end, IntPredicate excluded) {
+        if (node == null || node.maxEnd <= start) {
+            return false;
+        }
+        if (hasOverlap(node.left, start, end, excluded)) {
+            return true;
+        }
+        if (node.start >= end) {
+            return false;
+        }
+        if (node.end > start && !excluded.test(node.id)) {
+            return true;
+        }
+        return hasOverlap(node.right, start, end, excluded);
+    }
+
+    private void collectOverlapping(Node node, long start, long end, List<Task> result) {
+        if (node == null || node.maxEnd <= start) {
+            return;
+        }
+        collectOverlapping(node.left, start, end, result);
+        if (node.start >= end) {
+            return;
+        }
+        if (node.end > start) {
+            result.add(node.task);
+        }
+        collectOverlapping(node.right, start, end, result);
+    }
+
+    private static int compare(long start, int id, Node node) {
+        int cmp = Long.compare(start, node.start);
+        return cmp != 0 ? cmp : Integer.compare(id, node.id);
+    }
+
+    private static Node[] split(Node node, long start, int id) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        if (compare(start, id, node) > 0) {
+            Node[] parts = split(node.right, start, id);
+            node.right = parts[0];
+            update(node);
+            parts[0] = node;
+            return parts;
+        }
+        Node[] parts = split(node.left, start, id);
+        node.left = parts[1];
+        update(node);
+        parts[1] = node;
+        return parts;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static Node remove(Node node, Node target) {
+        if (node == null) {
+            return null;
+        }
+        if (node == target) {
+            return merge(node.left, node.right);
+        }
+        if (compare(target.start, target.id, node) < 0) {
+            node.left = remove(node.left, target);
+        } else {
+            node.right = remove(node.right, target);
+        }
+        update(node);
+        return node;
+    }
+
+    private static void update(Node node) {
+        long max = node.end;
+        if (node.left != null && node.left.maxEnd > max) {
+            max = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd > max) {
+            max = node.right.maxEnd;
+        }
+        node.maxEnd = max;
+    }
+}
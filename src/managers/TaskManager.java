@@ -3,19 +3,50 @@ package managers;
 import tasks.Task;
 import tasks.Epic;
 import tasks.Subtask;
+import tasks.TaskStatus;
+import tasks.TaskType;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface TaskManager {
 
     List<Task> getPrioritizedTasks();
 
+    List<Task> getTasksBetween(LocalDateTime from, LocalDateTime to);
+
+    List<Task> getNextTasks(LocalDateTime from, int count);
+
+    List<Task> getTasksOn(LocalDate day);
+
     List<Task> getAllTasks();
 
     List<Epic> getAllEpics();
 
     List<Subtask> getAllSubtasks();
 
+    Stream<Task> streamTasks();
+
+    Stream<Epic> streamEpics();
+
+    Stream<Subtask> streamSubtasks();
+
+    Stream<Subtask> streamSubtasksByEpic(int epicId);
+
+    List<Task> getTasksByStatus(TaskStatus status);
+
+    List<Epic> getEpicsByStatus(TaskStatus status);
+
+    List<Subtask> getSubtasksByStatus(TaskStatus status);
+
+    Map<TaskStatus, Integer> countByStatus();
+
+    Map<TaskStatus, Integer> countByStatus(TaskType type);
+
     void removeAllTasks();
 
     void removeAllEpics();
@@ -28,17 +59,21 @@ public interface TaskManager {
 
     Subtask getSubtaskById(int id);
 
+    // Тип задачи с этим id или null, если её нет; в историю просмотров не попадает
+    TaskType getTypeById(int id);
+
     Task generateTask(Task task);
 
     Epic generateEpic(Epic epic);
 
     Subtask generateSubtask(Subtask subtask);
 
-    void updateTask(Task task);
+    // false — задачи этого типа с таким id нет (например, её только что удалили), ничего не изменено
+    boolean updateTask(Task task);
 
-    void updateEpic(Epic newEpic);
+    boolean updateEpic(Epic newEpic);
 
-    void updateSubtask(Subtask newSubtask);
+    boolean updateSubtask(Subtask newSubtask);
 
     void deleteTask(int id);
 
@@ -46,8 +81,18 @@ public interface TaskManager {
 
     void deleteSubtask(int id);
 
+    List<Task> generateAll(List<? extends Task> items);
+
+    void updateAll(List<? extends Task> items);
+
+    int deleteAll(Collection<Integer> ids);
+
     List<Subtask> getSubtasksByEpic(int epicId);
 
     List<Task> getHistory();
 
+    List<Task> getHistory(int offset, int limit);
+
+    List<Task> getRecentHistory(int count);
+
 }
@@ -0,0 +1,89 @@
+package managers;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.util.*;
+
+/**
+ * Вторичный индекс задач по типу и статусу. Для каждой пары (тип, статус) хранится набор задач
+ * в порядке индексации, поэтому выборка занимает O(k), а подсчёт — O(1).
+ * Статус запоминается в момент индексации: изменённую задачу нужно проиндексировать заново.
+ */
+class TaskStatusIndex {
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private final List<Map<Integer, Task>> buckets = new ArrayList<>(TYPES.length * STATUSES.length);
+    private final Map<Integer, Map<Integer, Task>> bucketById = new HashMap<>();
+
+    TaskStatusIndex() {
+        for (int i = 0; i < TYPES.length * STATUSES.length; i++) {
+            buckets.add(new LinkedHashMap<>());
+        }
+    }
+
+    static TaskType typeOf(Task task) {
+        if (task instanceof Epic) {
+            return TaskType.EPIC;
+        }
+        return task instanceof Subtask ? TaskType.SUBTASK : TaskType.TASK;
+    }
+
+    private Map<Integer, Task> bucket(TaskType type, TaskStatus status) {
+        return buckets.get(type.ordinal() * STATUSES.length + status.ordinal());
+    }
+
+    public void add(Task task) {
+        remove(task.getId());
+        if (task.getTaskStatus() == null) {
+            return;
+        }
+        Map<Integer, Task> bucket = bucket(typeOf(task), task.getTaskStatus());
+        bucket.put(task.getId(), task);
+        bucketById.put(task.getId(), bucket);
+    }
+
+    public void remove(int id) {
+        Map<Integer, Task> bucket = bucketById.remove(id);
+        if (bucket != null) {
+            bucket.remove(id);
+        }
+    }
+
+    public void clear(TaskType type) {
+        for (TaskStatus status : STATUSES) {
+            Map<Integer, Task> bucket = bucket(type, status);
+            bucketById.keySet().removeAll(bucket.keySet());
+            bucket.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Task> List<T> get(TaskType type, TaskStatus status) {
+        return new ArrayList<>((Collection<T>) bucket(type, status).values());
+    }
+
+    public int count(TaskType type, TaskStatus status) {
+        return bucket(type, status).size();
+    }
+
+    public Map<TaskStatus, Integer> countByStatus(TaskType type) {
+        Map<TaskStatus, Integer> result = new EnumMap<>(TaskStatus.class);
+        for (TaskStatus status : STATUSES) {
+            result.put(status, type == null ? countAll(status) : count(type, status));
+        }
+        return result;
+    }
+
+    private int countAll(TaskStatus status) {
+        int total = 0;
+        for (TaskType type : TYPES) {
+            total += count(type, status);
+        }
+        return total;
+    }
+}
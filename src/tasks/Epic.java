@@ -2,21 +2,55 @@ package tasks;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Objects;
+import java.util.*;
+import java.util.stream.Stream;
 
 public class Epic extends Task {
 
-    private final ArrayList<Subtask> subtasks = new ArrayList<>();
+    private final LinkedHashMap<Integer, Contribution> subtasks = new LinkedHashMap<>();
+    private final int[] statusCounts = new int[TaskStatus.values().length];
+    private final TreeMap<LocalDateTime, Integer> startTimes = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> endTimes = new TreeMap<>();
+    private Duration totalDuration = Duration.ZERO;
     private LocalDateTime endTime;
     private LocalDateTime startTime;
     private Duration duration;
 
+    // Значения подзадачи на момент добавления: по ним агрегаты корректно уменьшаются при удалении,
+    // даже если сам объект подзадачи с тех пор изменили. Подзадача без статуса считается новой.
+    private static final class Contribution {
+        final Subtask subtask;
+        final TaskStatus status;
+        final LocalDateTime start;
+        final LocalDateTime end;
+        final Duration duration;
+
+        Contribution(Subtask subtask) {
+            this.subtask = subtask;
+            this.status = subtask.getTaskStatus() == null ? TaskStatus.NEW : subtask.getTaskStatus();
+            this.start = subtask.getStartTime();
+            this.end = subtask.getEndTime();
+            this.duration = subtask.getDuration();
+        }
+    }
+
     public Epic(String name, String description) {
         super(name, description);
         updateEpicTime();
     }
 
+    // Копия без подзадач: статус и время зафиксированы на момент копирования, а getSubtasks()
+    // и getSubtaskCount() у копии пусты. Подзадачи эпика читаются только через getSubtasksByEpic менеджера:
+    // ссылки на живые подзадачи в копии открыли бы их изменения мимо блокировок менеджера
+    @Override
+    public Epic copy() {
+        Epic copy = copyFieldsTo(new Epic(name, description));
+        copy.duration = duration;
+        copy.startTime = startTime;
+        copy.endTime = endTime;
+        return copy;
+    }
+
     @Override
     public Duration getDuration() {
         return duration;
@@ -32,52 +66,103 @@ public class Epic extends Task {
         return endTime;
     }
 
+    @Override
+    public long getDurationMinutes() {
+        return TaskTime.toMinutes(duration);
+    }
+
+    @Override
+    public long getStartMinute() {
+        return TaskTime.toMinutes(startTime);
+    }
+
+    @Override
+    public long getEndMinute() {
+        return TaskTime.toMinutes(endTime);
+    }
+
     public void addSubtask(Subtask subtask) {
         if (subtask.getId() == this.getId()) {
             throw new IllegalArgumentException("Подзадача не может иметь тот же ID, что и эпик");
         }
-        subtasks.add(subtask);
+        Contribution previous = subtasks.remove(subtask.getId());
+        if (previous != null) {
+            subtract(previous);
+        }
+        Contribution contribution = new Contribution(subtask);
+        subtasks.put(subtask.getId(), contribution);
+        add(contribution);
         updateEpicTime();
     }
 
     public ArrayList<Subtask> getSubtasks() {
-        return new ArrayList<>(subtasks);
+        ArrayList<Subtask> result = new ArrayList<>(subtasks.size());
+        for (Contribution contribution : subtasks.values()) {
+            result.add(contribution.subtask);
+        }
+        return result;
+    }
+
+    public Stream<Subtask> streamSubtasks() {
+        return subtasks.values().stream().map(contribution -> contribution.subtask);
+    }
+
+    public int getSubtaskCount() {
+        return subtasks.size();
     }
 
     public void removeSubtask(Subtask subtask) {
-        subtasks.remove(subtask);
+        Contribution contribution = subtasks.remove(subtask.getId());
+        if (contribution != null) {
+            subtract(contribution);
+        }
         updateEpicTime();
     }
 
     public void clearSubtasks() {
         subtasks.clear();
+        Arrays.fill(statusCounts, 0);
+        startTimes.clear();
+        endTimes.clear();
+        totalDuration = Duration.ZERO;
         updateEpicTime();
     }
 
+    private void add(Contribution contribution) {
+        statusCounts[contribution.status.ordinal()]++;
+        if (contribution.start != null) {
+            startTimes.merge(contribution.start, 1, Integer::sum);
+        }
+        if (contribution.end != null) {
+            endTimes.merge(contribution.end, 1, Integer::sum);
+        }
+        if (contribution.duration != null) {
+            totalDuration = totalDuration.plus(contribution.duration);
+        }
+    }
+
+    private void subtract(Contribution contribution) {
+        statusCounts[contribution.status.ordinal()]--;
+        if (contribution.start != null) {
+            startTimes.computeIfPresent(contribution.start, (time, count) -> count == 1 ? null : count - 1);
+        }
+        if (contribution.end != null) {
+            endTimes.computeIfPresent(contribution.end, (time, count) -> count == 1 ? null : count - 1);
+        }
+        if (contribution.duration != null) {
+            totalDuration = totalDuration.minus(contribution.duration);
+        }
+    }
+
     public void updateStatus() {
         if (subtasks.isEmpty()) {
             setTaskStatus(TaskStatus.NEW);
             return;
         }
 
-        boolean allDone = true;
-        boolean hasInProgress = false;
-
-        for (Subtask subtask : subtasks) {
-            TaskStatus status = subtask.getTaskStatus();
-
-            if (status == TaskStatus.IN_PROGRESS) {
-                hasInProgress = true;
-            }
-
-            if (status != TaskStatus.DONE) {
-                allDone = false;
-            }
-        }
-
-        if (hasInProgress) {
+        if (statusCounts[TaskStatus.IN_PROGRESS.ordinal()] > 0) {
             setTaskStatus(TaskStatus.IN_PROGRESS);
-        } else if (allDone) {
+        } else if (statusCounts[TaskStatus.DONE.ordinal()] == subtasks.size()) {
             setTaskStatus(TaskStatus.DONE);
         } else {
             setTaskStatus(TaskStatus.NEW);
@@ -85,28 +170,9 @@ public class Epic extends Task {
     }
 
     public void updateEpicTime() {
-        Duration total = Duration.ZERO;
-        for (Subtask subtask : subtasks) {
-            if (subtask.getDuration() != null) {
-                total = total.plus(subtask.getDuration());
-            }
-        }
-
-        LocalDateTime earliestStart = subtasks.stream()
-                .map(Subtask::getStartTime)
-                .filter(Objects::nonNull)
-                .min(LocalDateTime::compareTo)
-                .orElse(null);
-
-        LocalDateTime latestEnd = subtasks.stream()
-                .map(Subtask::getEndTime)
-                .filter(Objects::nonNull)
-                .max(LocalDateTime::compareTo)
-                .orElse(null);
-
-        this.duration = total;
-        this.startTime = earliestStart;
-        this.endTime = latestEnd;
+        this.duration = totalDuration;
+        this.startTime = startTimes.isEmpty() ? null : startTimes.firstKey();
+        this.endTime = endTimes.isEmpty() ? null : endTimes.lastKey();
     }
 
     @Override
@@ -122,4 +188,3 @@ public class Epic extends Task {
         return Objects.hash(getId());
     }
 }
-
@@ -18,6 +18,11 @@ public class Subtask extends Task {
         this.epicId = epicId;
     }
 
+    @Override
+    public Subtask copy() {
+        return copyFieldsTo(new Subtask(name, description, epicId));
+    }
+
     public int getEpicId() {
         return epicId;
     }
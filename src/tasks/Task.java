@@ -4,14 +4,19 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Objects;
 
+/**
+ * Время начала и длительность хранятся в минутах (см. TaskTime), секунды отбрасываются.
+ * Геттеры по-прежнему возвращают LocalDateTime и Duration, а расписание работает
+ * с getStartMinute/getEndMinute и не создаёт объектов.
+ */
 public class Task {
 
     protected String name;
     protected String description;
     protected int id;
     protected TaskStatus taskStatus;
-    protected Duration duration;
-    protected LocalDateTime startTime;
+    protected long durationMinutes;
+    protected long startMinute;
 
     public Task(String name, String description) {
         this(name, description, TaskStatus.NEW, null, null);
@@ -26,41 +31,65 @@ public class Task {
         this.name = name;
         this.description = description;
         this.taskStatus = taskStatus;
-        this.duration = duration;
-        this.startTime = startTime;
+        this.durationMinutes = TaskTime.toMinutes(duration);
+        this.startMinute = TaskTime.toMinutes(startTime);
     }
 
     public boolean isOverlapping(Task other) {
-        if (this.startTime == null || this.duration == null ||
-                other.startTime == null || other.duration == null) {
+        long thisEnd = this.getEndMinute();
+        long otherEnd = other.getEndMinute();
+        if (thisEnd == TaskTime.NONE || otherEnd == TaskTime.NONE) {
             return false;
         }
-        LocalDateTime thisEnd = this.getEndTime();
-        LocalDateTime otherEnd = other.getEndTime();
-        return this.startTime.isBefore(otherEnd) && other.startTime.isBefore(thisEnd);
+        return this.getStartMinute() < otherEnd && other.getStartMinute() < thisEnd;
+    }
+
+    // Независимая копия: менеджер кладёт такие копии в снимки доски, чтобы их не меняли снаружи
+    public Task copy() {
+        return copyFieldsTo(new Task(name, description));
+    }
+
+    protected <T extends Task> T copyFieldsTo(T copy) {
+        copy.id = id;
+        copy.taskStatus = taskStatus;
+        copy.durationMinutes = durationMinutes;
+        copy.startMinute = startMinute;
+        return copy;
     }
 
     public Duration getDuration() {
-        return duration;
+        return TaskTime.toDuration(durationMinutes);
     }
 
     public void setDuration(Duration duration) {
-        this.duration = duration;
+        this.durationMinutes = TaskTime.toMinutes(duration);
     }
 
     public LocalDateTime getStartTime() {
-        return startTime;
+        return TaskTime.toDateTime(startMinute);
     }
 
     public void setStartTime(LocalDateTime startTime) {
-        this.startTime = startTime;
+        this.startMinute = TaskTime.toMinutes(startTime);
     }
 
     public LocalDateTime getEndTime() {
-        if (startTime == null || duration == null) {
-            return null;
+        return TaskTime.toDateTime(getEndMinute());
+    }
+
+    public long getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public long getStartMinute() {
+        return startMinute;
+    }
+
+    public long getEndMinute() {
+        if (startMinute == TaskTime.NONE || durationMinutes == TaskTime.NONE) {
+            return TaskTime.NONE;
         }
-        return startTime.plus(duration);
+        return startMinute + durationMinutes;
     }
 
     public String getName() {
@@ -0,0 +1,469 @@
+package tasks;
+
+import exceptions.JsonFormatException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Разбор JSON задач одним проходом по байтам прямо в поля задачи, без дерева документа.
+ * Ключи и имена перечислений сравниваются с заранее закодированными байтами, время
+ * переводится в минуты без LocalDateTime; строки собираются в переиспользуемый массив.
+ * Из InputStream байты читаются кусками, поэтому массив любой длины разбирается
+ * в постоянной памяти (forEach). Незнакомые ключи пропускаются, endTime только читается:
+ * его считает сама задача. У эпика статус и время тоже берутся из подзадач.
+ */
+public final class TaskJsonReader {
+    private static final int BUFFER_SIZE = 1 << 13;
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private static final TaskStatus[] STATUS_VALUES = TaskStatus.values();
+    private static final TaskType[] TYPE_VALUES = TaskType.values();
+    private static final byte[][] STATUSES = names(STATUS_VALUES);
+    private static final byte[][] TYPES = names(TYPE_VALUES);
+    private static final byte[] ID = ascii("id");
+    private static final byte[] TYPE = ascii("type");
+    private static final byte[] EPIC_ID = ascii("epicId");
+    private static final byte[] NAME = ascii("name");
+    private static final byte[] DESCRIPTION = ascii("description");
+    private static final byte[] STATUS = ascii("taskStatus");
+    private static final byte[] DURATION = ascii("duration");
+    private static final byte[] START_TIME = ascii("startTime");
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private long offset;
+    private byte[] bytes = new byte[64];
+    private int byteCount;
+    private char[] chars = new char[64];
+
+    public TaskJsonReader(InputStream in) {
+        this.in = in;
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    public TaskJsonReader(byte[] data) {
+        this.in = null;
+        this.buffer = data;
+        this.limit = data.length;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[][] names(Enum<?>[] values) {
+        byte[][] result = new byte[values.length][];
+        for (Enum<?> value : values) {
+            result[value.ordinal()] = ascii(value.name());
+        }
+        return result;
+    }
+
+    private int nextByte() {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private int peek() {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    private boolean fill() {
+        if (in == null) {
+            return false;
+        }
+        try {
+            offset += limit;
+            position = 0;
+            limit = Math.max(0, in.read(buffer, 0, buffer.length));
+            return limit > 0;
+        } catch (IOException e) {
+            throw new JsonFormatException("Не удалось прочитать JSON", e);
+        }
+    }
+
+    private JsonFormatException error(String message) {
+        return new JsonFormatException(message + " (позиция " + (offset + position) + ")");
+    }
+
+    private int skipSpaces() {
+        int c = peek();
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            position++;
+            c = peek();
+        }
+        return c;
+    }
+
+    private boolean consume(char c) {
+        if (skipSpaces() == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!consume(c)) {
+            throw error("Ожидался символ «" + c + "»");
+        }
+    }
+
+    private boolean consumeNull() {
+        if (skipSpaces() != 'n') {
+            return false;
+        }
+        literal("null");
+        return true;
+    }
+
+    private void literal(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (nextByte() != word.charAt(i)) {
+                throw error("Ожидалось значение");
+            }
+        }
+    }
+
+    // Проверяет, что после документа остались только пробелы
+    public void end() {
+        if (skipSpaces() >= 0) {
+            throw error("Лишние символы после документа");
+        }
+    }
+
+    public Task read() {
+        return read(null);
+    }
+
+    public Task readTask() {
+        return read(TaskType.TASK);
+    }
+
+    public Epic readEpic() {
+        return (Epic) read(TaskType.EPIC);
+    }
+
+    public Subtask readSubtask() {
+        return (Subtask) read(TaskType.SUBTASK);
+    }
+
+    // Читает массив задач, отдавая их по одной; без expected тип берётся из поля type
+    public void forEach(TaskType expected, Consumer<? super Task> action) {
+        expect('[');
+        if (consume(']')) {
+            return;
+        }
+        do {
+            action.accept(read(expected));
+        } while (consume(','));
+        expect(']');
+    }
+
+    private Task read(TaskType expected) {
+        expect('{');
+        int id = 0;
+        TaskType type = null;
+        boolean hasEpicId = false;
+        int epicId = 0;
+        String name = null;
+        String description = null;
+        TaskStatus status = TaskStatus.NEW;
+        long duration = TaskTime.NONE;
+        long startMinute = TaskTime.NONE;
+        if (!consume('}')) {
+            do {
+                readBytes();
+                expect(':');
+                if (isKey(ID)) {
+                    id = (int) number("id", Integer.MIN_VALUE, Integer.MAX_VALUE, 0);
+                } else if (isKey(TYPE)) {
+                    type = consumeNull() ? null : TYPE_VALUES[enumIndex(TYPES, "тип")];
+                } else if (isKey(EPIC_ID)) {
+                    hasEpicId = !consumeNull();
+                    epicId = hasEpicId ? (int) number("epicId", Integer.MIN_VALUE, Integer.MAX_VALUE, 0) : 0;
+                } else if (isKey(NAME)) {
+                    name = stringOrNull();
+                } else if (isKey(DESCRIPTION)) {
+                    description = stringOrNull();
+                } else if (isKey(STATUS)) {
+                    status = consumeNull() ? TaskStatus.NEW : STATUS_VALUES[enumIndex(STATUSES, "статус")];
+                } else if (isKey(DURATION)) {
+                    duration = number("duration", 0, Long.MAX_VALUE, TaskTime.NONE);
+                } else if (isKey(START_TIME)) {
+                    startMinute = consumeNull() ? TaskTime.NONE : time();
+                } else {
+                    skipValue();
+                }
+            } while (consume(','));
+            expect('}');
+        }
+
+        if (type == null) {
+            type = expected != null ? expected : hasEpicId ? TaskType.SUBTASK : TaskType.TASK;
+        } else if (expected != null && type != expected) {
+            throw error("Ожидалась запись типа " + expected + ", получена " + type);
+        }
+        Task task;
+        switch (type) {
+            case EPIC -> task = new Epic(name, description);
+            case SUBTASK -> {
+                if (!hasEpicId) {
+                    throw error("У подзадачи не указан epicId");
+                }
+                task = new Subtask(name, description, epicId);
+                task.taskStatus = status;
+            }
+            default -> task = new Task(name, description, status);
+        }
+        task.id = id;
+        if (type != TaskType.EPIC) {
+            task.durationMinutes = duration;
+            task.startMinute = startMinute;
+        }
+        return task;
+    }
+
+    private boolean isKey(byte[] key) {
+        return Arrays.equals(bytes, 0, byteCount, key, 0, key.length);
+    }
+
+    private int enumIndex(byte[][] names, String what) {
+        readBytes();
+        for (int i = 0; i < names.length; i++) {
+            if (isKey(names[i])) {
+                return i;
+            }
+        }
+        throw error("Неизвестный " + what + " «" + new String(bytes, 0, byteCount, StandardCharsets.UTF_8) + "»");
+    }
+
+    private void appendByte(int b) {
+        if (byteCount == bytes.length) {
+            bytes = Arrays.copyOf(bytes, byteCount * 2);
+        }
+        bytes[byteCount++] = (byte) b;
+    }
+
+    // Содержимое строки в кавычках — байтами UTF-8 в bytes, escape-последовательности раскрыты
+    private void readBytes() {
+        expect('"');
+        byteCount = 0;
+        while (true) {
+            int c = nextByte();
+            if (c < 0) {
+                throw error("Незакрытая строка");
+            }
+            if (c == '"') {
+                return;
+            }
+            if (c != '\\') {
+                appendByte(c);
+                continue;
+            }
+            int escaped = nextByte();
+            switch (escaped) {
+                case '"', '\\', '/' -> appendByte(escaped);
+                case 'n' -> appendByte('\n');
+                case 'r' -> appendByte('\r');
+                case 't' -> appendByte('\t');
+                case 'b' -> appendByte('\b');
+                case 'f' -> appendByte('\f');
+                case 'u' -> appendCodeUnit(hex4());
+                default -> throw error("Некорректная escape-последовательность");
+            }
+        }
+    }
+
+    private int hex4() {
+        int code = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(nextByte(), 16);
+            if (digit < 0) {
+                throw error("Некорректная escape-последовательность");
+            }
+            code = code * 16 + digit;
+        }
+        return code;
+    }
+
+    // \\uXXXX в UTF-8; суррогатная пара склеивается в один символ, непарный суррогат заменяется на «?»
+    private void appendCodeUnit(int code) {
+        if (Character.isHighSurrogate((char) code) && peek() == '\\') {
+            position++;
+            if (nextByte() != 'u') {
+                throw error("Некорректная escape-последовательность");
+            }
+            int low = hex4();
+            if (Character.isLowSurrogate((char) low)) {
+                code = Character.toCodePoint((char) code, (char) low);
+            } else {
+                appendByte('?');
+                code = low;
+            }
+        }
+        if (code < 0x80) {
+            appendByte(code);
+        } else if (code < 0x800) {
+            appendByte(0xC0 | code >> 6);
+            appendByte(0x80 | code & 0x3F);
+        } else if (Character.isSurrogate((char) code) && code <= 0xFFFF) {
+            appendByte('?');
+        } else if (code <= 0xFFFF) {
+            appendByte(0xE0 | code >> 12);
+            appendByte(0x80 | code >> 6 & 0x3F);
+            appendByte(0x80 | code & 0x3F);
+        } else {
+            appendByte(0xF0 | code >> 18);
+            appendByte(0x80 | code >> 12 & 0x3F);
+            appendByte(0x80 | code >> 6 & 0x3F);
+            appendByte(0x80 | code & 0x3F);
+        }
+    }
+
+    private String stringOrNull() {
+        if (consumeNull()) {
+            return null;
+        }
+        readBytes();
+        // Латиница переводится в символы напрямую, остальное — общим декодером UTF-8
+        if (chars.length < byteCount) {
+            chars = new char[Math.max(byteCount, chars.length * 2)];
+        }
+        for (int i = 0; i < byteCount; i++) {
+            if (bytes[i] < 0) {
+                return new String(bytes, 0, byteCount, StandardCharsets.UTF_8);
+            }
+            chars[i] = (char) bytes[i];
+        }
+        return new String(chars, 0, byteCount);
+    }
+
+    // Целое число в пределах [min, max]; null даёт absent
+    private long number(String key, long min, long max, long absent) {
+        if (consumeNull()) {
+            return absent;
+        }
+        boolean negative = peek() == '-';
+        if (negative) {
+            position++;
+        }
+        long value = 0;
+        int digits = 0;
+        for (int c = peek(); c >= '0' && c <= '9'; c = peek()) {
+            if (++digits > 18) {
+                throw error("Значение поля " + key + " вне допустимого диапазона");
+            }
+            value = value * 10 + (c - '0');
+            position++;
+        }
+        int next = peek();
+        if (digits == 0 || next == '.' || next == 'e' || next == 'E') {
+            throw error("Поле " + key + " должно быть целым числом");
+        }
+        value = negative ? -value : value;
+        if (value < min || value > max) {
+            throw error("Значение поля " + key + " вне допустимого диапазона");
+        }
+        return value;
+    }
+
+    // yyyy-MM-ddTHH:mm[:ss] переводится в минуты напрямую, прочие формы — через LocalDateTime.parse
+    private long time() {
+        readBytes();
+        int n = byteCount;
+        if ((n == 16 || n == 19) && bytes[4] == '-' && bytes[7] == '-' && bytes[10] == 'T' && bytes[13] == ':'
+                && (n == 16 || bytes[16] == ':')) {
+            int year = digits(0, 4);
+            int month = digits(5, 2);
+            int day = digits(8, 2);
+            int hour = digits(11, 2);
+            int minute = digits(14, 2);
+            int second = n == 19 ? digits(17, 2) : 0;
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= daysInMonth(year, month)
+                    && hour >= 0 && hour < 24 && minute >= 0 && minute < 60 && second >= 0 && second < 60) {
+                return epochDay(year, month, day) * 1440 + hour * 60L + minute;
+            }
+        }
+        String text = new String(bytes, 0, n, StandardCharsets.UTF_8);
+        try {
+            return TaskTime.toMinutes(LocalDateTime.parse(text));
+        } catch (DateTimeParseException e) {
+            throw new JsonFormatException("Некорректное время «" + text + "»", e);
+        }
+    }
+
+    private int digits(int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+        return month == 2 && leap ? 29 : DAYS_IN_MONTH[month - 1];
+    }
+
+    // Номер дня от 1970-01-01 (алгоритм days_from_civil Говарда Хиннанта)
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private void skipValue() {
+        int c = skipSpaces();
+        if (c == '"') {
+            readBytes();
+        } else if (c == '{' || c == '[') {
+            char close = c == '{' ? '}' : ']';
+            position++;
+            if (consume(close)) {
+                return;
+            }
+            do {
+                if (c == '{') {
+                    readBytes();
+                    expect(':');
+                }
+                skipValue();
+            } while (consume(','));
+            expect(close);
+        } else if (c == 't') {
+            literal("true");
+        } else if (c == 'f') {
+            literal("false");
+        } else if (c == 'n') {
+            literal("null");
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            for (c = peek(); c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9');
+                 c = peek()) {
+                position++;
+            }
+        } else {
+            throw error("Ожидалось значение");
+        }
+    }
+}
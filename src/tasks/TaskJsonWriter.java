@@ -0,0 +1,322 @@
+package tasks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Запись задач в JSON без рефлексии и промежуточных строк: байты UTF-8 складываются прямо
+ * в переиспользуемый буфер. С OutputStream буфер уходит в поток по заполнении, поэтому массив
+ * любой длины пишется в постоянной памяти; без потока буфер растёт и отдаётся целиком
+ * (size, writeTo, toByteArray), а reset готовит его к следующему документу.
+ * Ключи и имена перечислений закодированы заранее, время пишется из минут задачи
+ * без LocalDateTime и Duration.
+ */
+public final class TaskJsonWriter {
+    private static final int BUFFER_SIZE = 1 << 13;
+    private static final int MAX_CHAR_BYTES = 6;
+
+    private static final byte[][] STATUSES = quoted(TaskStatus.values());
+    private static final byte[][] TYPES = quoted(TaskType.values());
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] ID = ascii("{\"id\":");
+    private static final byte[] TYPE = ascii(",\"type\":");
+    private static final byte[] EPIC_ID = ascii(",\"epicId\":");
+    private static final byte[] NAME = ascii(",\"name\":");
+    private static final byte[] DESCRIPTION = ascii(",\"description\":");
+    private static final byte[] STATUS = ascii(",\"taskStatus\":");
+    private static final byte[] DURATION = ascii(",\"duration\":");
+    private static final byte[] START_TIME = ascii(",\"startTime\":");
+    private static final byte[] END_TIME = ascii(",\"endTime\":");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    private final OutputStream out;
+    private byte[] buffer;
+    private int size;
+    private boolean inArray;
+    private boolean firstElement;
+
+    // Документ копится в памяти
+    public TaskJsonWriter() {
+        this.out = null;
+        this.buffer = new byte[256];
+    }
+
+    public TaskJsonWriter(OutputStream out) {
+        this.out = out;
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[][] quoted(Enum<?>[] values) {
+        byte[][] result = new byte[values.length][];
+        for (Enum<?> value : values) {
+            result[value.ordinal()] = ascii('"' + value.name() + '"');
+        }
+        return result;
+    }
+
+    private void ensure(int count) throws IOException {
+        if (size + count <= buffer.length) {
+            return;
+        }
+        if (out != null && count <= buffer.length) {
+            out.write(buffer, 0, size);
+            size = 0;
+        } else {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + count));
+        }
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    public TaskJsonWriter beginArray() throws IOException {
+        if (inArray) {
+            throw new IllegalStateException("Массив уже открыт");
+        }
+        ensure(1);
+        buffer[size++] = '[';
+        inArray = true;
+        firstElement = true;
+        return this;
+    }
+
+    public TaskJsonWriter endArray() throws IOException {
+        if (!inArray) {
+            throw new IllegalStateException("Массив не открыт");
+        }
+        ensure(1);
+        buffer[size++] = ']';
+        inArray = false;
+        return this;
+    }
+
+    public TaskJsonWriter writeArray(Iterable<? extends Task> tasks) throws IOException {
+        return writeArray(tasks.iterator());
+    }
+
+    // Элементы берутся из потока по одному, весь список в памяти не собирается
+    public TaskJsonWriter writeArray(Stream<? extends Task> tasks) throws IOException {
+        return writeArray(tasks.iterator());
+    }
+
+    private TaskJsonWriter writeArray(Iterator<? extends Task> tasks) throws IOException {
+        beginArray();
+        while (tasks.hasNext()) {
+            write(tasks.next());
+        }
+        return endArray();
+    }
+
+    public TaskJsonWriter write(Task task) throws IOException {
+        if (inArray) {
+            if (!firstElement) {
+                ensure(1);
+                buffer[size++] = ',';
+            }
+            firstElement = false;
+        }
+        put(ID);
+        number(task.getId());
+        put(TYPE);
+        put(TYPES[typeOf(task).ordinal()]);
+        if (task instanceof Subtask) {
+            put(EPIC_ID);
+            number(((Subtask) task).getEpicId());
+        }
+        put(NAME);
+        string(task.getName());
+        put(DESCRIPTION);
+        string(task.getDescription());
+        put(STATUS);
+        put(task.getTaskStatus() == null ? NULL : STATUSES[task.getTaskStatus().ordinal()]);
+        put(DURATION);
+        long duration = task.getDurationMinutes();
+        if (duration == TaskTime.NONE) {
+            put(NULL);
+        } else {
+            number(duration);
+        }
+        put(START_TIME);
+        time(task.getStartMinute());
+        put(END_TIME);
+        time(task.getEndMinute());
+        ensure(1);
+        buffer[size++] = '}';
+        return this;
+    }
+
+    // Объект из одной строки, например {"error":"..."}
+    public TaskJsonWriter writeObject(String key, String value) throws IOException {
+        ensure(1);
+        buffer[size++] = '{';
+        string(key);
+        ensure(1);
+        buffer[size++] = ':';
+        string(value);
+        ensure(1);
+        buffer[size++] = '}';
+        return this;
+    }
+
+    private static TaskType typeOf(Task task) {
+        return task instanceof Epic ? TaskType.EPIC : task instanceof Subtask ? TaskType.SUBTASK : TaskType.TASK;
+    }
+
+    private void number(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            put(ascii(Long.toString(value)));
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+    }
+
+    // Формат LocalDateTime.toString() для времени без секунд: yyyy-MM-ddTHH:mm
+    private void time(long minutes) throws IOException {
+        if (minutes == TaskTime.NONE) {
+            put(NULL);
+            return;
+        }
+        long days = Math.floorDiv(minutes, 1440);
+        int minuteOfDay = Math.floorMod(minutes, 1440);
+        // Дата по номеру дня от 1970-01-01 (алгоритм civil_from_days Говарда Хиннанта)
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            put(ascii('"' + TaskTime.toDateTime(minutes).toString() + '"'));
+            return;
+        }
+        ensure(18);
+        buffer[size++] = '"';
+        digits((int) year, 4);
+        buffer[size++] = '-';
+        digits(month, 2);
+        buffer[size++] = '-';
+        digits(day, 2);
+        buffer[size++] = 'T';
+        digits(minuteOfDay / 60, 2);
+        buffer[size++] = ':';
+        digits(minuteOfDay % 60, 2);
+        buffer[size++] = '"';
+    }
+
+    private void digits(int value, int count) {
+        for (int i = size + count - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += count;
+    }
+
+    private void string(String value) throws IOException {
+        if (value == null) {
+            put(NULL);
+            return;
+        }
+        ensure(2);
+        buffer[size++] = '"';
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            ensure(MAX_CHAR_BYTES);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                buffer[size++] = (byte) c;
+            } else if (c < 0x80) {
+                escape(c);
+            } else if (c < 0x800) {
+                buffer[size++] = (byte) (0xC0 | c >> 6);
+                buffer[size++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int code = Character.toCodePoint(c, value.charAt(++i));
+                buffer[size++] = (byte) (0xF0 | code >> 18);
+                buffer[size++] = (byte) (0x80 | code >> 12 & 0x3F);
+                buffer[size++] = (byte) (0x80 | code >> 6 & 0x3F);
+                buffer[size++] = (byte) (0x80 | code & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                // Непарный суррогат в UTF-8 непредставим; String.getBytes заменяет его так же
+                buffer[size++] = '?';
+            } else {
+                buffer[size++] = (byte) (0xE0 | c >> 12);
+                buffer[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[size++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        ensure(1);
+        buffer[size++] = '"';
+    }
+
+    private void escape(char c) {
+        buffer[size++] = '\\';
+        switch (c) {
+            case '"' -> buffer[size++] = '"';
+            case '\\' -> buffer[size++] = '\\';
+            case '\n' -> buffer[size++] = 'n';
+            case '\r' -> buffer[size++] = 'r';
+            case '\t' -> buffer[size++] = 't';
+            default -> {
+                buffer[size++] = 'u';
+                buffer[size++] = '0';
+                buffer[size++] = '0';
+                buffer[size++] = HEX[c >> 4];
+                buffer[size++] = HEX[c & 15];
+            }
+        }
+    }
+
+    // Сколько байт накоплено и ещё не отдано в поток
+    public int size() {
+        return size;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    public void writeTo(OutputStream target) throws IOException {
+        target.write(buffer, 0, size);
+    }
+
+    public void reset() {
+        size = 0;
+        inArray = false;
+    }
+
+    // Отдаёт накопленное в поток и сбрасывает его; сам поток не закрывает
+    public void flush() throws IOException {
+        if (out != null) {
+            out.write(buffer, 0, size);
+            size = 0;
+            out.flush();
+        }
+    }
+}
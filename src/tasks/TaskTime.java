@@ -0,0 +1,40 @@
+package tasks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Перевод времени задач в минуты от эпохи (UTC) и обратно. Задачи хранят время в этом виде,
+ * поэтому сравнение и проверка пересечений идут по long без создания объектов.
+ * Отсутствующее значение — NONE, оно меньше любого времени.
+ */
+public final class TaskTime {
+    public static final long NONE = Long.MIN_VALUE;
+
+    private TaskTime() {
+    }
+
+    public static long toMinutes(LocalDateTime time) {
+        return time == null ? NONE : Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    // Наименьшая минута, которая не раньше time: граница запросов с точностью до секунд
+    public static long toMinutesCeiling(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        long minutes = Math.floorDiv(seconds, 60);
+        return Math.floorMod(seconds, 60) == 0 && time.getNano() == 0 ? minutes : minutes + 1;
+    }
+
+    public static long toMinutes(Duration duration) {
+        return duration == null ? NONE : duration.toMinutes();
+    }
+
+    public static LocalDateTime toDateTime(long minutes) {
+        return minutes == NONE ? null : LocalDateTime.ofEpochSecond(minutes * 60, 0, ZoneOffset.UTC);
+    }
+
+    public static Duration toDuration(long minutes) {
+        return minutes == NONE ? null : Duration.ofMinutes(minutes);
+    }
+}
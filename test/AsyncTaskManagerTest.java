@@ -0,0 +1,102 @@
+import managers.AsyncTaskManager;
+import managers.FileBackedTaskManager;
+import managers.FlushPolicy;
+import managers.InMemoryTaskManager;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncTaskManagerTest {
+
+    @TempDir
+    Path directory;
+
+    private File tempFile;
+
+    @BeforeEach
+    void setUp() {
+        tempFile = directory.resolve("async.csv").toFile();
+    }
+
+    @Test
+    void concurrentCallers_shouldBeAppliedOneByOne() throws InterruptedException {
+        InMemoryTaskManager delegate = new InMemoryTaskManager();
+        try (AsyncTaskManager manager = new AsyncTaskManager(delegate)) {
+            List<CompletableFuture<Task>> futures = new ArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        CompletableFuture<Task> future = manager.generateTask(new Task("T", ""));
+                        synchronized (futures) {
+                            futures.add(future);
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(2_000, futures.stream().map(CompletableFuture::join).map(Task::getId)
+                    .collect(Collectors.toSet()).size());
+            assertEquals(2_000, manager.getAllTasks().join().size());
+        }
+    }
+
+    @Test
+    void failedOperation_shouldCompleteExceptionally() {
+        try (AsyncTaskManager manager = new AsyncTaskManager(new InMemoryTaskManager())) {
+            CompletableFuture<Subtask> future = manager.generateSubtask(new Subtask("S", "", 42));
+            CompletionException error = assertThrows(CompletionException.class, future::join);
+            assertInstanceOf(IllegalArgumentException.class, error.getCause());
+
+            Epic epic = manager.generateEpic(new Epic("Эпик", "")).join();
+            assertNotNull(manager.generateSubtask(new Subtask("S", "", epic.getId())).join());
+        }
+    }
+
+    @Test
+    void durable_shouldCompleteAfterBatchIsWritten() {
+        FileBackedTaskManager delegate = new FileBackedTaskManager(tempFile,
+                FlushPolicy.batched(Duration.ofHours(1), 100_000));
+        try (delegate; AsyncTaskManager manager = new AsyncTaskManager(delegate, true)) {
+            List<CompletableFuture<Task>> futures = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                futures.add(manager.generateTask(new Task("T" + i, "")));
+            }
+            futures.forEach(CompletableFuture::join);
+
+            assertEquals(0, delegate.getPendingMutations());
+            assertTrue(delegate.getFlushCount() < 1_000);
+            assertEquals(1_000, new FileBackedTaskManager(tempFile).getAllTasks().size());
+        }
+    }
+
+    @Test
+    void close_shouldFinishQueuedWorkAndRejectNewCalls() {
+        AsyncTaskManager manager = new AsyncTaskManager(new InMemoryTaskManager());
+        CompletableFuture<Task> queued = manager.generateTask(new Task("T", ""));
+        manager.close();
+
+        assertTrue(queued.isDone());
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> manager.getAllTasks().join());
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+    }
+}
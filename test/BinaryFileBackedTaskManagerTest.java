@@ -0,0 +1,127 @@
+import managers.BinaryFileBackedTaskManager;
+import managers.FileBackedTaskManager;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryFileBackedTaskManagerTest extends TaskManagerTest<BinaryFileBackedTaskManager> {
+
+    @TempDir
+    Path directory;
+
+    private File tempFile;
+
+    @Override
+    BinaryFileBackedTaskManager createManager() {
+        tempFile = directory.resolve("test.bin").toFile();
+        return new BinaryFileBackedTaskManager(tempFile);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    void reload_shouldRestoreAllFields() {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        Task task = manager.generateTask(new Task("Имя, с запятой", "Описание\nв две строки",
+                TaskStatus.IN_PROGRESS, Duration.ofMinutes(90), start));
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Subtask subtask = new Subtask("Подзадача", "", epic.getId(), Duration.ofMinutes(30), start.plusHours(3));
+        subtask.setTaskStatus(TaskStatus.DONE);
+        manager.generateSubtask(subtask);
+
+        BinaryFileBackedTaskManager restored = new BinaryFileBackedTaskManager(tempFile);
+
+        Task restoredTask = restored.getTaskById(task.getId());
+        assertEquals("Имя, с запятой", restoredTask.getName());
+        assertEquals("Описание\nв две строки", restoredTask.getDescription());
+        assertEquals(TaskStatus.IN_PROGRESS, restoredTask.getTaskStatus());
+        assertEquals(start, restoredTask.getStartTime());
+        assertEquals(Duration.ofMinutes(90), restoredTask.getDuration());
+        assertEquals(epic.getId(), restored.getSubtaskById(subtask.getId()).getEpicId());
+        assertEquals(TaskStatus.DONE, restored.getEpicById(epic.getId()).getTaskStatus());
+        assertEquals(start.plusHours(3), restored.getEpicById(epic.getId()).getStartTime());
+    }
+
+    @Test
+    void reload_ofTaskWithoutStatusAndLongDescription_shouldRestoreThem() {
+        Task task = new Task("Без статуса", "Ж".repeat(100_000));
+        task.setTaskStatus(null);
+        manager.generateTask(task);
+        manager.generateTask(new Task("Следом", ""));
+
+        List<Task> tasks = new BinaryFileBackedTaskManager(tempFile).getAllTasks();
+
+        assertNull(tasks.get(0).getTaskStatus());
+        assertEquals("Ж".repeat(100_000), tasks.get(0).getDescription());
+        assertEquals("Следом", tasks.get(1).getName());
+    }
+
+    @Test
+    void importFromCsv_shouldConvertExistingBoard() {
+        File csvFile = directory.resolve("board.csv").toFile();
+        FileBackedTaskManager csv = new FileBackedTaskManager(csvFile);
+        Epic epic = csv.generateEpic(new Epic("Эпик", "Описание"));
+        csv.generateSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+        csv.generateTask(new Task("Задача", "Описание"));
+
+        BinaryFileBackedTaskManager.importFromCsv(csvFile, tempFile);
+        BinaryFileBackedTaskManager restored = new BinaryFileBackedTaskManager(tempFile);
+
+        assertEquals(1, restored.getAllTasks().size());
+        assertEquals(1, restored.getSubtasksByEpic(epic.getId()).size());
+    }
+
+    @Test
+    void importFromCsv_intoNonEmptyFile_shouldFailAndKeepBoard() {
+        File csvFile = directory.resolve("board.csv").toFile();
+        new FileBackedTaskManager(csvFile).generateTask(new Task("Из CSV", ""));
+        manager.generateTask(new Task("Своя", ""));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryFileBackedTaskManager.importFromCsv(csvFile, tempFile));
+
+        List<Task> tasks = new BinaryFileBackedTaskManager(tempFile).getAllTasks();
+        assertEquals(1, tasks.size());
+        assertEquals("Своя", tasks.get(0).getName());
+    }
+
+    @Test
+    void importFromCsv_withEmptyFileAndBackup_shouldFailAndKeepBackup() throws IOException {
+        manager.generateTask(new Task("Из резервной копии", ""));
+        manager.generateTask(new Task("Последняя", ""));
+        Files.write(tempFile.toPath(), new byte[0]);
+        File csvFile = directory.resolve("board.csv").toFile();
+        new FileBackedTaskManager(csvFile).generateTask(new Task("Из CSV", ""));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryFileBackedTaskManager.importFromCsv(csvFile, tempFile));
+
+        List<Task> tasks = new BinaryFileBackedTaskManager(tempFile).getAllTasks();
+        assertEquals(List.of("Из резервной копии"), tasks.stream().map(Task::getName).toList());
+    }
+
+    @Test
+    void reload_shouldShareRepeatedStrings() {
+        manager.generateTask(new Task("Повтор", "Одинаковое описание"));
+        manager.generateTask(new Task("Повтор", "Одинаковое описание"));
+
+        BinaryFileBackedTaskManager restored = new BinaryFileBackedTaskManager(tempFile);
+
+        List<Task> tasks = restored.getAllTasks();
+        assertSame(tasks.get(0).getName(), tasks.get(1).getName());
+        assertSame(tasks.get(0).getDescription(), tasks.get(1).getDescription());
+    }
+}
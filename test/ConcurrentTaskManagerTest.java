@@ -0,0 +1,143 @@
+import managers.ConcurrentTaskManager;
+import org.junit.jupiter.api.*;
+import tasks.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+
+    private static final int THREADS = 8;
+
+    @Override
+    ConcurrentTaskManager createManager() {
+        return new ConcurrentTaskManager();
+    }
+
+    private void runConcurrently(Callable<Void> action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(action));
+            }
+            for (Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentSubtasks_shouldKeepEpicConsistent() throws Exception {
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        LocalDateTime base = LocalDateTime.of(2025, 10, 1, 0, 0);
+        AtomicInteger slot = new AtomicInteger();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 200; i++) {
+                Subtask subtask = new Subtask("S", "", epic.getId(), Duration.ofMinutes(10),
+                        base.plusMinutes(10L * slot.getAndIncrement()));
+                subtask.setTaskStatus(TaskStatus.DONE);
+                manager.generateSubtask(subtask);
+            }
+            return null;
+        });
+
+        Epic stored = manager.getEpicById(epic.getId());
+        assertEquals(THREADS * 200, manager.getSubtasksByEpic(epic.getId()).size());
+        assertEquals(THREADS * 200, manager.getAllSubtasks().size());
+        assertEquals(TaskStatus.DONE, stored.getTaskStatus());
+        assertEquals(base, stored.getStartTime());
+        assertEquals(Duration.ofMinutes(10L * THREADS * 200), stored.getDuration());
+    }
+
+    @Test
+    void returnedEpics_shouldBeCopiesUnaffectedByLaterChanges() {
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Epic byId = manager.getEpicById(epic.getId());
+        Epic fromList = manager.getAllEpics().get(0);
+        Epic fromStream = manager.streamEpics().findFirst().orElseThrow();
+
+        Subtask subtask = new Subtask("S", "", epic.getId(), Duration.ofMinutes(10),
+                LocalDateTime.of(2025, 10, 1, 0, 0));
+        subtask.setTaskStatus(TaskStatus.DONE);
+        manager.generateSubtask(subtask);
+
+        for (Epic copy : List.of(byId, fromList, fromStream)) {
+            assertNotSame(epic, copy);
+            assertEquals(TaskStatus.NEW, copy.getTaskStatus());
+            assertNull(copy.getStartTime());
+        }
+        assertEquals(TaskStatus.DONE, manager.getEpicById(epic.getId()).getTaskStatus());
+        assertEquals(1, manager.getEpicsByStatus(TaskStatus.DONE).size());
+    }
+
+    @Test
+    void historyOfEpic_shouldHoldCopyUnaffectedByLaterChanges() {
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        manager.getEpicById(epic.getId());
+        Subtask subtask = new Subtask("S", "", epic.getId());
+        subtask.setTaskStatus(TaskStatus.DONE);
+        manager.generateSubtask(subtask);
+
+        Task viewed = manager.getHistory().get(0);
+        assertNotSame(epic, viewed);
+        assertEquals(TaskStatus.NEW, viewed.getTaskStatus());
+    }
+
+    @Test
+    void removeAllSubtasks_shouldNotShowHalfClearedSchedule() throws InterruptedException {
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        LocalDateTime base = LocalDateTime.of(2025, 10, 1, 0, 0);
+        int count = 2_000;
+        for (int i = 0; i < count; i++) {
+            manager.generateSubtask(new Subtask("S", "", epic.getId(), Duration.ofMinutes(10),
+                    base.plusMinutes(10L * i)));
+        }
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        Thread reader = new Thread(() -> {
+            int size;
+            do {
+                size = manager.getPrioritizedTasks().size();
+                seen.add(size);
+                seen.add(manager.getSubtasksByEpic(epic.getId()).size());
+            } while (size > 0);
+        });
+        reader.start();
+
+        manager.removeAllSubtasks();
+        reader.join(TimeUnit.SECONDS.toMillis(30));
+
+        assertTrue(Set.of(0, count).containsAll(seen), "Промежуточные размеры: " + seen);
+        assertEquals(TaskStatus.NEW, manager.getEpicById(epic.getId()).getTaskStatus());
+        assertNull(manager.getEpicById(epic.getId()).getStartTime());
+    }
+
+    @Test
+    void concurrentOverlappingTasks_shouldAcceptOnlyOne() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        AtomicInteger accepted = new AtomicInteger();
+
+        runConcurrently(() -> {
+            try {
+                manager.generateTask(new Task("T", "", TaskStatus.NEW, Duration.ofHours(1), start));
+                accepted.incrementAndGet();
+            } catch (IllegalArgumentException ignored) {
+                // слот уже занят другим потоком
+            }
+            return null;
+        });
+
+        assertEquals(1, accepted.get());
+        assertEquals(1, manager.getPrioritizedTasks().size());
+    }
+}
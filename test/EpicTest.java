@@ -2,8 +2,12 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import tasks.Epic;
 import tasks.Subtask;
+import tasks.TaskStatus;
 import org.junit.jupiter.api.*;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+
 class EpicTest {
 
     @Test
@@ -27,4 +31,75 @@ class EpicTest {
             epic.addSubtask(selfSubtask);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void testEpicAggregatesFollowSubtaskChanges() {
+        Epic epic = new Epic("Эпик", "Описание");
+        epic.setId(1);
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        Subtask early = new Subtask("Ранняя", "", 1, Duration.ofMinutes(30), start);
+        early.setId(2);
+        Subtask late = new Subtask("Поздняя", "", 1, Duration.ofMinutes(60), start.plusHours(5));
+        late.setId(3);
+        late.setTaskStatus(TaskStatus.DONE);
+
+        epic.addSubtask(early);
+        epic.addSubtask(late);
+        epic.updateStatus();
+        assertEquals(TaskStatus.NEW, epic.getTaskStatus());
+        assertEquals(start, epic.getStartTime());
+        assertEquals(start.plusHours(6), epic.getEndTime());
+        assertEquals(Duration.ofMinutes(90), epic.getDuration());
+
+        early.setTaskStatus(TaskStatus.DONE);
+        epic.addSubtask(early);
+        epic.updateStatus();
+        assertEquals(TaskStatus.DONE, epic.getTaskStatus());
+        assertEquals(2, epic.getSubtaskCount());
+
+        epic.removeSubtask(early);
+        epic.updateStatus();
+        assertEquals(start.plusHours(5), epic.getStartTime());
+        assertEquals(Duration.ofMinutes(60), epic.getDuration());
+        assertEquals(TaskStatus.DONE, epic.getTaskStatus());
+    }
+
+    @Test
+    void testSubtaskWithoutStatusCountsAsNew() {
+        Epic epic = new Epic("Эпик", "Описание");
+        epic.setId(1);
+        Subtask unset = new Subtask("Без статуса", "", 1);
+        unset.setId(2);
+        unset.setTaskStatus(null);
+        Subtask done = new Subtask("Готовая", "", 1);
+        done.setId(3);
+        done.setTaskStatus(TaskStatus.DONE);
+
+        epic.addSubtask(unset);
+        epic.addSubtask(done);
+        epic.updateStatus();
+        assertEquals(TaskStatus.NEW, epic.getTaskStatus());
+
+        epic.removeSubtask(unset);
+        epic.updateStatus();
+        assertEquals(TaskStatus.DONE, epic.getTaskStatus());
+    }
+
+    @Test
+    void testCopyHasNoSubtasksButKeepsAggregates() {
+        Epic epic = new Epic("Эпик", "Описание");
+        epic.setId(1);
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        Subtask subtask = new Subtask("Подзадача", "", 1, Duration.ofMinutes(30), start);
+        subtask.setId(2);
+        epic.addSubtask(subtask);
+        epic.updateStatus();
+
+        Epic copy = epic.copy();
+
+        assertEquals(0, copy.getSubtaskCount());
+        assertTrue(copy.getSubtasks().isEmpty());
+        assertEquals(start, copy.getStartTime());
+        assertEquals(Duration.ofMinutes(30), copy.getDuration());
+    }
+}
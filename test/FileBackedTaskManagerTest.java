@@ -1,29 +1,46 @@
+import managers.BoardSnapshot;
 import managers.FileBackedTaskManager;
+import managers.FlushPolicy;
+import exceptions.ManagerSaveException;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.Epic;
+import tasks.Subtask;
 import tasks.Task;
+import tasks.TaskStatus;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
 
+    @TempDir
+    Path directory;
+
     private File tempFile;
 
     @Override
     FileBackedTaskManager createManager() {
-        try {
-            tempFile = File.createTempFile("test_", ".csv");
-            return new FileBackedTaskManager(tempFile);
-        } catch (IOException e) {
-            throw new RuntimeException("Не удалось создать временный файл", e);
-        }
+        tempFile = directory.resolve("test.csv").toFile();
+        return new FileBackedTaskManager(tempFile);
     }
 
     @AfterEach
     void tearDown() {
-        if (tempFile != null && tempFile.exists()) tempFile.delete();
+        manager.close();
     }
 
     @Test
@@ -32,4 +49,294 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
         manager.forceSaveForTests();
         assertTrue(tempFile.length() > 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    void noOpMutations_shouldNotWriteSnapshot() {
+        Task task = manager.generateTask(new Task("Задача", ""));
+        long flushes = manager.getFlushCount();
+        long generation = manager.getGeneration();
+
+        manager.deleteTask(999);
+        Task missing = new Task("Нет такой", "");
+        missing.setId(999);
+        manager.updateTask(missing);
+        manager.deleteSubtask(task.getId());
+
+        assertEquals(flushes, manager.getFlushCount());
+        assertEquals(generation, manager.getGeneration());
+
+        manager.forceSaveForTests();
+        assertEquals(flushes + 1, manager.getFlushCount());
+        assertEquals(generation + 1, manager.getGeneration());
+    }
+
+    @Test
+    void batchedPolicy_shouldCoalesceMutationsUntilFlush() {
+        FileBackedTaskManager batched = new FileBackedTaskManager(tempFile,
+                FlushPolicy.batched(Duration.ofHours(1), 1000));
+        batched.generateTask(new Task("T1", ""));
+        batched.generateTask(new Task("T2", ""));
+        batched.generateTask(new Task("T3", ""));
+
+        assertEquals(3, batched.getPendingMutations());
+        assertEquals(0, tempFile.length());
+        assertEquals(3, batched.flush());
+        assertEquals(3, batched.getLastFlushMutations());
+        assertEquals(3, new FileBackedTaskManager(tempFile).getAllTasks().size());
+        batched.close();
+    }
+
+    @Test
+    void batchedPolicy_shouldFlushInBackgroundWhenBatchIsFull() throws Exception {
+        FileBackedTaskManager batched = new FileBackedTaskManager(tempFile,
+                new FlushPolicy(Duration.ofHours(1), 2, true));
+        batched.generateTask(new Task("T1", ""));
+        batched.generateTask(new Task("T2", ""));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (batched.getFlushCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, batched.getFlushCount());
+        assertEquals(2, batched.getLastFlushMutations());
+        batched.close();
+    }
+
+    @Test
+    void backgroundFlushError_shouldNotFailNextMutationAndShouldBeRetried() throws Exception {
+        FileBackedTaskManager batched = new FileBackedTaskManager(tempFile,
+                FlushPolicy.batched(Duration.ofMillis(50), 2));
+        // Каталог на месте временного файла: запись снимка падает, пока его не убрать
+        File blocker = new File(tempFile.getPath() + ".tmp");
+        assertTrue(blocker.mkdir());
+        File inner = new File(blocker, "busy");
+        assertTrue(inner.createNewFile());
+        batched.generateTask(new Task("T1", ""));
+        batched.generateTask(new Task("T2", ""));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (batched.getFlushError() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotNull(batched.getFlushError());
+        assertTrue(inner.delete() && blocker.delete());
+
+        assertDoesNotThrow(() -> batched.generateTask(new Task("T3", "")));
+        deadline = System.currentTimeMillis() + 5000;
+        while (batched.getPendingMutations() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, batched.getPendingMutations());
+        assertNull(batched.getFlushError());
+        assertEquals(3, new FileBackedTaskManager(tempFile).getAllTasks().size());
+        batched.close();
+    }
+
+    @Test
+    void load_shouldRebuildStatusIndex() {
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Subtask subtask = new Subtask("S", "", epic.getId());
+        subtask.setTaskStatus(TaskStatus.DONE);
+        manager.generateSubtask(subtask);
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(tempFile);
+        assertEquals(1, loaded.getSubtasksByStatus(TaskStatus.DONE).size());
+        assertEquals(1, loaded.getEpicsByStatus(TaskStatus.DONE).size());
+        assertTrue(loaded.getEpicsByStatus(TaskStatus.NEW).isEmpty());
+    }
+
+    @Test
+    void load_shouldPublishSnapshot() {
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Subtask subtask = new Subtask("S", "", epic.getId());
+        subtask.setTaskStatus(TaskStatus.DONE);
+        manager.generateSubtask(subtask);
+
+        BoardSnapshot snapshot = new FileBackedTaskManager(tempFile).snapshot();
+        assertEquals(List.of(subtask), snapshot.getSubtasksByEpic(epic.getId()));
+        assertEquals(TaskStatus.DONE, snapshot.getEpicById(epic.getId()).getTaskStatus());
+    }
+
+    @Test
+    void generateAll_shouldPersistBatchOnce() {
+        FileBackedTaskManager batched = new FileBackedTaskManager(tempFile,
+                FlushPolicy.batched(Duration.ofHours(1), 1000));
+        batched.generateAll(List.of(new Task("T1", ""), new Task("T2", ""), new Task("T3", "")));
+
+        assertEquals(1, batched.getPendingMutations());
+        batched.close();
+        assertEquals(3, new FileBackedTaskManager(tempFile).getAllTasks().size());
+    }
+
+    @Test
+    void save_shouldKeepPreviousGenerationWithChecksum() throws IOException {
+        manager.generateTask(new Task("T1", ""));
+        manager.generateTask(new Task("T2", ""));
+
+        assertEquals(2, manager.getGeneration());
+        List<String> lines = Files.readAllLines(tempFile.toPath());
+        assertTrue(lines.get(lines.size() - 1).startsWith("#records=0000000002 generation=0000000000000000002"));
+        assertEquals(1, new FileBackedTaskManager(new File(tempFile.getPath() + ".bak")).getAllTasks().size());
+    }
+
+    @Test
+    void load_withCorruptedFile_shouldFallBackToPreviousGeneration() throws IOException {
+        manager.generateTask(new Task("T1", ""));
+        manager.generateTask(new Task("T2", ""));
+        try (RandomAccessFile raf = new RandomAccessFile(tempFile, "rw")) {
+            raf.seek(70);
+            raf.write('X');
+        }
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(tempFile);
+        assertEquals(1, loaded.getAllTasks().size());
+        assertEquals(1, loaded.getGeneration());
+        assertEquals(new File(tempFile.getPath() + ".bak"), loaded.getSnapshotSource());
+
+        loaded.generateTask(new Task("T3", ""));
+        assertEquals(2, new FileBackedTaskManager(tempFile).getAllTasks().size());
+    }
+
+    @Test
+    void load_afterCrashBetweenRenames_shouldUseWrittenTempFile() throws IOException {
+        manager.generateTask(new Task("T1", ""));
+        manager.generateTask(new Task("T2", ""));
+        Files.move(tempFile.toPath(), new File(tempFile.getPath() + ".tmp").toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+
+        assertEquals(2, new FileBackedTaskManager(tempFile).getAllTasks().size());
+    }
+
+    @Test
+    void load_legacyFileWithUnfinishedTempFile_shouldLoadLegacyBoard() throws IOException {
+        Files.writeString(tempFile.toPath(), "id,type,name,status,description,epic,duration,startTime,endTime\n"
+                + "1,TASK,Старая,NEW,Описание,,,,\n");
+        Files.writeString(new File(tempFile.getPath() + ".tmp").toPath(), "id,type,name,status,desc");
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(tempFile);
+
+        assertEquals("Старая", loaded.getTaskById(1).getName());
+        assertEquals(tempFile, loaded.getSnapshotSource());
+    }
+
+    @Test
+    void load_withTruncatedFileAndBrokenBackup_shouldFail() throws IOException {
+        manager.generateTask(new Task("T1", ""));
+        try (RandomAccessFile raf = new RandomAccessFile(tempFile, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+        Files.writeString(new File(tempFile.getPath() + ".bak").toPath(), "мусор");
+
+        assertThrows(ManagerSaveException.class, () -> new FileBackedTaskManager(tempFile));
+    }
+
+    @Test
+    void load_withCommasQuotesAndNewlinesInNames_shouldRestoreThem() {
+        Task task = manager.generateTask(new Task("Купить молоко, хлеб", "Сказать \"спасибо\"\nи уйти",
+                TaskStatus.NEW, Duration.ofMinutes(30), LocalDateTime.of(2025, 10, 1, 10, 0)));
+        Epic epic = manager.generateEpic(new Epic("Эпик\r\nс переносом", ","));
+        Subtask subtask = manager.generateSubtask(new Subtask("\"\"", "", epic.getId()));
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(tempFile);
+
+        Task loadedTask = loaded.getTaskById(task.getId());
+        assertEquals(task.getName(), loadedTask.getName());
+        assertEquals(task.getDescription(), loadedTask.getDescription());
+        assertEquals(task.getStartTime(), loadedTask.getStartTime());
+        assertEquals(Duration.ofMinutes(30), loadedTask.getDuration());
+        assertEquals(epic.getName(), loaded.getEpicById(epic.getId()).getName());
+        assertEquals(",", loaded.getEpicById(epic.getId()).getDescription());
+        assertEquals("\"\"", loaded.getSubtaskById(subtask.getId()).getName());
+    }
+
+    @Test
+    void load_legacyFileWithoutQuoting_shouldBeRead() throws IOException {
+        Files.writeString(tempFile.toPath(), "id,type,name,status,description,epic,duration,startTime,endTime\n"
+                + "1,TASK,Задача \"в кавычках\",NEW,,,60,2025-10-01T10:00:30,2025-10-01T11:00:30\n");
+
+        Task task = new FileBackedTaskManager(tempFile).getTaskById(1);
+
+        assertEquals("Задача \"в кавычках\"", task.getName());
+        assertEquals(LocalDateTime.of(2025, 10, 1, 10, 0), task.getStartTime());
+    }
+
+    @Test
+    void load_recordWithManyExtraColumns_shouldKeepFirstFields() throws IOException {
+        Files.writeString(tempFile.toPath(), "id,type,name,status,description,epic,duration,startTime,endTime\n"
+                + "7,TASK,Задача,DONE,Описание,,,,"
+                + ",лишнее".repeat(20) + "\n");
+
+        Task task = new FileBackedTaskManager(tempFile).getTaskById(7);
+
+        assertEquals("Задача", task.getName());
+        assertEquals("Описание", task.getDescription());
+        assertEquals(TaskStatus.DONE, task.getTaskStatus());
+    }
+
+    @Test
+    void exportToCsv_shouldWriteQuotedRowsReadableByManager() throws IOException {
+        manager.generateTask(new Task("a,b", "c\nd"));
+        File exported = directory.resolve("export.csv").toFile();
+        manager.exportToCsv(exported);
+
+        Task task = new FileBackedTaskManager(exported).getAllTasks().get(0);
+        assertEquals("a,b", task.getName());
+        assertEquals("c\nd", task.getDescription());
+    }
+
+    @Test
+    void load_withPool_shouldMatchSingleThreadedLoad() {
+        Random random = new Random(42);
+        String[] names = {"Задача", "с запятой, внутри", "с \"кавычками\"", "с переносом\nстроки", ""};
+        TaskStatus[] statuses = TaskStatus.values();
+        List<Epic> newEpics = new ArrayList<>();
+        for (int i = 0; i < 1_500; i++) {
+            newEpics.add(new Epic(names[random.nextInt(names.length)] + i, names[random.nextInt(names.length)]));
+        }
+        List<Task> epics = manager.generateAll(newEpics);
+        List<Task> items = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < 12_000; i++) {
+            String name = names[random.nextInt(names.length)];
+            TaskStatus status = statuses[random.nextInt(statuses.length)];
+            LocalDateTime start = random.nextBoolean() ? base.plusMinutes(10L * i) : null;
+            Duration duration = start != null ? Duration.ofMinutes(5) : null;
+            if (random.nextInt(3) == 0) {
+                items.add(new Task(name, "Описание " + i, status, duration, start));
+            } else {
+                Subtask subtask = new Subtask(name, "", epics.get(random.nextInt(epics.size())).getId(),
+                        duration, start);
+                subtask.setTaskStatus(status);
+                items.add(subtask);
+            }
+        }
+        manager.generateAll(items);
+
+        FileBackedTaskManager sequential = new FileBackedTaskManager(tempFile, FlushPolicy.IMMEDIATE, null);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FileBackedTaskManager parallel = new FileBackedTaskManager(tempFile, FlushPolicy.IMMEDIATE, pool);
+
+            assertEquals(describe(sequential.getAllTasks()), describe(parallel.getAllTasks()));
+            assertEquals(describe(sequential.getAllEpics()), describe(parallel.getAllEpics()));
+            assertEquals(describe(sequential.getAllSubtasks()), describe(parallel.getAllSubtasks()));
+            assertEquals(describe(sequential.getPrioritizedTasks()), describe(parallel.getPrioritizedTasks()));
+            for (Task epic : epics) {
+                assertEquals(describe(sequential.getSubtasksByEpic(epic.getId())),
+                        describe(parallel.getSubtasksByEpic(epic.getId())));
+            }
+            assertEquals(sequential.countByStatus(), parallel.countByStatus());
+            assertEquals(describe(manager.getAllSubtasks()), describe(parallel.getAllSubtasks()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<String> describe(List<? extends Task> tasks) {
+        return tasks.stream()
+                .map(task -> task.getId() + "|" + task.getClass().getSimpleName() + "|" + task.getName() + "|"
+                        + task.getDescription() + "|" + task.getTaskStatus() + "|" + task.getStartTime() + "|"
+                        + task.getDuration() + "|" + task.getEndTime())
+                .collect(Collectors.toList());
+    }
+}
@@ -3,6 +3,7 @@ import history.InMemoryHistoryManager;
 import tasks.Task;
 import org.junit.jupiter.api.*;
 
+import java.util.Iterator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -160,4 +161,97 @@ public class HistoryManagerTest {
 
         assertTrue(historyManager.getHistory().isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void add_overCapacity_shouldEvictOldest() {
+        HistoryManager bounded = new InMemoryHistoryManager(2);
+        Task t1 = new Task("T1", "");
+        t1.setId(1);
+        Task t2 = new Task("T2", "");
+        t2.setId(2);
+        Task t3 = new Task("T3", "");
+        t3.setId(3);
+
+        bounded.add(t1);
+        bounded.add(t2);
+        bounded.add(t1);
+        bounded.add(t3);
+
+        List<Task> history = bounded.getHistory();
+        assertEquals(2, history.size());
+        assertEquals(t1.getId(), history.get(0).getId());
+        assertEquals(t3.getId(), history.get(1).getId());
+    }
+
+    @Test
+    void add_beyondInitialSlots_shouldGrowUpToCapacity() {
+        HistoryManager bounded = new InMemoryHistoryManager(100);
+        for (int i = 1; i <= 150; i++) {
+            Task task = new Task("T" + i, "");
+            task.setId(i);
+            bounded.add(task);
+            if (i % 7 == 0) {
+                bounded.remove(i - 3);
+            }
+        }
+        Task first = bounded.getHistory().get(0);
+        bounded.add(first);
+
+        List<Task> history = bounded.getHistory();
+        assertEquals(100, history.size());
+        assertEquals(first, history.get(99));
+        assertEquals(150, history.get(98).getId());
+        assertEquals(history.stream().distinct().count(), history.size());
+    }
+
+    @Test
+    void getRecent_shouldReturnLastEntriesInOrder() {
+        for (int i = 1; i <= 5; i++) {
+            Task task = new Task("T" + i, "");
+            task.setId(i);
+            historyManager.add(task);
+        }
+
+        List<Task> recent = historyManager.getRecent(2);
+        assertEquals(2, recent.size());
+        assertEquals(4, recent.get(0).getId());
+        assertEquals(5, recent.get(1).getId());
+        assertEquals(5, historyManager.getRecent(10).size());
+    }
+
+    @Test
+    void getHistoryPage_shouldReturnRequestedSlice() {
+        for (int i = 1; i <= 5; i++) {
+            Task task = new Task("T" + i, "");
+            task.setId(i);
+            historyManager.add(task);
+        }
+
+        List<Task> page = historyManager.getHistory(3, 10);
+        assertEquals(2, page.size());
+        assertEquals(4, page.get(0).getId());
+        assertEquals(5, page.get(1).getId());
+        assertEquals(2, historyManager.getHistory(1, 1).get(0).getId());
+        assertTrue(historyManager.getHistory(7, 3).isEmpty());
+    }
+
+    @Test
+    void iterator_shouldWalkHistoryAsOfCreation() {
+        Task t1 = new Task("T1", "");
+        t1.setId(1);
+        Task t2 = new Task("T2", "");
+        t2.setId(2);
+        historyManager.add(t1);
+        historyManager.add(t2);
+
+        Iterator<Task> iterator = historyManager.iterator();
+        assertEquals(t1.getId(), iterator.next().getId());
+        historyManager.add(t1);
+        historyManager.remove(t2.getId());
+
+        assertEquals(t2.getId(), iterator.next().getId());
+        assertFalse(iterator.hasNext());
+        assertThrows(UnsupportedOperationException.class, iterator::remove);
+        assertEquals(List.of(t1), historyManager.getHistory());
+    }
+}
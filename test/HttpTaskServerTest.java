@@ -0,0 +1,166 @@
+import http.HttpTaskServer;
+import managers.ConcurrentTaskManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpTaskServerTest {
+
+    private ConcurrentTaskManager manager;
+    private HttpTaskServer server;
+    private HttpClient client;
+
+    @BeforeAll
+    static void enableNoDelay() {
+        HttpTaskServer.useTcpNoDelay();
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        manager = new ConcurrentTaskManager();
+        server = new HttpTaskServer(manager, 0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void postTask_withoutId_shouldCreateTaskReadableByGet() throws Exception {
+        HttpResponse<String> created = send("POST", "/tasks", "{\"name\":\"Купить \\\"молоко\\\"\","
+                + "\"description\":\"a\\nb\",\"taskStatus\":\"IN_PROGRESS\",\"duration\":30,"
+                + "\"startTime\":\"2025-01-01T10:00\",\"unknown\":{\"nested\":[1,2]}}");
+
+        assertEquals(201, created.statusCode());
+        Task stored = manager.getAllTasks().get(0);
+        assertEquals("Купить \"молоко\"", stored.getName());
+        assertEquals("a\nb", stored.getDescription());
+        assertEquals(TaskStatus.IN_PROGRESS, stored.getTaskStatus());
+        assertEquals(Duration.ofMinutes(30), stored.getDuration());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 10, 0), stored.getStartTime());
+
+        HttpResponse<String> fetched = send("GET", "/tasks/" + stored.getId(), null);
+        assertEquals(200, fetched.statusCode());
+        assertEquals("{\"id\":" + stored.getId() + ",\"type\":\"TASK\",\"name\":\"Купить \\\"молоко\\\"\",\"description\":\"a\\nb\","
+                + "\"taskStatus\":\"IN_PROGRESS\",\"duration\":30,\"startTime\":\"2025-01-01T10:00\","
+                + "\"endTime\":\"2025-01-01T10:30\"}", fetched.body());
+        assertEquals(1, manager.getHistory().size());
+    }
+
+    @Test
+    void requests_withErrors_shouldReturnMatchingCodes() throws Exception {
+        manager.generateTask(new Task("Занято", "", TaskStatus.NEW, Duration.ofMinutes(60),
+                LocalDateTime.of(2025, 1, 1, 10, 0)));
+
+        assertEquals(406, send("POST", "/tasks", "{\"name\":\"Пересечение\",\"duration\":15,"
+                + "\"startTime\":\"2025-01-01T10:30\"}").statusCode());
+        assertEquals(406, send("POST", "/subtasks", "{\"name\":\"Без эпика\",\"epicId\":999}").statusCode());
+        assertEquals(400, send("POST", "/tasks", "{\"name\":").statusCode());
+        assertEquals(400, send("POST", "/tasks", "{\"taskStatus\":\"LATER\"}").statusCode());
+        assertEquals(400, send("GET", "/tasks/abc", null).statusCode());
+        assertEquals(404, send("GET", "/tasks/999", null).statusCode());
+        assertEquals(404, send("GET", "/tasks/1/extra", null).statusCode());
+        assertEquals(404, send("GET", "/tasksx", null).statusCode());
+        assertEquals(405, send("PUT", "/tasks", "{}").statusCode());
+        assertEquals(404, send("POST", "/tasks", "{\"id\":999,\"name\":\"Нет такой\"}").statusCode());
+        assertEquals(404, send("POST", "/epics", "{\"id\":1,\"name\":\"Это задача\"}").statusCode());
+        assertEquals(404, send("POST", "/subtasks", "{\"id\":999,\"name\":\"Нет такой\",\"epicId\":1}").statusCode());
+        assertEquals(1, manager.getAllTasks().size());
+        assertTrue(manager.getAllEpics().isEmpty());
+        assertTrue(manager.getHistory().isEmpty());
+    }
+
+    @Test
+    void epicsSubtasksHistoryAndPrioritized_shouldReflectManager() throws Exception {
+        Epic epic = manager.generateEpic(new Epic("Эпик", "Описание"));
+        assertEquals(201, send("POST", "/subtasks", "{\"name\":\"Вторая\",\"epicId\":" + epic.getId()
+                + ",\"duration\":10,\"startTime\":\"2025-01-01T12:00\"}").statusCode());
+        assertEquals(201, send("POST", "/subtasks", "{\"name\":\"Первая\",\"epicId\":" + epic.getId()
+                + ",\"taskStatus\":\"IN_PROGRESS\",\"duration\":10,\"startTime\":\"2025-01-01T11:00\"}").statusCode());
+
+        String subtasks = send("GET", "/epics/" + epic.getId() + "/subtasks", null).body();
+        assertTrue(subtasks.startsWith("[{") && subtasks.contains("\"Вторая\"") && subtasks.contains("\"Первая\""));
+        String epicJson = send("GET", "/epics/" + epic.getId(), null).body();
+        assertTrue(epicJson.contains("\"taskStatus\":\"IN_PROGRESS\""));
+        assertTrue(epicJson.contains("\"startTime\":\"2025-01-01T11:00\",\"endTime\":\"2025-01-01T12:10\""));
+
+        String prioritized = send("GET", "/prioritized", null).body();
+        assertTrue(prioritized.indexOf("\"Первая\"") < prioritized.indexOf("\"Вторая\""));
+        assertTrue(send("GET", "/history", null).body().contains("\"Эпик\""));
+
+        assertEquals(200, send("DELETE", "/epics/" + epic.getId(), null).statusCode());
+        assertEquals("[]", send("GET", "/subtasks", null).body());
+    }
+
+    @Test
+    void pipelinedRequests_onOneConnection_shouldBeAnsweredInOrder() throws Exception {
+        String body = "{\"name\":\"Задача\"}";
+        int bodyLength = body.getBytes(StandardCharsets.UTF_8).length;
+        String requests = "POST /tasks HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + bodyLength + "\r\n\r\n" + body
+                + "GET /tasks/1 HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                + "GET /tasks/2 HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(requests.getBytes(StandardCharsets.UTF_8));
+            InputStream in = socket.getInputStream();
+
+            assertEquals(201, readStatus(in));
+            assertEquals(200, readStatus(in));
+            assertEquals(404, readStatus(in));
+        }
+    }
+
+    // Читает ответ целиком по Content-Length и возвращает его код
+    private static int readStatus(InputStream in) throws IOException {
+        String status = readLine(in);
+        int length = 0;
+        for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+            if (header.toLowerCase().startsWith("content-length:")) {
+                length = Integer.parseInt(header.substring(15).trim());
+            }
+        }
+        assertEquals(length, in.readNBytes(length).length);
+        return Integer.parseInt(status.split(" ")[1]);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (int c = in.read(); c != '\n'; c = in.read()) {
+            assertTrue(c >= 0, "Соединение закрыто посреди ответа");
+            if (c != '\r') {
+                line.write(c);
+            }
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+}
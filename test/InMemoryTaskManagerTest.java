@@ -70,4 +70,56 @@ public class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager
         assertEquals(t2.getId(), prioritized.get(0).getId()); // Ранняя задача первая
         assertEquals(t1.getId(), prioritized.get(1).getId()); // Поздняя задача вторая
     }
-}
\ No newline at end of file
+
+    @Test
+    void getOverlappingTasks_shouldReturnOnlyConflictingTasks() {
+        LocalDateTime base = LocalDateTime.of(2025, 10, 1, 10, 0);
+        Task t1 = manager.generateTask(new Task("T1", "", TaskStatus.NEW, Duration.ofHours(1), base));
+        Task t2 = manager.generateTask(new Task("T2", "", TaskStatus.NEW, Duration.ofHours(1), base.plusHours(2)));
+        manager.generateTask(new Task("T3", "", TaskStatus.NEW, Duration.ofHours(1), base.plusHours(4)));
+
+        List<Task> conflicts = manager.getOverlappingTasks(base.plusMinutes(30), base.plusHours(2).plusMinutes(30));
+
+        assertEquals(2, conflicts.size());
+        assertEquals(t1.getId(), conflicts.get(0).getId());
+        assertEquals(t2.getId(), conflicts.get(1).getId());
+    }
+
+    @Test
+    void deleteTask_shouldFreeTimeSlot() {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        Task t1 = manager.generateTask(new Task("T1", "", TaskStatus.NEW, Duration.ofHours(1), start));
+        manager.deleteTask(t1.getId());
+
+        Task t2 = new Task("T2", "", TaskStatus.NEW, Duration.ofHours(1), start);
+        assertDoesNotThrow(() -> manager.generateTask(t2));
+    }
+
+    @Test
+    void updateTask_movedToBusySlot_shouldThrow() {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        manager.generateTask(new Task("T1", "", TaskStatus.NEW, Duration.ofHours(1), start));
+        Task t2 = manager.generateTask(new Task("T2", "", TaskStatus.NEW, Duration.ofHours(1), start.plusHours(3)));
+
+        Task moved = new Task("T2", "", TaskStatus.NEW, Duration.ofHours(1), start.plusMinutes(30));
+        moved.setId(t2.getId());
+        assertThrows(IllegalArgumentException.class, () -> manager.updateTask(moved));
+    }
+
+    @Test
+    void snapshot_withoutVersioning_shouldFailButManagerShouldWork() {
+        InMemoryTaskManager plain = new InMemoryTaskManager();
+        Epic epic = plain.generateEpic(new Epic("Эпик", ""));
+        Subtask subtask = plain.generateSubtask(new Subtask("S", "", epic.getId()));
+        subtask.setTaskStatus(TaskStatus.DONE);
+        plain.updateSubtask(subtask);
+        Epic renamed = new Epic("Переименован", "");
+        renamed.setId(epic.getId());
+        plain.updateAll(List.of(renamed));
+
+        assertEquals(TaskStatus.DONE, plain.getEpicById(epic.getId()).getTaskStatus());
+        assertEquals("Переименован", plain.getEpicById(epic.getId()).getName());
+        assertThrows(IllegalStateException.class, plain::snapshot);
+        assertThrows(IllegalStateException.class, () -> plain.subscribe(events -> { }));
+    }
+}
@@ -0,0 +1,73 @@
+import managers.IntKeyedMap;
+import org.junit.jupiter.api.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntKeyedMapTest {
+
+    @Test
+    void randomOperations_shouldMatchHashMap() {
+        IntKeyedMap<String> map = new IntKeyedMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+            }
+        }
+        assertEquals(expected, map);
+        for (int key = -100; key < 4_900; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    void parallelValuesStream_shouldSeeEveryValueOnce() {
+        IntKeyedMap<String> map = new IntKeyedMap<>();
+        for (int id = 1; id <= 100_000; id++) {
+            map.put(id, Integer.toString(id));
+        }
+        assertEquals(100_000L * 100_001 / 2, map.values().parallelStream().mapToLong(Long::parseLong).sum());
+        assertEquals(100_000, map.values().stream().count());
+    }
+
+    @Test
+    void moveFrom_shouldMergeWithLaterValuesWinningAndEmptySource() {
+        IntKeyedMap<String> target = new IntKeyedMap<>();
+        IntKeyedMap<String> source = new IntKeyedMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        for (int id = 1; id <= 1_000; id++) {
+            target.put(id, "old" + id);
+            expected.put(id, "old" + id);
+        }
+        for (int id = 500; id <= 5_000; id++) {
+            source.put(id, "new" + id);
+            expected.put(id, "new" + id);
+        }
+
+        target.moveFrom(source);
+
+        assertEquals(expected, target);
+        assertTrue(source.isEmpty());
+        source.put(7, "seven");
+        assertEquals("new700", target.get(700));
+        assertEquals("old7", target.get(7));
+
+        IntKeyedMap<String> empty = new IntKeyedMap<>();
+        empty.moveFrom(target);
+        assertEquals(expected, empty);
+        assertTrue(target.isEmpty());
+    }
+
+    @Test
+    void put_null_shouldBeRejected() {
+        assertThrows(NullPointerException.class, () -> new IntKeyedMap<String>().put(1, null));
+    }
+}
@@ -0,0 +1,131 @@
+import managers.JournaledTaskManager;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.*;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournaledTaskManagerTest extends TaskManagerTest<JournaledTaskManager> {
+
+    @TempDir
+    Path directory;
+
+    private File tempFile;
+
+    @Override
+    JournaledTaskManager createManager() {
+        tempFile = directory.resolve("test.csv").toFile();
+        return new JournaledTaskManager(tempFile);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    void reload_shouldReplayJournal() {
+        Task task = manager.generateTask(new Task("Задача", "",
+                TaskStatus.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 10, 1, 10, 0)));
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Subtask subtask = manager.generateSubtask(new Subtask("Подзадача", "", epic.getId()));
+        Subtask done = new Subtask("Подзадача", "", epic.getId());
+        done.setId(subtask.getId());
+        done.setTaskStatus(TaskStatus.DONE);
+        manager.updateSubtask(done);
+        manager.deleteTask(task.getId());
+
+        JournaledTaskManager restored = new JournaledTaskManager(tempFile);
+
+        assertTrue(restored.getAllTasks().isEmpty());
+        assertEquals(1, restored.getAllSubtasks().size());
+        assertEquals(TaskStatus.DONE, restored.getEpicById(epic.getId()).getTaskStatus());
+        assertEquals(5, restored.getJournalSize());
+    }
+
+    @Test
+    void concurrentWriters_shouldJournalChangesInTheirOrder() throws InterruptedException {
+        Task shared = manager.generateTask(new Task("Общая", ""));
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int writer = t;
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    Task renamed = new Task("W" + writer + "-" + i, "");
+                    renamed.setId(shared.getId());
+                    manager.updateTask(renamed);
+                    manager.deleteTask(manager.generateTask(new Task("Временная", "")).getId());
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        JournaledTaskManager restored = new JournaledTaskManager(tempFile);
+
+        assertEquals(List.of(manager.getTaskById(shared.getId())), restored.getAllTasks());
+        assertEquals(manager.getTaskById(shared.getId()).getName(),
+                restored.getTaskById(shared.getId()).getName());
+    }
+
+    @Test
+    void compact_shouldWriteSnapshotAndClearJournal() {
+        JournaledTaskManager compacting = new JournaledTaskManager(tempFile, 3);
+        compacting.generateTask(new Task("T1", ""));
+        compacting.generateTask(new Task("T2", ""));
+        compacting.generateTask(new Task("T3", ""));
+
+        assertEquals(0, compacting.getJournalSize());
+        assertFalse(new File(tempFile.getPath() + ".journal").exists());
+        assertEquals(3, new JournaledTaskManager(tempFile).getAllTasks().size());
+    }
+
+    @Test
+    void journal_withoutFsync_shouldBeReplayedAndCompacted() {
+        JournaledTaskManager relaxed = new JournaledTaskManager(tempFile, 3, false);
+        relaxed.generateTask(new Task("T1", ""));
+        relaxed.generateTask(new Task("T2", ""));
+
+        assertEquals(2, new JournaledTaskManager(tempFile).getJournalSize());
+        relaxed.generateTask(new Task("T3", ""));
+        assertEquals(0, relaxed.getJournalSize());
+        assertEquals(3, new JournaledTaskManager(tempFile, 3, false).getAllTasks().size());
+    }
+
+    @Test
+    void batches_shouldBeReplayedFromJournal() {
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Subtask done = new Subtask("S1", "", epic.getId());
+        done.setTaskStatus(TaskStatus.DONE);
+        Task task = new Task("T", "");
+        manager.generateAll(List.of(done, new Subtask("S2", "", epic.getId()), task));
+        manager.deleteAll(List.of(task.getId(), done.getId() + 1));
+
+        JournaledTaskManager restored = new JournaledTaskManager(tempFile);
+
+        assertTrue(restored.getAllTasks().isEmpty());
+        assertEquals(1, restored.getAllSubtasks().size());
+        assertEquals(TaskStatus.DONE, restored.getEpicById(epic.getId()).getTaskStatus());
+        assertEquals(6, restored.getJournalSize());
+    }
+
+    @Test
+    void reload_withNewlinesInNames_shouldReplayWholeRecords() {
+        Task task = manager.generateTask(new Task("Первая строка\nвторая, \"третья\"", "PUT,TASK,1"));
+
+        JournaledTaskManager restored = new JournaledTaskManager(tempFile);
+
+        assertEquals(task.getName(), restored.getTaskById(task.getId()).getName());
+        assertEquals("PUT,TASK,1", restored.getTaskById(task.getId()).getDescription());
+        assertEquals(1, restored.getJournalSize());
+    }
+}
@@ -0,0 +1,30 @@
+import managers.BinaryFileBackedTaskManager;
+import managers.MappedTaskManager;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Общие проверки менеджера, который работает поверх отображённого снимка и не загружает доску
+public class MappedOverlayTaskManagerTest extends TaskManagerTest<MappedTaskManager> {
+
+    @TempDir
+    Path directory;
+
+    @Override
+    MappedTaskManager createManager() {
+        File file = directory.resolve("test.bin").toFile();
+        new BinaryFileBackedTaskManager(file).forceSaveForTests();
+        MappedTaskManager mapped = new MappedTaskManager(file);
+        assertFalse(mapped.isMaterialized());
+        return mapped;
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+}
@@ -0,0 +1,187 @@
+import exceptions.ManagerSaveException;
+import managers.BinaryFileBackedTaskManager;
+import managers.MappedTaskManager;
+import managers.MappedTaskStore;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedTaskManagerTest extends TaskManagerTest<MappedTaskManager> {
+
+    @TempDir
+    Path directory;
+
+    private File tempFile;
+
+    @Override
+    MappedTaskManager createManager() {
+        tempFile = directory.resolve("test.bin").toFile();
+        return new MappedTaskManager(tempFile);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    void getById_shouldReadLazilyWithoutLoadingBoard() {
+        BinaryFileBackedTaskManager source = new BinaryFileBackedTaskManager(tempFile);
+        Task task = source.generateTask(new Task("Задача", "Описание", TaskStatus.IN_PROGRESS,
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 10, 1, 10, 0)));
+        Epic epic = source.generateEpic(new Epic("Эпик", ""));
+        Subtask subtask = new Subtask("Подзадача", "", epic.getId());
+        subtask.setTaskStatus(TaskStatus.DONE);
+        source.generateSubtask(subtask);
+
+        MappedTaskManager mapped = new MappedTaskManager(tempFile);
+
+        assertEquals("Задача", mapped.getTaskById(task.getId()).getName());
+        assertEquals(TaskStatus.DONE, mapped.getEpicById(epic.getId()).getTaskStatus());
+        assertEquals(1, mapped.getSubtasksByEpic(epic.getId()).size());
+        assertNull(mapped.getTaskById(epic.getId()));
+        assertEquals(2, mapped.getHistory().size());
+        assertFalse(mapped.isMaterialized());
+    }
+
+    @Test
+    void mutation_shouldPersistWithoutLoadingBoard() {
+        BinaryFileBackedTaskManager source = new BinaryFileBackedTaskManager(tempFile);
+        Epic epic = source.generateEpic(new Epic("Эпик", ""));
+        source.generateSubtask(new Subtask("Подзадача", "", epic.getId()));
+
+        MappedTaskManager mapped = new MappedTaskManager(tempFile);
+        Task created = mapped.generateTask(new Task("Новая", ""));
+
+        assertFalse(mapped.isMaterialized());
+        assertTrue(created.getId() > epic.getId());
+        BinaryFileBackedTaskManager restored = new BinaryFileBackedTaskManager(tempFile);
+        assertEquals(List.of(created), restored.getAllTasks());
+        assertEquals(1, restored.getSubtasksByEpic(epic.getId()).size());
+    }
+
+    @Test
+    void mutationsOfMappedRecords_shouldApplyWithoutLoadingBoard() {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        BinaryFileBackedTaskManager source = new BinaryFileBackedTaskManager(tempFile);
+        Task busy = source.generateTask(new Task("Занята", "", TaskStatus.NEW, Duration.ofHours(1), start));
+        Task renamed = source.generateTask(new Task("Старое имя", ""));
+        Task removed = source.generateTask(new Task("Удалить", ""));
+        Epic epic = source.generateEpic(new Epic("Эпик", ""));
+        Subtask done = new Subtask("Готова", "", epic.getId());
+        done.setTaskStatus(TaskStatus.DONE);
+        source.generateSubtask(done);
+        Subtask open = source.generateSubtask(new Subtask("Открыта", "", epic.getId()));
+
+        MappedTaskManager mapped = new MappedTaskManager(tempFile);
+        assertThrows(IllegalArgumentException.class, () -> mapped.generateTask(
+                new Task("Пересекается", "", TaskStatus.NEW, Duration.ofHours(1), start.plusMinutes(30))));
+        Task update = new Task("Новое имя", "");
+        update.setId(renamed.getId());
+        mapped.updateTask(update);
+        mapped.deleteTask(removed.getId());
+        mapped.deleteSubtask(open.getId());
+
+        assertFalse(mapped.isMaterialized());
+        assertEquals("Новое имя", mapped.getTaskById(renamed.getId()).getName());
+        assertNull(mapped.getTaskById(removed.getId()));
+        assertEquals(TaskStatus.DONE, mapped.getEpicById(epic.getId()).getTaskStatus());
+        assertEquals(List.of(done), mapped.getSubtasksByEpic(epic.getId()));
+
+        MappedTaskManager reopened = new MappedTaskManager(tempFile);
+        assertEquals("Новое имя", reopened.getTaskById(renamed.getId()).getName());
+        assertNull(reopened.getTaskById(removed.getId()));
+        assertNull(reopened.getSubtaskById(open.getId()));
+        assertEquals(TaskStatus.DONE, reopened.getEpicById(epic.getId()).getTaskStatus());
+        assertEquals(List.of(busy, renamed), reopened.getAllTasks());
+    }
+
+    @Test
+    void removeAllSubtasks_ofMappedBoard_shouldResetEpicsAndSurviveReload() {
+        BinaryFileBackedTaskManager source = new BinaryFileBackedTaskManager(tempFile);
+        Epic epic = source.generateEpic(new Epic("Эпик", ""));
+        Subtask done = new Subtask("Готова", "", epic.getId());
+        done.setTaskStatus(TaskStatus.DONE);
+        source.generateSubtask(done);
+        Task task = source.generateTask(new Task("Задача", ""));
+
+        MappedTaskManager mapped = new MappedTaskManager(tempFile);
+        mapped.getSubtaskById(done.getId());
+        mapped.removeAllSubtasks();
+
+        assertFalse(mapped.isMaterialized());
+        assertEquals(TaskStatus.NEW, mapped.getEpicById(epic.getId()).getTaskStatus());
+        assertNull(mapped.getSubtaskById(done.getId()));
+        assertEquals(List.of(epic), mapped.getHistory());
+
+        MappedTaskManager reopened = new MappedTaskManager(tempFile);
+        assertTrue(reopened.getSubtasksByEpic(epic.getId()).isEmpty());
+        assertEquals(TaskStatus.NEW, reopened.getEpicById(epic.getId()).getTaskStatus());
+        assertEquals("Задача", reopened.getTaskById(task.getId()).getName());
+    }
+
+    @Test
+    void load_withCorruptedFileAndChecksum_shouldMapPreviousGeneration() throws IOException {
+        BinaryFileBackedTaskManager source = new BinaryFileBackedTaskManager(tempFile);
+        Task first = source.generateTask(new Task("Первая", ""));
+        source.generateTask(new Task("Вторая", ""));
+        try (RandomAccessFile raf = new RandomAccessFile(tempFile, "rw")) {
+            raf.seek(12);
+            raf.write(0x7F);
+        }
+
+        MappedTaskManager mapped = new MappedTaskManager(tempFile, MappedTaskStore.DEFAULT_CACHE_SIZE, true);
+
+        assertEquals("Первая", mapped.getTaskById(first.getId()).getName());
+        assertEquals(new File(tempFile.getPath() + ".bak"), mapped.getSnapshotSource());
+        assertEquals(1, mapped.getAllTasks().size());
+    }
+
+    @Test
+    void load_withCorruptedRecord_shouldMapFileAndFailOnThatRecord() throws IOException {
+        BinaryFileBackedTaskManager source = new BinaryFileBackedTaskManager(tempFile);
+        Task first = source.generateTask(new Task("Первая", ""));
+        Task second = source.generateTask(new Task("Вторая", ""));
+        try (RandomAccessFile raf = new RandomAccessFile(tempFile, "rw")) {
+            raf.seek(12);
+            raf.write(0x7F);
+        }
+
+        MappedTaskManager mapped = new MappedTaskManager(tempFile);
+
+        assertEquals(tempFile, mapped.getSnapshotSource());
+        assertEquals("Вторая", mapped.getTaskById(second.getId()).getName());
+        assertThrows(ManagerSaveException.class, () -> mapped.getTaskById(first.getId()));
+    }
+
+    @Test
+    void load_ofSnapshotWithoutIndex_shouldLoadBoardIntoMemory() throws IOException {
+        byte[] name = "Старая".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer v1 = ByteBuffer.allocate(64);
+        v1.putInt(0x4B4E4242).putShort((short) 1);
+        v1.putInt(1).putInt(5).put((byte) TaskStatus.DONE.ordinal()).putInt(name.length).put(name).putInt(-1)
+                .putLong(Long.MIN_VALUE).putLong(Long.MIN_VALUE);
+        v1.putInt(0).putInt(0).putInt(0);
+        Files.write(tempFile.toPath(), Arrays.copyOf(v1.array(), v1.position()));
+
+        MappedTaskManager mapped = new MappedTaskManager(tempFile);
+
+        assertTrue(mapped.isMaterialized());
+        assertEquals("Старая", mapped.getTaskById(5).getName());
+        assertEquals(TaskStatus.DONE, mapped.getTaskById(5).getTaskStatus());
+    }
+}
@@ -0,0 +1,147 @@
+import exceptions.ManagerSaveException;
+import managers.ShardedTaskManager;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.*;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedTaskManagerTest extends TaskManagerTest<ShardedTaskManager> {
+
+    private static final int SHARDS = 4;
+
+    @TempDir
+    File directory;
+
+    @Override
+    ShardedTaskManager createManager() {
+        return new ShardedTaskManager(directory, SHARDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    void reload_shouldKeepTasksInTheirShards() {
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Subtask subtask = manager.generateSubtask(new Subtask("S", "", epic.getId()));
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(manager.generateTask(new Task("T" + i, "")));
+        }
+
+        assertEquals(manager.shardOf(epic.getId()), manager.shardOf(subtask.getId()));
+        assertEquals(SHARDS, tasks.stream().map(task -> manager.shardOf(task.getId())).distinct().count());
+
+        ShardedTaskManager restored = new ShardedTaskManager(directory, SHARDS);
+        assertEquals(tasks, restored.getAllTasks());
+        assertEquals(List.of(subtask), restored.getSubtasksByEpic(epic.getId()));
+        Task next = restored.generateTask(new Task("Новая", ""));
+        assertFalse(tasks.contains(next));
+
+        assertThrows(ManagerSaveException.class, () -> new ShardedTaskManager(directory, SHARDS + 1));
+    }
+
+    @Test
+    void write_shouldRewriteOnlyChangedShard() {
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        int shard = manager.shardOf(epic.getId());
+        long[] before = new long[SHARDS];
+        for (int i = 0; i < SHARDS; i++) {
+            before[i] = manager.getGeneration(i);
+        }
+
+        manager.generateSubtask(new Subtask("S1", "", epic.getId()));
+        manager.generateSubtask(new Subtask("S2", "", epic.getId()));
+
+        for (int i = 0; i < SHARDS; i++) {
+            assertEquals(i == shard ? before[i] + 2 : before[i], manager.getGeneration(i));
+        }
+    }
+
+    @Test
+    void writeWithTime_shouldReachShardFileAfterScheduleCheck() {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        Task task = manager.generateTask(new Task("T", "", TaskStatus.NEW, Duration.ofHours(1), start));
+        int shard = manager.shardOf(task.getId());
+        long before = manager.getGeneration(shard);
+
+        Task moved = new Task("T", "", TaskStatus.NEW, Duration.ofHours(1), start.plusHours(2));
+        moved.setId(task.getId());
+        manager.updateTask(moved);
+
+        assertEquals(before + 1, manager.getGeneration(shard));
+        assertEquals(start.plusHours(2),
+                new ShardedTaskManager(directory, SHARDS).getTaskById(task.getId()).getStartTime());
+    }
+
+    @Test
+    void streams_shouldCoverAllShards() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(manager.generateTask(new Task("T" + i, "")));
+        }
+
+        assertEquals(Set.copyOf(tasks), manager.streamTasks().collect(Collectors.toSet()));
+        assertTrue(manager.streamTasks().anyMatch(task -> task.getName().equals("T9")));
+    }
+
+    @Test
+    void overlapsAndMoves_acrossShards_shouldBeRejected() {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        Task first = manager.generateTask(new Task("T1", "", TaskStatus.NEW, Duration.ofHours(1), start));
+        Task second = new Task("T2", "", TaskStatus.NEW, Duration.ofHours(1), start.plusMinutes(30));
+
+        assertThrows(IllegalArgumentException.class, () -> manager.generateTask(second));
+        assertEquals(List.of(first), manager.getPrioritizedTasks());
+
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Epic other = manager.generateEpic(new Epic("Другой", ""));
+        Subtask subtask = manager.generateSubtask(new Subtask("S", "", epic.getId()));
+        Subtask moved = new Subtask("S", "", other.getId());
+        moved.setId(subtask.getId());
+
+        assertNotEquals(manager.shardOf(epic.getId()), manager.shardOf(other.getId()));
+        assertThrows(IllegalArgumentException.class, () -> manager.updateSubtask(moved));
+        assertEquals(List.of(subtask), manager.getSubtasksByEpic(epic.getId()));
+    }
+
+    @Test
+    void concurrentWriters_shouldGetUniqueIds() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Task>>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    List<Task> created = new ArrayList<>();
+                    for (int i = 0; i < 250; i++) {
+                        created.add(manager.generateTask(new Task("T" + i, "")));
+                    }
+                    return created;
+                }));
+            }
+            Set<Integer> ids = ConcurrentHashMap.newKeySet();
+            for (Future<List<Task>> future : futures) {
+                future.get(30, TimeUnit.SECONDS).forEach(task -> ids.add(task.getId()));
+            }
+
+            assertEquals(1_000, ids.size());
+            assertEquals(1_000, manager.getAllTasks().size());
+            assertEquals(ids, new ShardedTaskManager(directory, SHARDS).getAllTasks().stream()
+                    .map(Task::getId).collect(Collectors.toSet()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
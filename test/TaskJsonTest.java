@@ -0,0 +1,144 @@
+import exceptions.JsonFormatException;
+import org.junit.jupiter.api.Test;
+import tasks.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskJsonTest {
+
+    private static String json(Task task) throws IOException {
+        return new String(new TaskJsonWriter().write(task).toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Task parse(String json) {
+        TaskJsonReader reader = new TaskJsonReader(json.getBytes(StandardCharsets.UTF_8));
+        Task task = reader.read();
+        reader.end();
+        return task;
+    }
+
+    @Test
+    void write_shouldEscapeStringsAndFormatTimeLikeLocalDateTime() throws IOException {
+        Task task = new Task("Имя \"в кавычках\"\n\t\u0001 😀", "back\\slash", TaskStatus.DONE,
+                Duration.ofMinutes(90), LocalDateTime.of(2024, 2, 29, 23, 0));
+        task.setId(7);
+
+        assertEquals("{\"id\":7,\"type\":\"TASK\",\"name\":\"Имя \\\"в кавычках\\\"\\n\\t\\u0001 😀\","
+                + "\"description\":\"back\\\\slash\",\"taskStatus\":\"DONE\",\"duration\":90,"
+                + "\"startTime\":\"2024-02-29T23:00\",\"endTime\":\"2024-03-01T00:30\"}", json(task));
+
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            LocalDateTime time = LocalDateTime.of(1, 1, 1, 0, 0).plusMinutes(random.nextLong(5_000_000_000L));
+            Task timed = new Task("t", null, TaskStatus.NEW, Duration.ZERO, time);
+            assertTrue(json(timed).contains("\"startTime\":\"" + time + "\""), time.toString());
+            assertEquals(time, parse(json(timed)).getStartTime());
+        }
+    }
+
+    @Test
+    void roundTrip_ofEachType_shouldRestoreFields() throws IOException {
+        Epic epic = new Epic("Эпик", "Описание");
+        epic.setId(1);
+        Subtask subtask = new Subtask("Подзадача", null, 1, Duration.ofMinutes(15),
+                LocalDateTime.of(1969, 12, 31, 23, 50));
+        subtask.setId(2);
+        subtask.setTaskStatus(TaskStatus.IN_PROGRESS);
+        Task task = new Task("Задача", "", TaskStatus.NEW);
+        task.setId(3);
+
+        Epic epicCopy = (Epic) parse(json(epic));
+        assertEquals("Эпик", epicCopy.getName());
+        assertEquals(1, epicCopy.getId());
+
+        Subtask subtaskCopy = (Subtask) parse(json(subtask));
+        assertEquals(1, subtaskCopy.getEpicId());
+        assertNull(subtaskCopy.getDescription());
+        assertEquals(TaskStatus.IN_PROGRESS, subtaskCopy.getTaskStatus());
+        assertEquals(subtask.getStartTime(), subtaskCopy.getStartTime());
+        assertEquals(subtask.getEndTime(), subtaskCopy.getEndTime());
+
+        Task taskCopy = parse(json(task));
+        assertEquals(Task.class, taskCopy.getClass());
+        assertEquals("", taskCopy.getDescription());
+        assertNull(taskCopy.getDuration());
+        assertNull(taskCopy.getStartTime());
+    }
+
+    @Test
+    void read_shouldAcceptOtherTimeFormsAndSkipUnknownKeys() {
+        Task task = parse(" { \"unknown\" : [1, {\"a\": null}, true, -2.5e3] , \"name\":\"\\u0418\\ud83d\\ude00\","
+                + "\"startTime\":\"2025-01-01T10:15:30.5\",\"duration\":5,\"endTime\":\"ignored\"} ");
+
+        assertEquals("И😀", task.getName());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 10, 15), task.getStartTime());
+        assertEquals(TaskStatus.NEW, task.getTaskStatus());
+    }
+
+    @Test
+    void read_withMalformedInput_shouldThrowJsonFormatException() {
+        List<String> inputs = List.of("", "{", "{\"name\":\"a\"", "{\"name\":\"a\"} x", "{\"id\":1.5}",
+                "{\"id\":99999999999}", "{\"duration\":-1}", "{\"taskStatus\":\"LATER\"}", "{\"type\":\"BUG\"}",
+                "{\"startTime\":\"2023-02-29T10:00\"}", "{\"startTime\":\"2024-01-01T10:3x\"}",
+                "{\"startTime\":\"2024-01-01Tx1:30\"}", "{\"startTime\":\"2024-01-01T10:30:x5\"}",
+                "{\"name\":\"\\x\"}", "{\"name\":nul}");
+        for (String input : inputs) {
+            assertThrows(JsonFormatException.class, () -> parse(input), input);
+        }
+        assertThrows(JsonFormatException.class,
+                () -> new TaskJsonReader("{\"type\":\"EPIC\"}".getBytes(StandardCharsets.UTF_8)).readTask());
+        assertThrows(JsonFormatException.class,
+                () -> new TaskJsonReader("{\"name\":\"без эпика\"}".getBytes(StandardCharsets.UTF_8)).readSubtask());
+    }
+
+    @Test
+    void streamingArray_shouldFlushInChunksAndReadBackInOrder() throws IOException {
+        List<Subtask> subtasks = new ArrayList<>();
+        for (int i = 1; i <= 20_000; i++) {
+            Subtask subtask = new Subtask("Подзадача " + i, "Описание " + i, 0, Duration.ofMinutes(10),
+                    LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(10L * i));
+            subtask.setId(i);
+            subtasks.add(subtask);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int[] largestWrite = new int[1];
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                bytes.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                largestWrite[0] = Math.max(largestWrite[0], len);
+                bytes.write(b, off, len);
+            }
+        };
+
+        new TaskJsonWriter(out).writeArray(subtasks.stream()).flush();
+
+        assertTrue(bytes.size() > 1_000_000);
+        assertTrue(largestWrite[0] <= 8192, "Буфер записи не должен расти: " + largestWrite[0]);
+        List<Task> restored = new ArrayList<>();
+        TaskJsonReader reader = new TaskJsonReader(new ByteArrayInputStream(bytes.toByteArray()));
+        reader.forEach(TaskType.SUBTASK, restored::add);
+        reader.end();
+        assertEquals(subtasks.size(), restored.size());
+        assertTrue(IntStream.range(0, subtasks.size()).allMatch(i ->
+                restored.get(i).getId() == subtasks.get(i).getId()
+                        && restored.get(i).getStartMinute() == subtasks.get(i).getStartMinute()
+                        && restored.get(i).getName().equals(subtasks.get(i).getName())));
+    }
+}
@@ -1,9 +1,13 @@
+import exceptions.BatchValidationException;
 import managers.TaskManager;
 import tasks.*;
 import org.junit.jupiter.api.*;
 
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -101,4 +105,187 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         Task t2 = new Task("T2", "", TaskStatus.NEW, Duration.ofHours(1), start2);
         assertDoesNotThrow(() -> manager.generateTask(t2));
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateSubtask_shouldRecalculateEpicStatus() {
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Subtask subtask = manager.generateSubtask(new Subtask("S", "", epic.getId()));
+
+        Subtask done = new Subtask("S", "", epic.getId());
+        done.setId(subtask.getId());
+        done.setTaskStatus(TaskStatus.DONE);
+        manager.updateSubtask(done);
+
+        assertEquals(TaskStatus.DONE, manager.getEpicById(epic.getId()).getTaskStatus());
+        assertEquals(1, manager.getSubtasksByEpic(epic.getId()).size());
+    }
+
+    @Test
+    void update_ofMissingOrDeletedRecord_shouldReturnFalse() {
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Task task = manager.generateTask(new Task("T", ""));
+        Subtask subtask = manager.generateSubtask(new Subtask("S", "", epic.getId()));
+
+        Task renamed = new Task("T2", "");
+        renamed.setId(task.getId());
+        assertTrue(manager.updateTask(renamed));
+        Epic asEpic = new Epic("Не эпик", "");
+        asEpic.setId(task.getId());
+        assertFalse(manager.updateEpic(asEpic));
+
+        manager.deleteTask(task.getId());
+        manager.deleteSubtask(subtask.getId());
+        assertFalse(manager.updateTask(renamed));
+        assertFalse(manager.updateSubtask(subtask));
+        assertNull(manager.getTaskById(task.getId()));
+    }
+
+    @Test
+    void prioritizedTasks_sameStartTime_shouldKeepBoth() {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        Task timed = manager.generateTask(new Task("T1", "", TaskStatus.NEW, Duration.ofHours(1), start));
+        Task marker = manager.generateTask(new Task("T2", "", TaskStatus.NEW, null, start));
+
+        assertEquals(List.of(timed, marker), manager.getPrioritizedTasks());
+
+        manager.deleteTask(timed.getId());
+        assertEquals(List.of(marker), manager.getPrioritizedTasks());
+    }
+
+    @Test
+    void rangeQueries_shouldSelectTasksByStartTime() {
+        LocalDateTime day = LocalDateTime.of(2025, 10, 1, 0, 0);
+        Task early = manager.generateTask(new Task("T1", "", TaskStatus.NEW, Duration.ofHours(1), day.plusHours(9)));
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Subtask noon = manager.generateSubtask(new Subtask("S", "", epic.getId(), Duration.ofHours(1), day.plusHours(12)));
+        Task nextDay = manager.generateTask(new Task("T2", "", TaskStatus.NEW, Duration.ofHours(1), day.plusDays(1)));
+        manager.generateTask(new Task("T3", "", TaskStatus.NEW));
+
+        assertEquals(List.of(early, noon), manager.getTasksOn(LocalDate.of(2025, 10, 1)));
+        assertEquals(List.of(noon), manager.getTasksBetween(day.plusHours(10), day.plusDays(1)));
+        assertEquals(List.of(noon, nextDay), manager.getNextTasks(day.plusHours(12), 5));
+        assertEquals(List.of(early), manager.getNextTasks(day, 1));
+        assertTrue(manager.getTasksBetween(day.plusDays(1), day).isEmpty());
+    }
+
+    @Test
+    void statusIndex_shouldFollowUpdatesAndDeletes() {
+        Task task = manager.generateTask(new Task("T", "", TaskStatus.NEW));
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Subtask first = manager.generateSubtask(new Subtask("S1", "", epic.getId()));
+        Subtask second = manager.generateSubtask(new Subtask("S2", "", epic.getId()));
+
+        Subtask started = new Subtask("S1", "", epic.getId());
+        started.setId(first.getId());
+        started.setTaskStatus(TaskStatus.IN_PROGRESS);
+        manager.updateSubtask(started);
+
+        assertEquals(List.of(started), manager.getSubtasksByStatus(TaskStatus.IN_PROGRESS));
+        assertEquals(List.of(second), manager.getSubtasksByStatus(TaskStatus.NEW));
+        assertEquals(List.of(epic), manager.getEpicsByStatus(TaskStatus.IN_PROGRESS));
+        assertEquals(List.of(task), manager.getTasksByStatus(TaskStatus.NEW));
+        assertEquals(2, manager.countByStatus().get(TaskStatus.NEW));
+        assertEquals(2, manager.countByStatus().get(TaskStatus.IN_PROGRESS));
+        assertEquals(0, manager.countByStatus(TaskType.SUBTASK).get(TaskStatus.DONE));
+
+        manager.deleteSubtask(started.getId());
+        assertTrue(manager.getSubtasksByStatus(TaskStatus.IN_PROGRESS).isEmpty());
+        assertEquals(List.of(epic), manager.getEpicsByStatus(TaskStatus.NEW));
+
+        manager.deleteEpic(epic.getId());
+        manager.removeAllTasks();
+        assertEquals(0, manager.countByStatus().get(TaskStatus.NEW));
+    }
+
+    @Test
+    void streams_shouldCoverStoredTasksWithoutCopies() {
+        for (int i = 0; i < 100; i++) {
+            manager.generateTask(new Task("T" + i, "", TaskStatus.NEW));
+        }
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Subtask subtask = manager.generateSubtask(new Subtask("S", "", epic.getId()));
+
+        assertEquals(100, manager.streamTasks().parallel().filter(task -> task.getName().startsWith("T")).count());
+        assertEquals(manager.getAllTasks().size(), manager.streamTasks().count());
+        assertEquals(List.of(epic), manager.streamEpics().toList());
+        assertEquals(List.of(subtask), manager.streamSubtasks().toList());
+        assertEquals(List.of(subtask), manager.streamSubtasksByEpic(epic.getId()).toList());
+        assertEquals(0, manager.streamSubtasksByEpic(-1).count());
+    }
+
+    @Test
+    void generateAll_shouldAddWholeBatchAndRecalculateEpics() {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Subtask done = new Subtask("S1", "", epic.getId(), Duration.ofHours(1), start.plusHours(1));
+        done.setTaskStatus(TaskStatus.DONE);
+        Subtask open = new Subtask("S2", "", epic.getId(), Duration.ofHours(1), start);
+        Task task = new Task("T", "", TaskStatus.NEW, Duration.ofHours(1), start.plusHours(2));
+
+        List<Task> added = manager.generateAll(List.of(done, open, task));
+
+        assertEquals(3, added.size());
+        assertTrue(added.stream().allMatch(item -> item.getId() > epic.getId()));
+        assertEquals(List.of(open, done, task), manager.getPrioritizedTasks());
+        assertEquals(2, manager.getSubtasksByEpic(epic.getId()).size());
+        assertEquals(TaskStatus.NEW, manager.getEpicById(epic.getId()).getTaskStatus());
+        assertEquals(start, manager.getEpicById(epic.getId()).getStartTime());
+    }
+
+    @Test
+    void generateAll_withInvalidItems_shouldRejectWholeBatch() {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        manager.generateTask(new Task("Занято", "", TaskStatus.NEW, Duration.ofHours(1), start));
+        List<Task> batch = List.of(
+                new Task("T1", "", TaskStatus.NEW, Duration.ofHours(2), start.plusHours(2)),
+                new Task("T2", "", TaskStatus.NEW, Duration.ofHours(1), start.plusHours(3)),
+                new Subtask("S", "", 999),
+                new Task("T3", "", TaskStatus.NEW, Duration.ofMinutes(30), start.plusMinutes(30)));
+
+        BatchValidationException e = assertThrows(BatchValidationException.class, () -> manager.generateAll(batch));
+
+        assertEquals(Set.of(1, 2, 3), e.getErrors().keySet());
+        assertEquals(1, manager.getAllTasks().size());
+        assertTrue(manager.getAllSubtasks().isEmpty());
+    }
+
+    @Test
+    void updateAllAndDeleteAll_shouldApplyBatches() {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        Task first = manager.generateTask(new Task("T1", "", TaskStatus.NEW, Duration.ofHours(1), start));
+        Task second = manager.generateTask(new Task("T2", "", TaskStatus.NEW, Duration.ofHours(1), start.plusHours(1)));
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Subtask subtask = manager.generateSubtask(new Subtask("S", "", epic.getId()));
+
+        Task swappedFirst = new Task("T1", "", TaskStatus.DONE, Duration.ofHours(1), start.plusHours(1));
+        swappedFirst.setId(first.getId());
+        Task swappedSecond = new Task("T2", "", TaskStatus.NEW, Duration.ofHours(1), start);
+        swappedSecond.setId(second.getId());
+        Subtask doneSubtask = new Subtask("S", "", epic.getId());
+        doneSubtask.setId(subtask.getId());
+        doneSubtask.setTaskStatus(TaskStatus.DONE);
+        manager.updateAll(List.of(swappedFirst, swappedSecond, doneSubtask));
+
+        assertEquals(List.of(swappedSecond, swappedFirst), manager.getPrioritizedTasks());
+        assertEquals(TaskStatus.DONE, manager.getEpicById(epic.getId()).getTaskStatus());
+
+        Task missing = new Task("X", "", TaskStatus.NEW);
+        missing.setId(999);
+        assertThrows(BatchValidationException.class, () -> manager.updateAll(List.of(swappedFirst, missing)));
+
+        assertEquals(2, manager.deleteAll(List.of(first.getId(), subtask.getId(), 999)));
+        assertEquals(List.of(swappedSecond), manager.getAllTasks());
+        assertTrue(manager.getSubtasksByEpic(epic.getId()).isEmpty());
+        assertEquals(TaskStatus.NEW, manager.getEpicById(epic.getId()).getTaskStatus());
+    }
+
+    @Test
+    void timeQueries_withSecondPrecisionBounds_shouldRespectBounds() {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        Task task = manager.generateTask(new Task("T", "", TaskStatus.NEW, Duration.ofHours(1), start));
+
+        assertTrue(manager.getTasksBetween(start.plusSeconds(1), start.plusHours(1)).isEmpty());
+        assertEquals(List.of(task), manager.getTasksBetween(start, start.plusSeconds(1)));
+        assertTrue(manager.getNextTasks(start.plusSeconds(1), 1).isEmpty());
+    }
+}
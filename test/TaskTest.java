@@ -1,8 +1,13 @@
 import static org.junit.jupiter.api.Assertions.*;
 
 import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskTime;
 import org.junit.jupiter.api.*;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+
 class TaskTest {
 
     @Test
@@ -15,4 +20,31 @@ class TaskTest {
 
         assertEquals(task1, task2);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testTimeIsStoredInMinutes() {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0, 45);
+        Task task = new Task("Задача", "", TaskStatus.NEW, Duration.ofMinutes(90), start);
+
+        assertEquals(start.withSecond(0), task.getStartTime());
+        assertEquals(Duration.ofMinutes(90), task.getDuration());
+        assertEquals(start.withSecond(0).plusMinutes(90), task.getEndTime());
+        assertEquals(task.getStartMinute() + 90, task.getEndMinute());
+
+        task.setDuration(null);
+        assertNull(task.getEndTime());
+        assertEquals(TaskTime.NONE, task.getEndMinute());
+    }
+
+    @Test
+    void testOverlapUsesHalfOpenIntervals() {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        Task first = new Task("1", "", TaskStatus.NEW, Duration.ofHours(1), start);
+        Task adjacent = new Task("2", "", TaskStatus.NEW, Duration.ofHours(1), start.plusHours(1));
+        Task inside = new Task("3", "", TaskStatus.NEW, Duration.ofMinutes(10), start.plusMinutes(50));
+
+        assertFalse(first.isOverlapping(adjacent));
+        assertTrue(first.isOverlapping(inside));
+        assertFalse(adjacent.isOverlapping(inside));
+    }
+}
@@ -0,0 +1,186 @@
+import managers.BoardSnapshot;
+import managers.InMemoryTaskManager;
+import managers.TaskEvent;
+import managers.TaskEventFeed;
+import org.junit.jupiter.api.*;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VersionedInMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
+
+    @Override
+    InMemoryTaskManager createManager() {
+        return new InMemoryTaskManager(true);
+    }
+
+    @Test
+    void snapshot_shouldNotSeeLaterChanges() {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 1, 10, 0);
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Subtask subtask = manager.generateSubtask(
+                new Subtask("S", "", epic.getId(), Duration.ofHours(1), start.plusHours(2)));
+        Task task = manager.generateTask(new Task("T", "", TaskStatus.NEW, Duration.ofHours(1), start));
+
+        BoardSnapshot before = manager.snapshot();
+
+        subtask.setTaskStatus(TaskStatus.DONE);
+        manager.updateSubtask(subtask);
+        task.setName("Изменено");
+        manager.deleteTask(task.getId());
+        Subtask started = new Subtask("S2", "", epic.getId());
+        started.setTaskStatus(TaskStatus.IN_PROGRESS);
+        manager.generateSubtask(started);
+
+        assertEquals("T", before.getTaskById(task.getId()).getName());
+        assertEquals(List.of(task, subtask), before.getPrioritizedTasks());
+        assertEquals(TaskStatus.NEW, before.getEpicById(epic.getId()).getTaskStatus());
+        assertEquals(TaskStatus.NEW, before.getSubtaskById(subtask.getId()).getTaskStatus());
+        assertEquals(1, before.getSubtasksByEpic(epic.getId()).size());
+
+        BoardSnapshot after = manager.snapshot();
+        assertTrue(after.getVersion() > before.getVersion());
+        assertNull(after.getTaskById(task.getId()));
+        assertEquals(TaskStatus.IN_PROGRESS, after.getEpicById(epic.getId()).getTaskStatus());
+        assertEquals(start.plusHours(2), after.getEpicById(epic.getId()).getStartTime());
+        assertEquals(2, after.getSubtasksByEpic(epic.getId()).size());
+        assertSame(after, manager.snapshot());
+    }
+
+    @Test
+    void snapshot_readFromAnotherThread_shouldSeeWholeOperations() throws InterruptedException {
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                readSnapshots(epic.getId());
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 2_000; i++) {
+            Subtask subtask = new Subtask("S" + i, "", epic.getId());
+            subtask.setTaskStatus(TaskStatus.DONE);
+            manager.generateSubtask(subtask);
+            if (i % 3 == 0) {
+                manager.removeAllSubtasks();
+            }
+        }
+        reader.join();
+        assertNull(failure.get());
+    }
+
+    private void readSnapshots(int epicId) {
+        for (int i = 0; i < 10_000; i++) {
+            BoardSnapshot snapshot = manager.snapshot();
+            Epic frozen = snapshot.getEpicById(epicId);
+            List<Subtask> subtasks = snapshot.getSubtasksByEpic(epicId);
+            assertEquals(!subtasks.isEmpty(), frozen.getTaskStatus() == TaskStatus.DONE);
+            assertEquals(subtasks.size(), snapshot.getAllSubtasks().size());
+        }
+    }
+
+    @Test
+    void snapshot_afterRandomChanges_shouldMatchManager() {
+        Random random = new Random(7);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            if (!ids.isEmpty() && random.nextInt(3) == 0) {
+                manager.deleteTask(ids.remove(random.nextInt(ids.size())));
+            } else {
+                ids.add(manager.generateTask(new Task("T" + i, "")).getId());
+            }
+        }
+        BoardSnapshot snapshot = manager.snapshot();
+        List<Task> expected = manager.getAllTasks();
+        expected.sort(Comparator.comparingInt(Task::getId));
+        assertEquals(expected, snapshot.getAllTasks());
+        for (Task task : expected) {
+            assertEquals(task.getName(), snapshot.getTaskById(task.getId()).getName());
+        }
+    }
+
+    @Test
+    void subscribe_shouldReceiveChangesAndDerivedEpicUpdates() throws InterruptedException {
+        List<TaskEvent> events = new CopyOnWriteArrayList<>();
+        TaskEventFeed.Subscription subscription = manager.subscribe(events::addAll);
+
+        Epic epic = manager.generateEpic(new Epic("Эпик", ""));
+        Subtask subtask = manager.generateSubtask(new Subtask("S", "", epic.getId()));
+        subtask.setTaskStatus(TaskStatus.DONE);
+        manager.updateSubtask(subtask);
+        manager.updateSubtask(subtask);
+        manager.deleteEpic(epic.getId());
+        subscription.awaitDelivered();
+        subscription.close();
+
+        assertEquals(List.of("CREATED EPIC", "CREATED SUBTASK", "UPDATED SUBTASK", "UPDATED EPIC",
+                        "DELETED EPIC", "DELETED SUBTASK"),
+                events.stream().map(e -> e.getKind() + " " + e.getType()).toList());
+        TaskEvent epicDone = events.get(3);
+        assertEquals(TaskStatus.NEW, epicDone.getPrevious().getTaskStatus());
+        assertEquals(TaskStatus.DONE, epicDone.getTask().getTaskStatus());
+        assertEquals(events.get(2).getVersion(), epicDone.getVersion());
+        assertEquals(manager.snapshot().getVersion(), events.get(5).getVersion());
+        assertNull(events.get(5).getTask());
+    }
+
+    @Test
+    void subscribe_slowListener_shouldBeCutOffWithoutHoldingBackWriter() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> sizes = new CopyOnWriteArrayList<>();
+        List<Integer> ids = new CopyOnWriteArrayList<>();
+        TaskEventFeed.Subscription subscription = manager.subscribe(batch -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sizes.add(batch.size());
+            batch.forEach(event -> ids.add(event.getId()));
+        }, 4, 3);
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 20; i++) {
+                manager.generateTask(new Task("T" + i, ""));
+            }
+        });
+        writer.start();
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(writer.isAlive());
+        assertTrue(subscription.isOverflowed());
+
+        release.countDown();
+        subscription.awaitDelivered();
+        subscription.close();
+
+        List<Integer> allIds = manager.getAllTasks().stream().map(Task::getId).sorted().toList();
+        assertEquals(20, allIds.size());
+        assertTrue(subscription.getDelivered() <= 3 + 4);
+        assertEquals(allIds.subList(0, ids.size()), ids);
+        assertTrue(sizes.stream().allMatch(size -> size <= 3));
+
+        List<TaskEvent> events = new CopyOnWriteArrayList<>();
+        TaskEventFeed.Subscription again = manager.subscribe(events::addAll);
+        manager.generateTask(new Task("После", ""));
+        again.awaitDelivered();
+        again.close();
+        assertEquals(1, events.size());
+        assertFalse(again.isOverflowed());
+    }
+}